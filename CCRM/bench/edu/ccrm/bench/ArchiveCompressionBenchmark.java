@@ -0,0 +1,64 @@
+package ccrm.bench;
+
+import ccrm.io.ParallelGzipOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Measures backup archive compression on a generated students file: a plain
+ * single-threaded {@link GZIPOutputStream} against {@link ParallelGzipOutputStream}
+ * with one thread and with every core, at several compression levels.
+ * Usage: {@code java ccrm.bench.ArchiveCompressionBenchmark [rows]} (default 2,000,000).
+ */
+public class ArchiveCompressionBenchmark {
+    private static final int[] LEVELS = {1, 6, 9};
+    
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        
+        Path file = Files.createTempFile("ccrm-students-", ".csv");
+        Path archive = Files.createTempFile("ccrm-archive-", ".gz");
+        try {
+            CsvImportBenchmark.writeStudents(file, rows);
+            long size = Files.size(file);
+            System.out.printf("File: %s (%d rows, %,d bytes, %d cores)%n", file, rows, size, cores);
+            
+            for (int level : LEVELS) {
+                System.out.println("Level " + level + ":");
+                report("GZIPOutputStream", size, archive, () -> new GZIPOutputStream(Files.newOutputStream(archive), 64 * 1024) {
+                    {
+                        def.setLevel(level);
+                    }
+                }, file);
+                report("parallel, 1 thread", size, archive,
+                       () -> new ParallelGzipOutputStream(Files.newOutputStream(archive), level, 1), file);
+                report("parallel, " + cores + " threads", size, archive,
+                       () -> new ParallelGzipOutputStream(Files.newOutputStream(archive), level, cores), file);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(archive);
+        }
+    }
+    
+    private static void report(String name, long size, Path archive, StreamFactory factory, Path file) throws IOException {
+        long start = System.nanoTime();
+        try (OutputStream out = factory.open()) {
+            Files.copy(file, out);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long compressed = Files.size(archive);
+        System.out.printf("  %-22s %8.3f s  %8.1f MB/s  %,14d bytes (%.1f%%)%n",
+                          name, seconds, size / seconds / 1e6, compressed, compressed * 100.0 / size);
+    }
+    
+    @FunctionalInterface
+    private interface StreamFactory {
+        OutputStream open() throws IOException;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,93 @@
+package ccrm.bench;
+
+import ccrm.io.ArchiveQueryService;
+import ccrm.io.ImportExportService;
+import ccrm.service.CourseService;
+import ccrm.service.StudentService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Compares querying an exported term by loading it into the services with the
+ * CSV importers against opening it with {@link ArchiveQueryService}: time to
+ * first query, heap retained, and lookup and scan speed.
+ * Usage: {@code java ccrm.bench.ArchiveQueryBenchmark [students]} (default 1,000,000).
+ */
+public class ArchiveQueryBenchmark {
+    private static final int LOOKUPS = 100_000;
+    
+    public static void main(String[] args) throws IOException {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        
+        Path dir = Files.createTempDirectory("ccrm-archive-");
+        try {
+            StudentService studentService = new StudentService();
+            CourseService courseService = new CourseService();
+            SnapshotBenchmark.populate(studentService, courseService, students);
+            ImportExportService exporter = new ImportExportService(studentService, courseService);
+            exporter.exportStudentsToCSV(dir.resolve("students.csv"));
+            exporter.exportCoursesToCSV(dir.resolve("courses.csv"));
+            exporter.exportEnrollmentsToCSV(dir.resolve("enrollments.csv"));
+            studentService = null;
+            courseService = null;
+            exporter = null;
+            System.out.printf("%d students exported to %s%n", students, dir);
+            
+            long baseline = usedHeap();
+            long start = System.nanoTime();
+            StudentService loaded = new StudentService();
+            ImportExportService importer = new ImportExportService(loaded, new CourseService());
+            importer.importCoursesFromCSV(dir.resolve("courses.csv"));
+            importer.importStudentsFromCSV(dir.resolve("students.csv"));
+            importer.importEnrollmentsFromCSV(dir.resolve("enrollments.csv"));
+            double loadSeconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("CSV load into services:  %8.3f s, %,6d MB retained%n",
+                              loadSeconds, (usedHeap() - baseline) >> 20);
+            Random random = new Random(42);
+            start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                loaded.findById("S" + random.nextInt(students)).ifPresent(s -> s.calculateGPA());
+            }
+            System.out.printf("  %,d lookups + GPA:    %8.3f s%n", LOOKUPS, (System.nanoTime() - start) / 1e9);
+            loaded = null;
+            importer = null;
+            
+            baseline = usedHeap();
+            start = System.nanoTime();
+            ArchiveQueryService.writeIndex(dir);
+            System.out.printf("Index build (at backup): %8.3f s%n", (System.nanoTime() - start) / 1e9);
+            start = System.nanoTime();
+            ArchiveQueryService archive = ArchiveQueryService.open(dir);
+            double openSeconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Archive open:            %8.3f s, %,6d MB retained%n",
+                              openSeconds, (usedHeap() - baseline) >> 20);
+            random = new Random(42);
+            start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                String id = "S" + random.nextInt(students);
+                archive.findById(id).ifPresent(s -> archive.calculateGPA(id));
+            }
+            System.out.printf("  %,d lookups + GPA:    %8.3f s%n", LOOKUPS, (System.nanoTime() - start) / 1e9);
+            start = System.nanoTime();
+            long matches = archive.students().filter(s -> s.getFullName().endsWith("7")).count();
+            System.out.printf("  full scan search:      %8.3f s (%d matches)%n", (System.nanoTime() - start) / 1e9, matches);
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+    
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
\ No newline at end of file
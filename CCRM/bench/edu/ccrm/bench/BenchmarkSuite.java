@@ -0,0 +1,309 @@
+package ccrm.bench;
+
+import ccrm.domain.Course;
+import ccrm.domain.Grade;
+import ccrm.io.BackupService;
+import ccrm.io.ImportExportService;
+import ccrm.service.CourseService;
+import ccrm.service.FuzzySearchIndex;
+import ccrm.service.GpaAnalytics;
+import ccrm.service.GradeDistributionCounters;
+import ccrm.service.RankingService;
+import ccrm.service.StudentService;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Regression suite over the service, I/O and report hot paths, each run at
+ * several dataset sizes, with results written as JSON.
+ * <p>
+ * Every benchmark is measured in average-time mode: timed warmup iterations,
+ * then timed measurement iterations, each calling the operation until the
+ * iteration time is up and reporting nanoseconds per call. The score is the
+ * mean over the measurement iterations and the error is their standard
+ * deviation. Results are consumed into a sink so the JIT cannot drop the work.
+ * <p>
+ * Usage: {@code java ccrm.bench.BenchmarkSuite [options]}
+ * <ul>
+ * <li>{@code --sizes 1000,10000,100000} students per dataset (default)</li>
+ * <li>{@code --filter text} only benchmarks whose name contains the text</li>
+ * <li>{@code --warmup n --iterations n --time ms} iteration counts and length (default 2, 5, 500)</li>
+ * <li>{@code --out file} JSON output (default {@code benchmark-results.json})</li>
+ * <li>{@code --baseline file} earlier JSON output to print the change against</li>
+ * </ul>
+ * {@code backup.createBackup} writes under the configured {@code data/backups}
+ * directory and deletes each backup it makes.
+ */
+public class BenchmarkSuite {
+    private static final Pattern RESULT = Pattern.compile(
+        "\"benchmark\": \"([^\"]+)\", \"size\": (\\d+), \"unit\": \"[^\"]*\", \"score\": ([0-9.Ee+-]+)");
+    
+    private static long sink;
+    
+    @FunctionalInterface
+    private interface Operation {
+        Object run(Fixture fixture, int invocation) throws Exception;
+    }
+    
+    private static class Fixture {
+        final int size;
+        final StudentService studentService = new StudentService();
+        final CourseService courseService = new CourseService();
+        final ImportExportService importExportService = new ImportExportService(studentService, courseService);
+        final BackupService backupService;
+        final RankingService rankingService;
+        final GradeDistributionCounters gradeCounters;
+        final GpaAnalytics gpaAnalytics;
+        final FuzzySearchIndex fuzzySearchIndex;
+        final List<Course> courses;
+        final Path directory;
+        final Path studentsFile;
+        
+        Fixture(int size) throws IOException {
+            this.size = size;
+            SnapshotBenchmark.populate(studentService, courseService, size);
+            this.courses = courseService.findAll();
+            this.backupService = new BackupService(importExportService);
+            this.rankingService = new RankingService(studentService, courseService);
+            this.gradeCounters = GradeDistributionCounters.attach(studentService, courseService);
+            this.gpaAnalytics = new GpaAnalytics(studentService);
+            this.fuzzySearchIndex = FuzzySearchIndex.attach(studentService, courseService);
+            this.directory = Files.createTempDirectory("ccrm-bench-");
+            this.studentsFile = directory.resolve("students.csv");
+            importExportService.exportStudentsToCSV(studentsFile);
+        }
+        
+        String studentId(int invocation) {
+            return "S" + Math.floorMod(invocation, size);
+        }
+    }
+    
+    private static class Result {
+        final String benchmark;
+        final int size;
+        final double score;
+        final double error;
+        final int iterations;
+        final long operations;
+        
+        Result(String benchmark, int size, double score, double error, int iterations, long operations) {
+            this.benchmark = benchmark;
+            this.size = size;
+            this.score = score;
+            this.error = error;
+            this.iterations = iterations;
+            this.operations = operations;
+        }
+    }
+    
+    private static Map<String, Operation> benchmarks() {
+        Map<String, Operation> benchmarks = new LinkedHashMap<>();
+        Grade[] grades = Grade.values();
+        
+        benchmarks.put("student.findById", (f, i) -> f.studentService.findById(f.studentId(i)));
+        // Enroll in a course the generated data never uses for this student, then undo it to keep state steady
+        benchmarks.put("student.enrollInCourse", (f, i) -> {
+            String id = f.studentId(i);
+            Course course = f.courses.get((Math.floorMod(i, f.size) + f.courses.size() / 2) % f.courses.size());
+            f.studentService.enrollInCourse(id, course);
+            return f.studentService.unenrollFromCourse(id, course.getCode());
+        });
+        benchmarks.put("student.recordGrade", (f, i) -> {
+            int student = Math.floorMod(i, f.size);
+            f.studentService.recordGrade("S" + student, f.courses.get(student % f.courses.size()).getCode(),
+                                         grades[Math.floorMod(i, grades.length)]);
+            return student;
+        });
+        benchmarks.put("student.generateTranscript", (f, i) -> f.studentService.generateTranscript(f.studentId(i)));
+        
+        benchmarks.put("course.findByDepartment", (f, i) -> f.courseService.findByDepartment("Department " + (i % 10)));
+        benchmarks.put("course.findByInstructor", (f, i) -> f.courseService.findByInstructor("instructor " + (i % 40)));
+        benchmarks.put("course.searchTitle", (f, i) -> {
+            String text = "number " + (i % 100);
+            return f.courseService.search(c -> c.getTitle().toLowerCase(Locale.ROOT).contains(text));
+        });
+        benchmarks.put("search.fuzzyStudents", (f, i) -> f.fuzzySearchIndex.searchStudents("Studnet Nmber " + f.studentId(i).substring(1), 10));
+        
+        benchmarks.put("io.exportStudents", (f, i) -> {
+            f.importExportService.exportStudentsToCSV(f.directory.resolve("export.csv"));
+            return Files.size(f.directory.resolve("export.csv"));
+        });
+        benchmarks.put("io.exportEnrollments", (f, i) -> {
+            f.importExportService.exportEnrollmentsToCSV(f.directory.resolve("enrollments.csv"));
+            return Files.size(f.directory.resolve("enrollments.csv"));
+        });
+        benchmarks.put("io.importStudents", (f, i) -> {
+            StudentService target = new StudentService();
+            new ImportExportService(target, new CourseService()).importStudentsFromCSV(f.studentsFile);
+            return target.findAll().size();
+        });
+        benchmarks.put("backup.createBackup", (f, i) -> {
+            Path backup = f.backupService.createBackup();
+            deleteRecursively(backup);
+            return backup;
+        });
+        
+        benchmarks.put("report.topStudents", (f, i) -> f.rankingService.topByGpa(10));
+        benchmarks.put("report.gradeDistribution", (f, i) -> f.gradeCounters.getDistribution());
+        // Same pipelines as the CLI enrollment and department statistics reports
+        benchmarks.put("report.enrollmentStatistics", (f, i) -> f.courseService.findAll().stream()
+            .filter(course -> course.getEnrollmentCount() > 0)
+            .collect(Collectors.groupingBy(Course::getTitle, Collectors.summingLong(Course::getEnrollmentCount))));
+        benchmarks.put("report.departmentStatistics", (f, i) -> f.courseService.findAll().stream()
+            .filter(Course::isActive)
+            .collect(Collectors.groupingBy(Course::getDepartment, Collectors.counting())));
+        benchmarks.put("report.gpaAnalytics", (f, i) -> f.gpaAnalytics.analyze());
+        return benchmarks;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {1_000, 10_000, 100_000};
+        String filter = "";
+        int warmup = 2;
+        int iterations = 5;
+        long iterationNanos = 500_000_000L;
+        Path out = Paths.get("benchmark-results.json");
+        Path baseline = null;
+        for (int a = 0; a < args.length; a++) {
+            String value = a + 1 < args.length ? args[a + 1] : null;
+            switch (args[a]) {
+                case "--sizes":
+                    sizes = Stream.of(value.split(",")).mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+                    break;
+                case "--filter":
+                    filter = value;
+                    break;
+                case "--warmup":
+                    warmup = Integer.parseInt(value);
+                    break;
+                case "--iterations":
+                    iterations = Integer.parseInt(value);
+                    break;
+                case "--time":
+                    iterationNanos = Long.parseLong(value) * 1_000_000L;
+                    break;
+                case "--out":
+                    out = Paths.get(value);
+                    break;
+                case "--baseline":
+                    baseline = Paths.get(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[a]);
+            }
+            a++;
+        }
+        
+        Map<String, Double> previous = baseline != null ? readScores(baseline) : Map.of();
+        List<Result> results = new ArrayList<>();
+        for (int size : sizes) {
+            Fixture fixture = new Fixture(size);
+            try {
+                System.out.printf("%n%,d students%n", size);
+                for (Map.Entry<String, Operation> benchmark : benchmarks().entrySet()) {
+                    if (!benchmark.getKey().contains(filter)) {
+                        continue;
+                    }
+                    Result result = measure(benchmark.getKey(), fixture, benchmark.getValue(),
+                                            warmup, iterations, iterationNanos);
+                    results.add(result);
+                    Double before = previous.get(result.benchmark + "@" + result.size);
+                    System.out.printf("  %-30s %,16.1f ns/op  +- %,12.1f%s%n", result.benchmark, result.score, result.error,
+                                      before == null ? "" : String.format("  (%+.1f%% vs baseline)", (result.score / before - 1) * 100));
+                }
+            } finally {
+                fixture.backupService.close();
+                fixture.gradeCounters.detach();
+                deleteRecursively(fixture.directory);
+            }
+        }
+        
+        writeJson(out, results, warmup, iterationNanos);
+        System.out.println("\nResults written to " + out.toAbsolutePath() + " (sink " + (sink & 1) + ")");
+    }
+    
+    private static Result measure(String name, Fixture fixture, Operation operation,
+                                  int warmup, int iterations, long iterationNanos) throws Exception {
+        int invocation = 0;
+        double[] scores = new double[iterations];
+        long operations = 0;
+        for (int iteration = -warmup; iteration < iterations; iteration++) {
+            long count = 0;
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                Object value = operation.run(fixture, invocation++);
+                sink += value == null ? 0 : System.identityHashCode(value);
+                count++;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < iterationNanos);
+            if (iteration >= 0) {
+                scores[iteration] = (double) elapsed / count;
+                operations += count;
+            }
+        }
+        double mean = 0.0;
+        for (double score : scores) {
+            mean += score / iterations;
+        }
+        double variance = 0.0;
+        for (double score : scores) {
+            variance += (score - mean) * (score - mean) / iterations;
+        }
+        return new Result(name, fixture.size, mean, Math.sqrt(variance), iterations, operations);
+    }
+    
+    // One result per line, so runs diff cleanly and --baseline can read them back line by line
+    private static void writeJson(Path out, List<Result> results, int warmup, long iterationNanos) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+            writer.write("{\n");
+            writer.write(String.format(Locale.ROOT, "  \"timestamp\": \"%s\",%n", Instant.now()));
+            writer.write(String.format(Locale.ROOT, "  \"java\": \"%s\",%n", System.getProperty("java.version")));
+            writer.write(String.format(Locale.ROOT, "  \"cores\": %d,%n", Runtime.getRuntime().availableProcessors()));
+            writer.write(String.format(Locale.ROOT, "  \"warmupIterations\": %d,%n", warmup));
+            writer.write(String.format(Locale.ROOT, "  \"iterationMillis\": %d,%n", iterationNanos / 1_000_000L));
+            writer.write("  \"results\": [\n");
+            for (int i = 0; i < results.size(); i++) {
+                Result r = results.get(i);
+                writer.write(String.format(Locale.ROOT,
+                    "    {\"benchmark\": \"%s\", \"size\": %d, \"unit\": \"ns/op\", \"score\": %.3f, \"error\": %.3f, "
+                    + "\"iterations\": %d, \"operations\": %d}%s%n",
+                    r.benchmark, r.size, r.score, r.error, r.iterations, r.operations, i + 1 < results.size() ? "," : ""));
+            }
+            writer.write("  ]\n}\n");
+        }
+    }
+    
+    private static Map<String, Double> readScores(Path file) throws IOException {
+        Map<String, Double> scores = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            Matcher matcher = RESULT.matcher(line);
+            if (matcher.find()) {
+                scores.put(matcher.group(1) + "@" + matcher.group(2), Double.parseDouble(matcher.group(3)));
+            }
+        }
+        return scores;
+    }
+    
+    private static void deleteRecursively(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
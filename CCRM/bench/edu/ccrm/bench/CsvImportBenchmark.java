@@ -0,0 +1,95 @@
+package ccrm.bench;
+
+import ccrm.io.CsvReader;
+import ccrm.io.ImportExportService;
+import ccrm.service.CourseService;
+import ccrm.service.StudentService;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Measures CSV parsing throughput in rows per second on a generated students file.
+ * <p>
+ * Compares the old {@code line.split(",")} approach with {@link CsvReader}, then
+ * runs a full {@link ImportExportService#importStudentsFromCSV} import.
+ * Usage: {@code java ccrm.bench.CsvImportBenchmark [rows]} (default 2,000,000).
+ */
+public class CsvImportBenchmark {
+    private static final int ROUNDS = 3;
+    
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        
+        Path file = Files.createTempFile("ccrm-students-", ".csv");
+        try {
+            writeStudents(file, rows);
+            System.out.printf("File: %s (%d rows, %,d bytes)%n", file, rows, Files.size(file));
+            
+            for (int round = 1; round <= ROUNDS; round++) {
+                System.out.println("Round " + round + ":");
+                report("split(\",\") parse", rows, () -> splitParse(file));
+                report("CsvReader parse", rows, () -> csvReaderParse(file));
+                report("importStudentsFromCSV", rows, () -> fullImport(file));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    static void writeStudents(Path file, int rows) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("ID,RegistrationNo,FullName,Email,Status\n");
+            for (int i = 0; i < rows; i++) {
+                // Every tenth name is quoted and contains a comma, as "Last, First" exports do
+                String name = i % 10 == 0 ? "\"Student, Number " + i + "\"" : "Student Number " + i;
+                writer.write("S" + i + "," + (2_000_000_000L + i) + "," + name
+                           + ",student" + i + "@university.edu,Active\n");
+            }
+        }
+    }
+    
+    private static long splitParse(Path file) throws IOException {
+        long checksum = 0;
+        try (Stream<String> lines = Files.lines(file)) {
+            checksum = lines.skip(1)
+                .map(line -> line.split(","))
+                .mapToLong(parts -> parts[0].trim().length() + parts[3].trim().length())
+                .sum();
+        }
+        return checksum;
+    }
+    
+    private static long csvReaderParse(Path file) throws IOException {
+        long checksum = 0;
+        try (CsvReader reader = CsvReader.open(file)) {
+            reader.next();
+            while (reader.next()) {
+                checksum += reader.get(0).trim().length() + reader.get(3).trim().length();
+            }
+        }
+        return checksum;
+    }
+    
+    private static long fullImport(Path file) throws IOException {
+        StudentService studentService = new StudentService();
+        new ImportExportService(studentService, new CourseService()).importStudentsFromCSV(file);
+        return studentService.findAll().size();
+    }
+    
+    private static void report(String name, int rows, IoTask task) throws IOException {
+        long start = System.nanoTime();
+        long result = task.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("  %-24s %8.3f s  %,12.0f rows/s  (checksum %d)%n", name, seconds, rows / seconds, result);
+    }
+    
+    @FunctionalInterface
+    private interface IoTask {
+        long run() throws IOException;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,79 @@
+package ccrm.bench;
+
+import ccrm.domain.Enrollment;
+import ccrm.domain.Grade;
+import ccrm.domain.Student;
+import ccrm.service.ColumnarEnrollmentStore;
+import ccrm.service.CourseService;
+import ccrm.service.StudentService;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the heap held by enrollments as {@link Enrollment} objects (with
+ * their dates, list slots and course roster entries) against the same
+ * enrollments in a {@link ColumnarEnrollmentStore}, and times the GPA and grade
+ * distribution reports over each.
+ * Usage: {@code java ccrm.bench.EnrollmentFootprintBenchmark [students]} (default 1,000,000).
+ */
+public class EnrollmentFootprintBenchmark {
+    public static void main(String[] args) {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        
+        StudentService studentService = new StudentService();
+        CourseService courseService = new CourseService();
+        SnapshotBenchmark.populate(studentService, courseService, students);
+        long withObjects = usedHeap();
+        
+        ColumnarEnrollmentStore store = ColumnarEnrollmentStore.from(studentService);
+        long withBoth = usedHeap();
+        int enrollments = store.size();
+        
+        long start = System.nanoTime();
+        double objectGpa = 0.0;
+        for (Student student : studentService.findAll()) {
+            objectGpa += student.calculateGPA();
+        }
+        Map<Grade, Long> objectDistribution = new java.util.EnumMap<>(Grade.class);
+        courseService.findAll().forEach(course ->
+            course.getGradeDistribution().forEach((grade, count) -> objectDistribution.merge(grade, count, Long::sum)));
+        double objectSeconds = (System.nanoTime() - start) / 1e9;
+        
+        start = System.nanoTime();
+        double columnarGpa = 0.0;
+        for (Student student : studentService.findAll()) {
+            columnarGpa += store.calculateGPA(student.getId());
+        }
+        Map<Grade, Long> columnarDistribution = store.getGradeDistribution();
+        double columnarSeconds = (System.nanoTime() - start) / 1e9;
+        if (Math.abs(objectGpa - columnarGpa) > 1e-6 || !objectDistribution.equals(columnarDistribution)) {
+            throw new IllegalStateException("Columnar store disagrees with the object graph");
+        }
+        
+        // Drop the object enrollments to see what they were holding
+        for (Student student : studentService.findAll()) {
+            List<Enrollment> current = student.getEnrollments();
+            for (Enrollment enrollment : current.toArray(new Enrollment[0])) {
+                student.removeEnrollment(enrollment);
+            }
+        }
+        long withColumnar = usedHeap();
+        
+        long objectBytes = withBoth - withColumnar;
+        long columnarBytes = withBoth - withObjects;
+        System.out.printf("%,d students, %,d enrollments%n", students, enrollments);
+        System.out.printf("  Enrollment objects: %,6d MB  (%5.1f bytes per enrollment)  reports %6.3f s%n",
+                          objectBytes >> 20, (double) objectBytes / enrollments, objectSeconds);
+        System.out.printf("  Columnar store:     %,6d MB  (%5.1f bytes per enrollment)  reports %6.3f s%n",
+                          columnarBytes >> 20, (double) columnarBytes / enrollments, columnarSeconds);
+    }
+    
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,38 @@
+package ccrm.bench;
+
+import ccrm.service.CourseService;
+import ccrm.service.GpaAnalytics;
+import ccrm.service.StudentService;
+
+/**
+ * Times {@link GpaAnalytics} (overall, per-department and per-semester GPA
+ * statistics) sequentially and in parallel over the same students.
+ * Usage: {@code java ccrm.bench.GpaAnalyticsBenchmark [students]} (default 1,000,000).
+ */
+public class GpaAnalyticsBenchmark {
+    private static final int ROUNDS = 5;
+    
+    public static void main(String[] args) {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        
+        StudentService studentService = new StudentService();
+        SnapshotBenchmark.populate(studentService, new CourseService(), students);
+        GpaAnalytics analytics = new GpaAnalytics(studentService);
+        System.out.printf("%,d students, %d cores%n", students, Runtime.getRuntime().availableProcessors());
+        
+        GpaAnalytics.Report sequential = null;
+        GpaAnalytics.Report parallel = null;
+        for (int round = 1; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            sequential = analytics.analyze(false);
+            double sequentialSeconds = (System.nanoTime() - start) / 1e9;
+            start = System.nanoTime();
+            parallel = analytics.analyze(true);
+            double parallelSeconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Round %d: sequential %7.3f s, parallel %7.3f s (%.1fx)%n",
+                              round, sequentialSeconds, parallelSeconds, sequentialSeconds / parallelSeconds);
+        }
+        System.out.println("Overall (sequential): " + sequential.getOverall());
+        System.out.println("Overall (parallel):   " + parallel.getOverall());
+    }
+}
@@ -0,0 +1,200 @@
+package ccrm.bench;
+
+import ccrm.http.ApiServer;
+import ccrm.http.JsonParser;
+import ccrm.metrics.LatencyHistogram;
+import ccrm.service.CourseService;
+import ccrm.service.StudentService;
+import ccrm.util.TestDataGenerator;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load test of the HTTP API: each client thread sends a request,
+ * waits for the answer and sends the next. Three quarters of the requests read
+ * a student and the rest read a course. With {@code --writes}, a twelfth of the
+ * requests instead enroll a student in a course, grade it and drop it again;
+ * writes are opt-in because against a real server they change journaled data.
+ * Student IDs are read from {@code GET /api/students} pages before the run, so
+ * any dataset works. Reports requests per second and latency percentiles as
+ * the client sees them, after a warm-up of a fifth of the run. Without a base
+ * URL the server runs in-process on generated data and without a journal, so
+ * the figures measure request handling rather than fsyncs.
+ * Usage: {@code java ccrm.bench.HttpLoadBenchmark [--writes] [clients] [seconds] [students] [baseUrl]}
+ * (defaults 16, 10, 10000, in-process).
+ */
+public class HttpLoadBenchmark {
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+    
+    // IDs sampled for reads; the first pages of a large dataset are enough
+    private static final int MAX_STUDENT_IDS = 100_000;
+    private static final int PAGE_SIZE = 1000;
+    
+    private static final LatencyHistogram LATENCY = new LatencyHistogram();
+    private static final LongAdder SUCCEEDED = new LongAdder();
+    private static final LongAdder REJECTED = new LongAdder();
+    private static final LongAdder FAILED = new LongAdder();
+    private static volatile boolean measuring;
+    private static volatile boolean running = true;
+    
+    public static void main(String[] args) throws Exception {
+        boolean writes = args.length > 0 && "--writes".equals(args[0]);
+        if (writes) {
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int students = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        
+        ApiServer server = null;
+        String baseUrl;
+        if (args.length > 3) {
+            baseUrl = args[3].endsWith("/") ? args[3].substring(0, args[3].length() - 1) : args[3];
+        } else {
+            StudentService studentService = new StudentService(true);
+            CourseService courseService = new CourseService(true);
+            TestDataGenerator.generateTestData(studentService, courseService, 42L, students, Math.max(10, students / 100));
+            server = new ApiServer(studentService, courseService, 0);
+            server.start();
+            baseUrl = "http://localhost:" + server.getPort() + "/api";
+            System.out.printf("In-process server on port %d with %,d students (%s threads)%n",
+                              server.getPort(), students, server.usesVirtualThreads() ? "virtual" : "platform");
+        }
+        
+        try {
+            List<String> studentIds = new ArrayList<>();
+            while (studentIds.size() < MAX_STUDENT_IDS) {
+                List<?> page = (List<?>) JsonParser.parseObject(
+                    get(baseUrl + "/students?offset=" + studentIds.size() + "&limit=" + PAGE_SIZE)).get("students");
+                for (Object student : page) {
+                    studentIds.add((String) ((Map<?, ?>) student).get("id"));
+                }
+                if (page.size() < PAGE_SIZE) {
+                    break;
+                }
+            }
+            List<String> courseCodes = new ArrayList<>();
+            for (Object course : (List<?>) JsonParser.parseObject(get(baseUrl + "/courses")).get("courses")) {
+                courseCodes.add((String) ((Map<?, ?>) course).get("code"));
+            }
+            if (studentIds.isEmpty() || courseCodes.isEmpty()) {
+                throw new IllegalStateException("The server has no students or no courses to query");
+            }
+            System.out.printf("%,d student IDs, %,d courses, %s%n", studentIds.size(), courseCodes.size(),
+                              writes ? "with enroll/grade/drop writes" : "read-only");
+            
+            List<Thread> threads = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                long seed = c;
+                Thread thread = new Thread(() -> clientLoop(baseUrl, studentIds, courseCodes, writes, seed), "load-client-" + c);
+                threads.add(thread);
+                thread.start();
+            }
+            long warmupMillis = seconds * 200L;
+            Thread.sleep(warmupMillis);
+            measuring = true;
+            long start = System.nanoTime();
+            Thread.sleep(seconds * 1000L - warmupMillis);
+            measuring = false;
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            running = false;
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            
+            long requests = LATENCY.getCount();
+            System.out.printf("%d clients, %.1f s measured: %,.0f requests/s (%,d ok, %,d rejected, %,d failed)%n",
+                              clients, elapsed, requests / elapsed, SUCCEEDED.sum(), REJECTED.sum(), FAILED.sum());
+            System.out.printf("latency: p50 %.3f ms  p90 %.3f ms  p99 %.3f ms  p99.9 %.3f ms%n",
+                              LATENCY.getPercentile(50) / 1e6, LATENCY.getPercentile(90) / 1e6,
+                              LATENCY.getPercentile(99) / 1e6, LATENCY.getPercentile(99.9) / 1e6);
+        } finally {
+            if (server != null) {
+                server.stop(0);
+            }
+        }
+    }
+    
+    private static void clientLoop(String baseUrl, List<String> studentIds, List<String> courseCodes,
+                                   boolean writes, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        while (running) {
+            String studentId = studentIds.get(random.nextInt(studentIds.size()));
+            String courseCode = courseCodes.get(random.nextInt(courseCodes.size()));
+            int choice = random.nextInt(12);
+            if (choice < 9) {
+                send(HttpRequest.newBuilder(URI.create(baseUrl + "/students/" + encode(studentId))).GET());
+            } else if (choice < 11 || !writes) {
+                send(HttpRequest.newBuilder(URI.create(baseUrl + "/courses/" + encode(courseCode))).GET());
+            } else {
+                String enrollment = "{\"studentId\":\"" + studentId + "\",\"courseCode\":\"" + courseCode + "\"}";
+                // Already enrolled or over the credit limit comes back as 409 and ends the cycle
+                if (send(json(baseUrl + "/enrollments", "POST", enrollment)) == 201) {
+                    send(json(baseUrl + "/grades", "PUT",
+                              "{\"studentId\":\"" + studentId + "\",\"courseCode\":\"" + courseCode + "\",\"grade\":\"B\"}"));
+                    send(HttpRequest.newBuilder(URI.create(baseUrl + "/enrollments/" + encode(studentId) + "/" + encode(courseCode))).DELETE());
+                }
+            }
+        }
+    }
+    
+    // IDs from a real dataset may hold characters that are not valid in a path
+    private static String encode(String segment) {
+        return URLEncoder.encode(segment, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+    
+    private static HttpRequest.Builder json(String url, String method, String body) {
+        return HttpRequest.newBuilder(URI.create(url))
+            .header("Content-Type", "application/json")
+            .method(method, HttpRequest.BodyPublishers.ofString(body));
+    }
+    
+    // Returns the status code, or -1 when the request did not complete
+    private static int send(HttpRequest.Builder request) {
+        long start = System.nanoTime();
+        int status;
+        try {
+            status = CLIENT.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            status = -1;
+        }
+        if (measuring) {
+            LATENCY.record(System.nanoTime() - start);
+            if (status >= 200 && status < 300) {
+                SUCCEEDED.increment();
+            } else if (status >= 400 && status < 500) {
+                REJECTED.increment();
+            } else {
+                FAILED.increment();
+            }
+        }
+        return status;
+    }
+    
+    private static String get(String url) throws Exception {
+        HttpResponse<String> response = CLIENT.send(HttpRequest.newBuilder(URI.create(url)).GET().build(),
+                                                    HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET " + url + " returned " + response.statusCode());
+        }
+        return response.body();
+    }
+}
@@ -0,0 +1,81 @@
+package ccrm.bench;
+
+import ccrm.domain.Course;
+import ccrm.domain.Semester;
+import ccrm.domain.Student;
+import ccrm.io.Journal;
+import ccrm.service.CourseService;
+import ccrm.service.StudentService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures durable mutation throughput through the {@link Journal} at increasing
+ * writer counts. Every change waits for its fsync, so a single writer is bound
+ * by sync latency; with group commit, more writers share each sync and
+ * throughput grows with them.
+ * Usage: {@code java ccrm.bench.JournalBenchmark [operationsPerWriter]} (default 200).
+ */
+public class JournalBenchmark {
+    private static final int[] WRITERS = {1, 4, 16, 64};
+    
+    public static void main(String[] args) throws Exception {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        
+        for (int writers : WRITERS) {
+            run(writers, operations);
+        }
+    }
+    
+    private static void run(int writers, int operations) throws IOException, InterruptedException, ExecutionException {
+        Path file = Files.createTempFile("ccrm-journal-", ".journal");
+        Files.delete(file);
+        StudentService studentService = new StudentService(true);
+        CourseService courseService = new CourseService();
+        Course course = new Course.Builder("CS101", "Introduction to Programming")
+            .credits(3)
+            .semester(Semester.FALL)
+            .department("Computer Science")
+            .build();
+        courseService.addCourse(course);
+        
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        try (Journal journal = Journal.open(file)) {
+            studentService.addChangeListener(journal);
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                tasks.add(() -> {
+                    for (int i = 0; i < operations; i++) {
+                        String id = "S" + writer + "_" + i;
+                        studentService.addStudent(new Student(id, "R" + id, "Student " + id, id + "@university.edu"));
+                        studentService.enrollInCourse(id, course);
+                    }
+                    return null;
+                });
+            }
+            
+            long start = System.nanoTime();
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long records = journal.getRecordCount();
+            long syncs = journal.getSyncCount();
+            System.out.printf("%3d writers: %8.3f s  %,10.0f records/s  %,7d syncs  (%.1f records per sync)%n",
+                              writers, seconds, records / seconds, syncs, (double) records / syncs);
+        } finally {
+            pool.shutdownNow();
+            Files.deleteIfExists(file);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+package ccrm.bench;
+
+import ccrm.io.ImportExportService;
+import ccrm.io.ImportReport;
+import ccrm.io.ParallelCsvImporter;
+import ccrm.service.CourseService;
+import ccrm.service.StudentService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compares the sequential student import with {@link ParallelCsvImporter} at
+ * increasing thread counts, to show how import time scales with cores.
+ * Usage: {@code java ccrm.bench.ParallelImportBenchmark [rows]} (default 2,000,000).
+ */
+public class ParallelImportBenchmark {
+    private static final int ROUNDS = 3;
+    
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        
+        Path file = Files.createTempFile("ccrm-students-", ".csv");
+        try {
+            CsvImportBenchmark.writeStudents(file, rows);
+            System.out.printf("File: %s (%d rows, %,d bytes), %d cores%n", file, rows, Files.size(file), cores);
+            
+            for (int round = 1; round <= ROUNDS; round++) {
+                System.out.println("Round " + round + ":");
+                
+                StudentService sequentialService = new StudentService();
+                long start = System.nanoTime();
+                new ImportExportService(sequentialService, new CourseService()).importStudentsFromCSV(file);
+                print("sequential", rows, System.nanoTime() - start);
+                
+                for (int threads = 1; threads <= cores; threads *= 2) {
+                    runParallel(file, rows, threads);
+                }
+                if (Integer.bitCount(cores) != 1) {
+                    runParallel(file, rows, cores);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    private static void runParallel(Path file, int rows, int threads) throws IOException {
+        StudentService studentService = new StudentService();
+        long start = System.nanoTime();
+        ImportReport report = new ParallelCsvImporter(studentService, new CourseService(), threads).importStudents(file);
+        long elapsed = System.nanoTime() - start;
+        if (report.getImportedCount() != rows) {
+            throw new IllegalStateException("Expected " + rows + " rows, got " + report);
+        }
+        print("parallel x" + threads, rows, elapsed);
+    }
+    
+    private static void print(String name, int rows, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.printf("  %-14s %8.3f s  %,12.0f rows/s%n", name, seconds, rows / seconds);
+    }
+}
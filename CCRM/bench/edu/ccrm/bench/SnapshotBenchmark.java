@@ -0,0 +1,112 @@
+package ccrm.bench;
+
+import ccrm.domain.Course;
+import ccrm.domain.Grade;
+import ccrm.domain.Semester;
+import ccrm.domain.Student;
+import ccrm.io.ImportExportService;
+import ccrm.io.SnapshotService;
+import ccrm.service.CourseService;
+import ccrm.service.StudentService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Compares startup from CSV exports (students, courses and enrollments imported
+ * with validation) against loading a binary {@link SnapshotService} snapshot of
+ * the same state. The CSV path restores less: enrollment dates and grades are
+ * not imported.
+ * Usage: {@code java ccrm.bench.SnapshotBenchmark [students]} (default 1,000,000).
+ */
+public class SnapshotBenchmark {
+    private static final int ROUNDS = 3;
+    private static final int COURSES = 200;
+    private static final int ENROLLMENTS_PER_STUDENT = 2;
+    
+    public static void main(String[] args) throws IOException {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        
+        Path dir = Files.createTempDirectory("ccrm-snapshot-");
+        Path studentsFile = dir.resolve("students.csv");
+        Path coursesFile = dir.resolve("courses.csv");
+        Path enrollmentsFile = dir.resolve("enrollments.csv");
+        Path snapshot = dir.resolve("ccrm.snapshot");
+        try {
+            StudentService studentService = new StudentService();
+            CourseService courseService = new CourseService();
+            populate(studentService, courseService, students);
+            ImportExportService exporter = new ImportExportService(studentService, courseService);
+            exporter.exportStudentsToCSV(studentsFile);
+            exporter.exportCoursesToCSV(coursesFile);
+            exporter.exportEnrollmentsToCSV(enrollmentsFile);
+            
+            long start = System.nanoTime();
+            new SnapshotService(studentService, courseService).save(snapshot);
+            System.out.printf("Snapshot saved in %.3f s%n", (System.nanoTime() - start) / 1e9);
+            long csvBytes = Files.size(studentsFile) + Files.size(coursesFile) + Files.size(enrollmentsFile);
+            System.out.printf("%d students, %d enrollments: CSV %,d bytes, snapshot %,d bytes%n",
+                              students, students * ENROLLMENTS_PER_STUDENT, csvBytes, Files.size(snapshot));
+            studentService = null;
+            courseService = null;
+            exporter = null;
+            
+            for (int round = 1; round <= ROUNDS; round++) {
+                System.out.println("Round " + round + ":");
+                
+                StudentService csvStudents = new StudentService();
+                CourseService csvCourses = new CourseService();
+                ImportExportService importer = new ImportExportService(csvStudents, csvCourses);
+                start = System.nanoTime();
+                importer.importCoursesFromCSV(coursesFile);
+                importer.importStudentsFromCSV(studentsFile);
+                importer.importEnrollmentsFromCSV(enrollmentsFile);
+                print("CSV import", System.nanoTime() - start, csvStudents);
+                csvStudents = null;
+                csvCourses = null;
+                importer = null;
+                
+                StudentService loadedStudents = new StudentService();
+                start = System.nanoTime();
+                new SnapshotService(loadedStudents, new CourseService()).load(snapshot);
+                print("snapshot load", System.nanoTime() - start, loadedStudents);
+            }
+        } finally {
+            for (Path file : new Path[] {studentsFile, coursesFile, enrollmentsFile, snapshot}) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(dir);
+        }
+    }
+    
+    static void populate(StudentService studentService, CourseService courseService, int students) {
+        Semester[] semesters = Semester.values();
+        Grade[] grades = Grade.values();
+        for (int c = 0; c < COURSES; c++) {
+            courseService.addCourse(new Course.Builder("C" + c, "Course Number " + c)
+                .credits(3)
+                .instructor("Instructor " + (c % 40))
+                .semester(semesters[c % semesters.length])
+                .department("Department " + (c % 10))
+                .build());
+        }
+        List<Course> courses = courseService.findAll();
+        for (int i = 0; i < students; i++) {
+            Student student = new Student("S" + i, Long.toString(2_000_000_000L + i),
+                                          "Student Number " + i, "student" + i + "@university.edu");
+            studentService.addStudent(student);
+            for (int e = 0; e < ENROLLMENTS_PER_STUDENT; e++) {
+                Course course = courses.get((i + e * 7) % COURSES);
+                studentService.enrollInCourse(student.getId(), course);
+                studentService.recordGrade(student.getId(), course.getCode(), grades[(i + e) % grades.length]);
+            }
+        }
+    }
+    
+    private static void print(String name, long nanos, StudentService loaded) {
+        double seconds = nanos / 1e9;
+        System.out.printf("  %-16s %8.3f s  (%d students)%n", name, seconds, loaded.findAll().size());
+    }
+}
\ No newline at end of file
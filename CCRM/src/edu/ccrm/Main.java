@@ -1,28 +1,206 @@
 package ccrm;
 
+import ccrm.cli.BatchRunner;
 import ccrm.cli.CLI;
 import ccrm.config.AppConfig;
+import ccrm.http.ApiServer;
+import ccrm.io.Journal;
+import ccrm.io.SnapshotService;
+import ccrm.metrics.MetricsRegistry;
 import ccrm.service.StudentService;
 import ccrm.service.CourseService;
 import ccrm.util.TestDataGenerator;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import javax.management.JMException;
+
 public class Main {
+    /**
+     * Starts the interactive menus, or with {@code --batch <file>} (or
+     * {@code --batch -} for stdin) runs a command script; see {@link BatchRunner}.
+     * {@code --stop-on-error} ends a batch at its first failed command. A batch
+     * with failed commands exits with status 1. {@code --http <port>} serves
+     * the JSON API instead of the menus until the process is stopped; see
+     * {@link ApiServer}.
+     */
     public static void main(String[] args) {
-        System.out.println("Campus Course & Records Manager (CCRM)");
-        System.out.println("======================================");
+        String batchScript = null;
+        boolean stopOnError = false;
+        int httpPort = -1;
+        for (int i = 0; i < args.length; i++) {
+            if ("--batch".equals(args[i]) && i + 1 < args.length) {
+                batchScript = args[++i];
+            } else if ("--stop-on-error".equals(args[i])) {
+                stopOnError = true;
+            } else if ("--http".equals(args[i]) && i + 1 < args.length && args[i + 1].matches("\\d{1,5}")) {
+                httpPort = Integer.parseInt(args[++i]);
+            } else {
+                httpPort = -2;
+                break;
+            }
+        }
+        if (httpPort < -1 || httpPort > 65535 || (httpPort >= 0 && batchScript != null)) {
+            System.err.println("Usage: Main [--batch <file>|- [--stop-on-error]] | [--http <port>]");
+            System.exit(2);
+        }
+        
+        if (batchScript == null) {
+            System.out.println("Campus Course & Records Manager (CCRM)");
+            System.out.println("======================================");
+        }
+        // Scripts parse a batch run's stdout, so its startup messages go to stderr
+        PrintStream status = batchScript == null ? System.out : System.err;
         
         // Load configuration (Singleton)
         AppConfig config = AppConfig.getInstance();
         
-        // Initialize services
-        StudentService studentService = new StudentService();
-        CourseService courseService = new CourseService();
+        // Publish operation metrics over JMX, under the "ccrm" domain
+        try {
+            MetricsRegistry.getInstance().registerMBeans();
+        } catch (JMException e) {
+            System.err.println("Metrics unavailable over JMX: " + e.getMessage());
+        }
+        
+        // Initialize services; the HTTP API calls them from many threads at once
+        boolean concurrent = httpPort >= 0;
+        StudentService studentService = new StudentService(concurrent);
+        CourseService courseService = new CourseService(concurrent);
+        
+        // Restore the last saved snapshot, or start from test data when there is none
+        Path snapshot = config.getSnapshotFile();
+        if (Files.exists(snapshot)) {
+            try {
+                long start = System.currentTimeMillis();
+                new SnapshotService(studentService, courseService).load(snapshot);
+                status.printf("Loaded %d students and %d courses from %s in %d ms%n",
+                                studentService.findAll().size(), courseService.findAll().size(),
+                                snapshot, System.currentTimeMillis() - start);
+            } catch (IOException e) {
+                // Test data plus the journal is not the saved state, and the next snapshot
+                // would overwrite the unreadable one with it, so refuse to start instead
+                System.err.println("Could not load snapshot " + snapshot + ": " + e.getMessage());
+                System.err.println("Restore it from a backup, or move it and the journal aside to start from test data");
+                System.exit(1);
+            }
+        } else {
+            TestDataGenerator.generateTestData(studentService, courseService);
+        }
         
-        // Generate test data
-        TestDataGenerator.generateTestData(studentService, courseService);
+        // Replay changes made since the snapshot; a journal that does not apply cleanly
+        // is left untouched rather than extended
+        try {
+            int replayed = Journal.replay(config.getJournalFile(), studentService, courseService);
+            if (replayed > 0) {
+                status.println("Replayed " + replayed + " journaled changes");
+            }
+        } catch (IOException e) {
+            System.err.println("Could not replay journal " + config.getJournalFile() + ": " + e.getMessage());
+            System.err.println("Restore the matching snapshot, or move the journal (and any .old segment) aside to start without it");
+            System.exit(1);
+        }
         
-        // Initialize and start CLI
-        CLI cli = new CLI(studentService, courseService);
-        cli.start();
+        // Journal every new change
+        Journal journal = null;
+        try {
+            journal = Journal.open(config.getJournalFile());
+            studentService.addChangeListener(journal);
+            courseService.addChangeListener(journal);
+        } catch (IOException e) {
+            System.err.println("Journal unavailable, changes will not survive a restart: " + e.getMessage());
+        }
+        
+        if (httpPort >= 0) {
+            serveHttp(httpPort, studentService, courseService, journal);
+            return;
+        }
+        
+        int exitStatus = 0;
+        try {
+            if (batchScript != null) {
+                exitStatus = runBatch(batchScript, stopOnError, studentService, courseService, journal);
+            } else {
+                // Initialize and start CLI
+                CLI cli = new CLI(studentService, courseService, journal);
+                cli.start();
+            }
+        } finally {
+            closeJournal(journal);
+        }
+        if (exitStatus != 0) {
+            System.exit(exitStatus);
+        }
+    }
+    
+    // The server's dispatcher thread keeps the JVM alive; the hook runs on Ctrl+C or SIGTERM
+    private static void serveHttp(int port, StudentService studentService, CourseService courseService,
+                                  Journal journal) {
+        ApiServer server;
+        try {
+            server = new ApiServer(studentService, courseService, port);
+        } catch (IOException e) {
+            System.err.println("Could not start the HTTP API on port " + port + ": " + e.getMessage());
+            closeJournal(journal);
+            System.exit(1);
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            boolean stopped = server.stop(5);
+            if (!stopped && journal != null) {
+                // Requests still running would race the snapshot; their changes replay from the journal instead
+                System.err.println("Requests still running at shutdown, snapshot not saved; changes stay in the journal");
+            }
+            // Fold the journal into a snapshot, so it does not grow across runs and the next start replays nothing
+            if (stopped && journal != null) {
+                Path snapshot = AppConfig.getInstance().getSnapshotFile();
+                try {
+                    journal.checkpoint(() -> new SnapshotService(studentService, courseService).save(snapshot));
+                    System.out.println("Snapshot saved to: " + snapshot);
+                } catch (IOException e) {
+                    System.err.println("Could not save snapshot, changes stay in the journal: " + e.getMessage());
+                }
+            }
+            closeJournal(journal);
+        }, "ccrm-shutdown"));
+        server.start();
+        System.out.printf("HTTP API listening on http://localhost:%d/api/ (%s threads), Ctrl+C to stop%n",
+                          server.getPort(), server.usesVirtualThreads() ? "virtual" : "platform");
+    }
+    
+    private static void closeJournal(Journal journal) {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Error closing journal: " + e.getMessage());
+            }
+        }
+    }
+    
+    private static int runBatch(String script, boolean stopOnError, StudentService studentService,
+                                CourseService courseService, Journal journal) {
+        // Buffered rather than flushed per line, so thousands of status lines stay cheap
+        PrintWriter out = new PrintWriter(new BufferedWriter(
+            new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16));
+        try (Reader reader = "-".equals(script)
+                 ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                 : Files.newBufferedReader(Paths.get(script), StandardCharsets.UTF_8);
+             BatchRunner runner = new BatchRunner(studentService, courseService, journal, out)) {
+            BatchRunner.Summary summary = runner.stopOnError(stopOnError).run(reader);
+            return summary.getFailedCount() > 0 ? 1 : 0;
+        } catch (IOException e) {
+            System.err.println("Could not read batch script: " + e.getMessage());
+            return 2;
+        }
     }
 }
\ No newline at end of file
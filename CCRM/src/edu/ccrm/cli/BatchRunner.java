@@ -0,0 +1,303 @@
+package ccrm.cli;
+
+import ccrm.domain.Course;
+import ccrm.domain.Grade;
+import ccrm.domain.Semester;
+import ccrm.domain.Student;
+import ccrm.service.BulkEnrollment;
+import ccrm.service.CourseService;
+import ccrm.service.StudentService;
+import ccrm.io.BackupService;
+import ccrm.io.ImportExportService;
+import ccrm.io.ImportReport;
+import ccrm.io.Journal;
+import ccrm.io.SnapshotService;
+import ccrm.config.AppConfig;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Runs CLI operations from a script instead of the menus: one command per
+ * line, executed back to back against the same services, with one status line
+ * per command and a summary at the end. Blank lines and lines starting with
+ * {@code #} are skipped; arguments containing spaces go in double quotes.
+ * <pre>
+ * add-student S100 2024100 "Ada Lovelace" ada@university.edu
+ * enroll S100 CS101
+ * grade S100 CS101 A
+ * </pre>
+ * File arguments are resolved against the data directory, as in the menus.
+ * Changes are journaled exactly as they are from the menus.
+ */
+public class BatchRunner implements Closeable {
+    // Usage by command name; also gives each command's argument count
+    private static final Map<String, String> USAGE = new LinkedHashMap<>();
+    
+    static {
+        for (String usage : new String[] {
+            "add-student <id> <regNo> <fullName> <email>",
+            "update-student <id> <fullName|-> <email|->",
+            "deactivate-student <id>",
+            "add-course <code> <title> <credits> <instructor> <semester> <department>",
+            "deactivate-course <code>",
+            "enroll <studentId> <courseCode>",
+            "unenroll <studentId> <courseCode>",
+            "grade <studentId> <courseCode> <grade>",
+            "transcript <studentId>",
+            "import-students <file>",
+            "import-courses <file>",
+            "import-enrollments <file>",
+            "export <directory>",
+            "backup",
+            "snapshot"
+        }) {
+            USAGE.put(usage.split(" ")[0], usage);
+        }
+    }
+    
+    private final StudentService studentService;
+    private final CourseService courseService;
+    private final ImportExportService importExportService;
+    private final BackupService backupService;
+    private final SnapshotService snapshotService;
+    // Null when running without a journal
+    private final Journal journal;
+    private final AppConfig config;
+    private final PrintWriter out;
+    private boolean stopOnError;
+    
+    public BatchRunner(StudentService studentService, CourseService courseService, Journal journal, PrintWriter out) {
+        this.studentService = studentService;
+        this.courseService = courseService;
+        this.importExportService = new ImportExportService(studentService, courseService);
+        this.backupService = new BackupService(importExportService);
+        this.snapshotService = new SnapshotService(studentService, courseService);
+        this.journal = journal;
+        this.config = AppConfig.getInstance();
+        this.out = out;
+    }
+    
+    /** Stops at the first failed command instead of running the rest of the script. */
+    public BatchRunner stopOnError(boolean stopOnError) {
+        this.stopOnError = stopOnError;
+        return this;
+    }
+    
+    /** Releases the change listeners the runner registered on the services. */
+    @Override
+    public void close() {
+        backupService.close();
+    }
+    
+    public static class Summary {
+        private final int commandCount;
+        private final int failedCount;
+        private final long elapsedMillis;
+        
+        Summary(int commandCount, int failedCount, long elapsedMillis) {
+            this.commandCount = commandCount;
+            this.failedCount = failedCount;
+            this.elapsedMillis = elapsedMillis;
+        }
+        
+        public int getCommandCount() { return commandCount; }
+        public int getFailedCount() { return failedCount; }
+        public long getElapsedMillis() { return elapsedMillis; }
+        
+        @Override
+        public String toString() {
+            return String.format("%d commands in %d ms: %d ok, %d failed",
+                                 commandCount, elapsedMillis, commandCount - failedCount, failedCount);
+        }
+    }
+    
+    /**
+     * Runs every command in the script and prints {@code OK} or
+     * {@code FAILED} with the line number for each. Output is flushed when the
+     * script ends rather than per command.
+     */
+    public Summary run(Reader script) throws IOException {
+        BufferedReader reader = script instanceof BufferedReader ? (BufferedReader) script : new BufferedReader(script);
+        long start = System.currentTimeMillis();
+        int commands = 0;
+        int failed = 0;
+        int lineNumber = 0;
+        String line;
+        try {
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                commands++;
+                try {
+                    String result = execute(tokenize(trimmed));
+                    if (result.indexOf('\n') >= 0) {
+                        // Multi-line results, such as transcripts, follow the status line
+                        out.println("OK     line " + lineNumber + ": " + trimmed);
+                        out.println(result);
+                    } else {
+                        out.println("OK     line " + lineNumber + ": " + trimmed + (result.isEmpty() ? "" : " - " + result));
+                    }
+                } catch (IOException | RuntimeException e) {
+                    failed++;
+                    String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                    out.println("FAILED line " + lineNumber + ": " + trimmed + " - " + message);
+                    if (stopOnError) {
+                        out.println("Stopped at the first failure");
+                        break;
+                    }
+                }
+            }
+            Summary summary = new Summary(commands, failed, System.currentTimeMillis() - start);
+            out.println(summary);
+            return summary;
+        } finally {
+            out.flush();
+        }
+    }
+    
+    // Returns a short result to show after OK, or an empty string
+    private String execute(List<String> args) throws IOException {
+        String command = args.get(0);
+        String usage = USAGE.get(command);
+        if (usage == null) {
+            throw new IllegalArgumentException("Unknown command: " + command);
+        }
+        if (args.size() != usage.split(" ").length) {
+            throw new IllegalArgumentException("Usage: " + usage);
+        }
+        switch (command) {
+            case "add-student":
+                studentService.addStudent(new Student(args.get(1), args.get(2), args.get(3), args.get(4)));
+                return "";
+            case "update-student":
+                studentService.updateStudent(args.get(1), optional(args.get(2)), optional(args.get(3)));
+                return "";
+            case "deactivate-student":
+                studentService.deactivateStudent(args.get(1));
+                return "";
+            case "add-course":
+                courseService.addCourse(new Course.Builder(args.get(1), args.get(2))
+                    .credits(parseInt(args.get(3), "credits"))
+                    .instructor(args.get(4))
+                    .semester(parseEnum(Semester.class, args.get(5), "semester"))
+                    .department(args.get(6))
+                    .build());
+                return "";
+            case "deactivate-course":
+                courseService.deactivateCourse(args.get(1));
+                return "";
+            case "enroll":
+                Course course = courseService.findById(args.get(2))
+                    .orElseThrow(() -> new IllegalArgumentException("Course with code " + args.get(2) + " not found"));
+                studentService.enrollInCourse(args.get(1), course);
+                return "";
+            case "unenroll":
+                return studentService.unenrollFromCourse(args.get(1), args.get(2)) ? "" : "was not enrolled";
+            case "grade":
+                studentService.recordGrade(args.get(1), args.get(2), parseEnum(Grade.class, args.get(3), "grade"));
+                return "";
+            case "transcript":
+                return studentService.generateTranscript(args.get(1)).trim();
+            case "import-students":
+                return describe(importExportService.importStudentsFromCSVParallel(dataFile(args.get(1))));
+            case "import-courses":
+                return describe(importExportService.importCoursesFromCSVParallel(dataFile(args.get(1))));
+            case "import-enrollments":
+                BulkEnrollment.Report report = importExportService.importEnrollmentsFromCSV(dataFile(args.get(1)));
+                return report.getEnrolledCount() + " enrolled, " + report.getFailedCount() + " failed";
+            case "export":
+                Path directory = dataFile(args.get(1));
+                Files.createDirectories(directory);
+                importExportService.exportStudentsToCSV(directory.resolve("students.csv"));
+                importExportService.exportCoursesToCSV(directory.resolve("courses.csv"));
+                importExportService.exportEnrollmentsToCSV(directory.resolve("enrollments.csv"));
+                return directory.toString();
+            case "backup":
+                return backupService.createBackup().toString();
+            case "snapshot":
+                Path snapshot = config.getSnapshotFile();
+                if (journal != null) {
+                    // The snapshot now holds every journaled change, so the journal starts over
+                    journal.checkpoint(() -> snapshotService.save(snapshot));
+                } else {
+                    snapshotService.save(snapshot);
+                }
+                return snapshot.toString();
+            default:
+                throw new IllegalStateException("No handler for command: " + command);
+        }
+    }
+    
+    /** Splits on whitespace; double quotes group words into one argument and may enclose an empty one. */
+    static List<String> tokenize(String line) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        boolean inToken = false;
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                inToken = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (inToken) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                    inToken = false;
+                }
+            } else {
+                token.append(c);
+                inToken = true;
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quote");
+        }
+        if (inToken) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+    
+    private Path dataFile(String name) {
+        return config.getDataDirectory().resolve(name);
+    }
+    
+    private static String optional(String value) {
+        return "-".equals(value) ? null : value;
+    }
+    
+    private static int parseInt(String value, String name) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+    
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value, String name) {
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+    
+    private static String describe(ImportReport report) {
+        return report.getImportedCount() + " imported, " + report.getSkippedCount() + " skipped";
+    }
+}
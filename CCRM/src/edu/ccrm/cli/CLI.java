@@ -2,33 +2,66 @@ package ccrm.cli;
 
 import ccrm.domain.Student;
 import ccrm.domain.Course;
+import ccrm.domain.Enrollment;
 import ccrm.domain.Semester;
 import ccrm.domain.Grade;
+import ccrm.service.BulkEnrollment;
 import ccrm.service.StudentService;
+import ccrm.service.TrigramIndex;
 import ccrm.service.CourseService;
+import ccrm.service.FuzzySearchIndex;
+import ccrm.service.GpaAnalytics;
+import ccrm.service.GpaStatistics;
+import ccrm.service.GradeDistributionCounters;
+import ccrm.service.RankingService;
 import ccrm.io.ImportExportService;
+import ccrm.io.ArchiveQueryService;
 import ccrm.io.BackupService;
+import ccrm.io.ImportReport;
+import ccrm.io.Journal;
+import ccrm.io.SnapshotService;
+import ccrm.metrics.Counter;
+import ccrm.metrics.MetricsRegistry;
+import ccrm.metrics.Timer;
 import ccrm.config.AppConfig;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Optional;
 import java.util.Scanner;
 
 public class CLI {
     private final Scanner scanner;
     private final StudentService studentService;
     private final CourseService courseService;
+    private final RankingService rankingService;
+    private final GradeDistributionCounters gradeCounters;
+    private final GpaAnalytics gpaAnalytics;
+    private final FuzzySearchIndex fuzzySearchIndex;
     private final ImportExportService importExportService;
     private final BackupService backupService;
+    private final SnapshotService snapshotService;
+    // Null when running without a journal
+    private final Journal journal;
     private final AppConfig config;
     
     public CLI(StudentService studentService, CourseService courseService) {
+        this(studentService, courseService, null);
+    }
+    
+    public CLI(StudentService studentService, CourseService courseService, Journal journal) {
         this.scanner = new Scanner(System.in);
         this.studentService = studentService;
         this.courseService = courseService;
+        this.rankingService = new RankingService(studentService, courseService);
+        this.gradeCounters = GradeDistributionCounters.attach(studentService, courseService);
+        this.gpaAnalytics = new GpaAnalytics(studentService);
+        this.fuzzySearchIndex = FuzzySearchIndex.attach(studentService, courseService);
         this.importExportService = new ImportExportService(studentService, courseService);
         this.backupService = new BackupService(importExportService);
+        this.snapshotService = new SnapshotService(studentService, courseService);
+        this.journal = journal;
         this.config = AppConfig.getInstance();
     }
     
@@ -65,6 +98,9 @@ public class CLI {
                     printJavaPlatformInfo();
                     break;
                 case 9:
+                    viewMetrics();
+                    break;
+                case 10:
                     running = false;
                     System.out.println("Thank you for using CCRM. Goodbye!");
                     break;
@@ -74,6 +110,8 @@ public class CLI {
         }
         
         scanner.close();
+        backupService.close();
+        gradeCounters.detach();
     }
     
     private void printMainMenu() {
@@ -86,7 +124,8 @@ public class CLI {
         System.out.println("6. Backup Operations");
         System.out.println("7. Generate Reports");
         System.out.println("8. Java Platform Info");
-        System.out.println("9. Exit");
+        System.out.println("9. Metrics");
+        System.out.println("10. Exit");
     }
     
     private void manageStudents() {
@@ -206,6 +245,7 @@ public class CLI {
         System.out.println("1. Search by Name");
         System.out.println("2. Search by Email");
         System.out.println("3. Search Active Students");
+        System.out.println("4. Fuzzy Search by Name or Email (active students)");
         
         int choice = getIntInput("Enter your choice: ");
         
@@ -223,6 +263,9 @@ public class CLI {
             case 3:
                 results = studentService.search(Student::isActive);
                 break;
+            case 4:
+                printMatches(fuzzySearchIndex.searchStudents(getStringInput("Enter search text: "), 10));
+                return;
             default:
                 System.out.println("Invalid choice.");
                 return;
@@ -369,6 +412,7 @@ public class CLI {
         System.out.println("2. Search by Department");
         System.out.println("3. Search by Semester");
         System.out.println("4. Search Active Courses");
+        System.out.println("5. Fuzzy Search by Title (active courses)");
         
         int choice = getIntInput("Enter your choice: ");
         
@@ -395,6 +439,9 @@ public class CLI {
             case 4:
                 results = courseService.search(Course::isActive);
                 break;
+            case 5:
+                printMatches(fuzzySearchIndex.searchCourses(getStringInput("Enter search text: "), 10));
+                return;
             default:
                 System.out.println("Invalid choice.");
                 return;
@@ -407,6 +454,15 @@ public class CLI {
         }
     }
     
+    private void printMatches(List<? extends TrigramIndex.Match<?>> matches) {
+        if (matches.isEmpty()) {
+            System.out.println("No matches found.");
+        } else {
+            // Best match first, with the share of the search text it matched
+            matches.forEach(System.out::println);
+        }
+    }
+    
     private void manageEnrollments() {
         boolean backToMain = false;
         
@@ -415,7 +471,8 @@ public class CLI {
             System.out.println("1. Enroll Student in Course");
             System.out.println("2. Unenroll Student from Course");
             System.out.println("3. List All Enrollments");
-            System.out.println("4. Back to Main Menu");
+            System.out.println("4. View Course Roster");
+            System.out.println("5. Back to Main Menu");
             
             int choice = getIntInput("Enter your choice: ");
             
@@ -430,6 +487,9 @@ public class CLI {
                     listAllEnrollments();
                     break;
                 case 4:
+                    viewCourseRoster();
+                    break;
+                case 5:
                     backToMain = true;
                     break;
                 default:
@@ -460,11 +520,7 @@ public class CLI {
         String courseCode = getStringInput("Course Code: ");
         
         try {
-            Student student = studentService.findById(studentId)
-                .orElseThrow(() -> new IllegalArgumentException("Student not found"));
-            
-            boolean removed = student.getEnrollments().removeIf(e -> 
-                e.getCourse().getCode().equals(courseCode));
+            boolean removed = studentService.unenrollFromCourse(studentId, courseCode);
             
             if (removed) {
                 System.out.println("Student unenrolled successfully!");
@@ -494,6 +550,24 @@ public class CLI {
         }
     }
     
+    private void viewCourseRoster() {
+        System.out.println("\n--- Course Roster ---");
+        String courseCode = getStringInput("Course Code: ");
+        
+        try {
+            List<Enrollment> roster = courseService.getRoster(courseCode);
+            
+            if (roster.isEmpty()) {
+                System.out.println("No students enrolled in this course.");
+            } else {
+                System.out.println(roster.size() + " student(s) enrolled:");
+                roster.forEach(System.out::println);
+            }
+        } catch (Exception e) {
+            System.out.println("Error viewing roster: " + e.getMessage());
+        }
+    }
+    
     private void manageGrades() {
         boolean backToMain = false;
         
@@ -544,12 +618,40 @@ public class CLI {
     
     private void viewGradeDistribution() {
         System.out.println("\n--- Grade Distribution ---");
+        System.out.println("1. All Courses");
+        System.out.println("2. By Course");
+        System.out.println("3. By Department");
+        System.out.println("4. By Semester");
+        
+        int choice = getIntInput("Enter your choice: ");
         
-        // Using Stream API to aggregate grade distribution
-        long totalEnrollments = studentService.findAll().stream()
-            .flatMap(student -> student.getEnrollments().stream())
-            .filter(enrollment -> enrollment.getGrade() != null)
-            .count();
+        // Live counters, so each report is a read rather than a scan of the enrollments
+        java.util.Map<Grade, Long> distribution;
+        switch (choice) {
+            case 1:
+                distribution = gradeCounters.getDistribution();
+                break;
+            case 2:
+                distribution = gradeCounters.getDistributionByCourse(getStringInput("Course Code: "));
+                break;
+            case 3:
+                distribution = gradeCounters.getDistributionByDepartment(getStringInput("Department: "));
+                break;
+            case 4:
+                try {
+                    distribution = gradeCounters.getDistributionBySemester(
+                        Semester.valueOf(getStringInput("Semester: ").toUpperCase()));
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Invalid semester.");
+                    return;
+                }
+                break;
+            default:
+                System.out.println("Invalid choice.");
+                return;
+        }
+        
+        long totalEnrollments = distribution.values().stream().mapToLong(Long::longValue).sum();
         
         if (totalEnrollments == 0) {
             System.out.println("No grades recorded yet.");
@@ -558,10 +660,7 @@ public class CLI {
         
         System.out.println("Grade distribution:");
         for (Grade grade : Grade.values()) {
-            long count = studentService.findAll().stream()
-                .flatMap(student -> student.getEnrollments().stream())
-                .filter(enrollment -> enrollment.getGrade() == grade)
-                .count();
+            long count = distribution.getOrDefault(grade, 0L);
             
             double percentage = (double) count / totalEnrollments * 100;
             System.out.printf("%s: %d (%.1f%%)%n", grade, count, percentage);
@@ -578,7 +677,8 @@ public class CLI {
             System.out.println("3. Export Students to CSV");
             System.out.println("4. Export Courses to CSV");
             System.out.println("5. Export Enrollments to CSV");
-            System.out.println("6. Back to Main Menu");
+            System.out.println("6. Import Enrollments from CSV");
+            System.out.println("7. Back to Main Menu");
             
             int choice = getIntInput("Enter your choice: ");
             
@@ -599,6 +699,9 @@ public class CLI {
                     exportEnrollments();
                     break;
                 case 6:
+                    importEnrollments();
+                    break;
+                case 7:
                     backToMain = true;
                     break;
                 default:
@@ -612,9 +715,15 @@ public class CLI {
         String filename = getStringInput("CSV filename (in data directory): ");
         Path filePath = config.getDataDirectory().resolve(filename);
         
+        String parallel = getStringInput("Use parallel import for large files? (y/N): ");
+        
         try {
-            importExportService.importStudentsFromCSV(filePath);
-            System.out.println("Students imported successfully!");
+            if (parallel.equalsIgnoreCase("y")) {
+                printImportReport(importExportService.importStudentsFromCSVParallel(filePath));
+            } else {
+                importExportService.importStudentsFromCSV(filePath);
+                System.out.println("Students imported successfully!");
+            }
         } catch (IOException e) {
             System.out.println("Error importing students: " + e.getMessage());
         }
@@ -625,14 +734,46 @@ public class CLI {
         String filename = getStringInput("CSV filename (in data directory): ");
         Path filePath = config.getDataDirectory().resolve(filename);
         
+        String parallel = getStringInput("Use parallel import for large files? (y/N): ");
+        
         try {
-            importExportService.importCoursesFromCSV(filePath);
-            System.out.println("Courses imported successfully!");
+            if (parallel.equalsIgnoreCase("y")) {
+                printImportReport(importExportService.importCoursesFromCSVParallel(filePath));
+            } else {
+                importExportService.importCoursesFromCSV(filePath);
+                System.out.println("Courses imported successfully!");
+            }
         } catch (IOException e) {
             System.out.println("Error importing courses: " + e.getMessage());
         }
     }
     
+    private void printImportReport(ImportReport report) {
+        System.out.println(report);
+        report.getProblems().stream()
+            .limit(20)
+            .forEach(problem -> System.out.println("  " + problem));
+        if (report.getSkippedCount() > 20) {
+            System.out.println("  ... and " + (report.getSkippedCount() - 20) + " more");
+        }
+    }
+    
+    private void importEnrollments() {
+        System.out.println("\n--- Import Enrollments from CSV ---");
+        String filename = getStringInput("CSV filename (in data directory): ");
+        Path filePath = config.getDataDirectory().resolve(filename);
+        
+        try {
+            BulkEnrollment.Report report = importExportService.importEnrollmentsFromCSV(filePath);
+            System.out.println(report);
+            report.getRows().stream()
+                .filter(row -> !row.isSuccess())
+                .forEach(System.out::println);
+        } catch (IOException e) {
+            System.out.println("Error importing enrollments: " + e.getMessage());
+        }
+    }
+    
     private void exportStudents() {
         System.out.println("\n--- Export Students to CSV ---");
         String filename = getStringInput("CSV filename: ");
@@ -680,7 +821,13 @@ public class CLI {
             System.out.println("1. Create Backup");
             System.out.println("2. Show Backup Size");
             System.out.println("3. List Backup Files");
-            System.out.println("4. Back to Main Menu");
+            System.out.println("4. Create Incremental Backup");
+            System.out.println("5. Rebuild Full Backup from Chain");
+            System.out.println("6. Create Compressed Archive Backup");
+            System.out.println("7. Extract Archive Backup");
+            System.out.println("8. Save Startup Snapshot");
+            System.out.println("9. Query Backup (read-only)");
+            System.out.println("10. Back to Main Menu");
             
             int choice = getIntInput("Enter your choice: ");
             
@@ -695,6 +842,24 @@ public class CLI {
                     listBackupFiles();
                     break;
                 case 4:
+                    createIncrementalBackup();
+                    break;
+                case 5:
+                    rebuildFullBackup();
+                    break;
+                case 6:
+                    createArchiveBackup();
+                    break;
+                case 7:
+                    extractArchiveBackup();
+                    break;
+                case 8:
+                    saveSnapshot();
+                    break;
+                case 9:
+                    queryBackup();
+                    break;
+                case 10:
                     backToMain = true;
                     break;
                 default:
@@ -716,6 +881,150 @@ public class CLI {
         }
     }
     
+    private void createIncrementalBackup() {
+        System.out.println("\n--- Create Incremental Backup ---");
+        
+        try {
+            Path previous = backupService.getLastBackup();
+            Path backupDir = backupService.createIncrementalBackup();
+            long size = backupService.getBackupSize(backupDir);
+            if (previous == null) {
+                System.out.println("No previous backup in this session; created a full backup instead.");
+            }
+            System.out.println("Backup created successfully at: " + backupDir);
+            System.out.println("Backup size: " + size + " bytes");
+        } catch (IOException e) {
+            System.out.println("Error creating backup: " + e.getMessage());
+        }
+    }
+    
+    private void rebuildFullBackup() {
+        System.out.println("\n--- Rebuild Full Backup from Chain ---");
+        
+        String name = getStringInput("Backup directory name (latest in the chain): ");
+        try {
+            Path rebuilt = backupService.rebuildFullBackup(config.getBackupDirectory().resolve(name));
+            System.out.println("Full backup rebuilt at: " + rebuilt);
+        } catch (IOException e) {
+            System.out.println("Error rebuilding backup: " + e.getMessage());
+        }
+    }
+    
+    private void createArchiveBackup() {
+        System.out.println("\n--- Create Compressed Archive Backup ---");
+        
+        int level = getIntInput("Compression level (1-9, 6 is a good default): ");
+        if (level < 1 || level > 9) {
+            System.out.println("Compression level must be between 1 and 9.");
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            Path archive = backupService.createArchiveBackup(level);
+            long elapsed = System.currentTimeMillis() - start;
+            System.out.println("Archive created successfully at: " + archive);
+            System.out.println("Archive size: " + backupService.getBackupSize(archive) + " bytes (" + elapsed + " ms)");
+        } catch (IOException e) {
+            System.out.println("Error creating archive: " + e.getMessage());
+        }
+    }
+    
+    private void extractArchiveBackup() {
+        System.out.println("\n--- Extract Archive Backup ---");
+        
+        String name = getStringInput("Archive file name: ");
+        try {
+            Path backupDir = backupService.extractArchiveBackup(config.getBackupDirectory().resolve(name));
+            System.out.println("Archive extracted to: " + backupDir);
+        } catch (IOException e) {
+            System.out.println("Error extracting archive: " + e.getMessage());
+        }
+    }
+    
+    private void saveSnapshot() {
+        System.out.println("\n--- Save Startup Snapshot ---");
+        
+        try {
+            Path snapshot = config.getSnapshotFile();
+            long start = System.currentTimeMillis();
+            if (journal != null) {
+                // The snapshot now holds every journaled change, so the journal starts over
+                journal.checkpoint(() -> snapshotService.save(snapshot));
+            } else {
+                snapshotService.save(snapshot);
+            }
+            System.out.println("Snapshot saved to: " + snapshot + " (" + java.nio.file.Files.size(snapshot)
+                             + " bytes, " + (System.currentTimeMillis() - start) + " ms)");
+            System.out.println("It will be loaded the next time the application starts.");
+        } catch (IOException e) {
+            System.out.println("Error saving snapshot: " + e.getMessage());
+        }
+    }
+    
+    private void queryBackup() {
+        System.out.println("\n--- Query Backup (read-only) ---");
+        
+        String name = getStringInput("Backup directory name: ");
+        ArchiveQueryService archive;
+        try {
+            long start = System.currentTimeMillis();
+            archive = ArchiveQueryService.open(config.getBackupDirectory().resolve(name));
+            System.out.println("Opened " + archive.getStudentCount() + " students and " + archive.getEnrollmentCount()
+                             + " enrollments in " + (System.currentTimeMillis() - start) + " ms");
+        } catch (IOException e) {
+            System.out.println("Error opening backup: " + e.getMessage());
+            return;
+        }
+        
+        boolean back = false;
+        while (!back) {
+            System.out.println("\n=== Query " + name + " ===");
+            System.out.println("1. Find Student by ID");
+            System.out.println("2. Search Students by Name");
+            System.out.println("3. Grade Distribution");
+            System.out.println("4. Enrollments per Course");
+            System.out.println("5. Back");
+            
+            int choice = getIntInput("Enter your choice: ");
+            
+            switch (choice) {
+                case 1: {
+                    String id = getStringInput("Student ID: ");
+                    Optional<ArchiveQueryService.StudentRecord> student = archive.findById(id);
+                    if (student.isPresent()) {
+                        System.out.println(student.get());
+                        archive.getEnrollments(id).forEach(e -> System.out.println("  " + e));
+                        System.out.printf("  GPA: %.2f%n", archive.calculateGPA(id));
+                    } else {
+                        System.out.println("Student not found.");
+                    }
+                    break;
+                }
+                case 2: {
+                    String text = getStringInput("Name contains: ").toLowerCase();
+                    List<ArchiveQueryService.StudentRecord> matches =
+                        archive.search(s -> s.getFullName().toLowerCase().contains(text));
+                    matches.forEach(System.out::println);
+                    System.out.println(matches.size() + " students found.");
+                    break;
+                }
+                case 3:
+                    archive.getGradeDistribution().forEach((grade, count) ->
+                        System.out.println(grade + ": " + count));
+                    break;
+                case 4:
+                    archive.getEnrollmentCountByCourse().forEach((code, count) ->
+                        System.out.println(code + ": " + count + " students"));
+                    break;
+                case 5:
+                    back = true;
+                    break;
+                default:
+                    System.out.println("Invalid choice. Please try again.");
+            }
+        }
+    }
+    
     private void showBackupSize() {
         System.out.println("\n--- Show Backup Size ---");
         
@@ -770,6 +1079,7 @@ public class CLI {
         System.out.println("1. Top Students by GPA");
         System.out.println("2. Course Enrollment Statistics");
         System.out.println("3. Department Statistics");
+        System.out.println("4. GPA Analytics");
         
         int choice = getIntInput("Enter your choice: ");
         
@@ -783,6 +1093,9 @@ public class CLI {
             case 3:
                 generateDepartmentStatistics();
                 break;
+            case 4:
+                generateGpaAnalytics();
+                break;
             default:
                 System.out.println("Invalid choice.");
         }
@@ -790,35 +1103,64 @@ public class CLI {
     
     private void generateTopStudentsReport() {
         System.out.println("\n--- Top Students by GPA ---");
+        System.out.println("1. Overall");
+        System.out.println("2. By Department");
+        System.out.println("3. By Semester");
+        System.out.println("4. By Course");
         
-        List<Student> topStudents = studentService.findAll().stream()
-            .filter(Student::isActive)
-            .filter(s -> s.calculateGPA() > 0)
-            .sorted((s1, s2) -> Double.compare(s2.calculateGPA(), s1.calculateGPA()))
-            .limit(10)
-            .collect(java.util.stream.Collectors.toList());
+        int choice = getIntInput("Enter your choice: ");
         
-        if (topStudents.isEmpty()) {
-            System.out.println("No students with GPA data found.");
-        } else {
-            System.out.println("Top 10 Students by GPA:");
-            for (int i = 0; i < topStudents.size(); i++) {
-                Student student = topStudents.get(i);
-                System.out.printf("%d. %s - GPA: %.2f%n", 
-                    i + 1, student.getFullName(), student.calculateGPA());
+        try {
+            List<RankingService.RankedStudent> topStudents;
+            String scope;
+            switch (choice) {
+                case 1:
+                    topStudents = rankingService.topByGpa(10);
+                    scope = "";
+                    break;
+                case 2:
+                    String department = getStringInput("Department: ");
+                    topStudents = rankingService.topByDepartment(department, 10);
+                    scope = " in " + department;
+                    break;
+                case 3:
+                    Semester semester = Semester.valueOf(getStringInput("Semester: ").toUpperCase());
+                    topStudents = rankingService.topBySemester(semester, 10);
+                    scope = " in " + semester;
+                    break;
+                case 4:
+                    String code = getStringInput("Course Code: ");
+                    topStudents = rankingService.topByCourse(code, 10);
+                    scope = " in " + code;
+                    break;
+                default:
+                    System.out.println("Invalid choice.");
+                    return;
             }
+            
+            if (topStudents.isEmpty()) {
+                System.out.println("No students with GPA data found.");
+            } else {
+                System.out.println("Top 10 Students by GPA" + scope + ":");
+                // GPAs were computed once while ranking; print the stored values
+                for (int i = 0; i < topStudents.size(); i++) {
+                    System.out.printf("%d. %s%n", i + 1, topStudents.get(i));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error generating report: " + e.getMessage());
         }
     }
     
     private void generateEnrollmentStatistics() {
         System.out.println("\n--- Course Enrollment Statistics ---");
         
-        // Using Stream API to aggregate enrollment data
-        var enrollmentStats = studentService.findAll().stream()
-            .flatMap(student -> student.getEnrollments().stream())
+        // Using Stream API over the course rosters, which already hold per-course counts
+        var enrollmentStats = courseService.findAll().stream()
+            .filter(course -> course.getEnrollmentCount() > 0)
             .collect(java.util.stream.Collectors.groupingBy(
-                enrollment -> enrollment.getCourse().getTitle(),
-                java.util.stream.Collectors.counting()
+                Course::getTitle,
+                java.util.stream.Collectors.summingLong(Course::getEnrollmentCount)
             ));
         
         if (enrollmentStats.isEmpty()) {
@@ -852,6 +1194,90 @@ public class CLI {
         }
     }
     
+    private void generateGpaAnalytics() {
+        System.out.println("\n--- GPA Analytics ---");
+        
+        GpaAnalytics.Report report = gpaAnalytics.analyze();
+        GpaStatistics overall = report.getOverall();
+        if (overall.getCount() == 0) {
+            System.out.println("No students with GPA data found.");
+            return;
+        }
+        
+        System.out.println("All students: " + overall);
+        System.out.println("GPA histogram:");
+        long[] histogram = overall.getHistogram(1.0);
+        long largest = java.util.Arrays.stream(histogram).max().orElse(1);
+        for (int i = 0; i < histogram.length; i++) {
+            int bar = (int) (histogram[i] * 40 / largest);
+            System.out.printf("%4.1f-%-4.1f %8d %s%n", (double) i, (double) i + 1, histogram[i], "#".repeat(bar));
+        }
+        
+        System.out.println("\nBy department:");
+        report.getByDepartment().forEach((department, stats) ->
+            System.out.println(department + ": " + stats));
+        System.out.println("\nBy semester:");
+        report.getBySemester().forEach((semester, stats) ->
+            System.out.println(semester + ": " + stats));
+    }
+    
+    private void viewMetrics() {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        boolean backToMain = false;
+        
+        while (!backToMain) {
+            System.out.println("\n=== Metrics ===");
+            System.out.println("1. View Operation Latencies");
+            System.out.println("2. View Counters");
+            System.out.println("3. Reset Metrics");
+            System.out.println("4. Back to Main Menu");
+            
+            int choice = getIntInput("Enter your choice: ");
+            
+            switch (choice) {
+                case 1:
+                    printOperationLatencies(metrics);
+                    break;
+                case 2:
+                    System.out.println("\n--- Counters ---");
+                    for (Counter counter : metrics.getCounters()) {
+                        System.out.printf("%-28s %,14d%n", counter.getName(), counter.getCount());
+                    }
+                    break;
+                case 3:
+                    metrics.reset();
+                    System.out.println("Metrics reset.");
+                    break;
+                case 4:
+                    backToMain = true;
+                    break;
+                default:
+                    System.out.println("Invalid choice. Please try again.");
+            }
+        }
+    }
+    
+    private void printOperationLatencies(MetricsRegistry metrics) {
+        System.out.println("\n--- Operation Latencies (microseconds) ---");
+        System.out.printf("%-28s %10s %7s %10s %10s %10s %10s %10s%n",
+                          "Operation", "Calls", "Errors", "Mean", "p50", "p95", "p99", "Max");
+        boolean any = false;
+        for (Timer.Snapshot timer : metrics.getTimerSnapshots()) {
+            // Operations never called since startup or the last reset are left out
+            if (timer.getCount() == 0) {
+                continue;
+            }
+            any = true;
+            System.out.printf("%-28s %,10d %,7d %,10.1f %,10.1f %,10.1f %,10.1f %,10.1f%n",
+                              timer.getName(), timer.getCount(), timer.getErrorCount(), timer.getMeanMillis() * 1000,
+                              timer.getMedianMillis() * 1000, timer.getP95Millis() * 1000, timer.getP99Millis() * 1000,
+                              timer.getMaxMillis() * 1000);
+        }
+        if (!any) {
+            System.out.println("No operations recorded yet.");
+        }
+    }
+    
     private void printJavaPlatformInfo() {
         System.out.println("\n=== Java Platform Information ===");
         System.out.println("Java SE vs ME vs EE Comparison:");
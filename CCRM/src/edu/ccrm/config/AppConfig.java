@@ -38,4 +38,12 @@ public class AppConfig {
     public Path getBackupDirectory() {
         return dataDirectory.resolve("backups");
     }
+    
+    public Path getSnapshotFile() {
+        return dataDirectory.resolve("ccrm.snapshot");
+    }
+    
+    public Path getJournalFile() {
+        return dataDirectory.resolve("ccrm.journal");
+    }
 }
\ No newline at end of file
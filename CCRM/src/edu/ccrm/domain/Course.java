@@ -1,6 +1,14 @@
 package ccrm.domain;
 
+import ccrm.util.StringDictionary;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 public class Course {
     private String code;
@@ -10,6 +18,9 @@ public class Course {
     private Semester semester;
     private String department;
     private boolean active;
+    // Roster of attached enrollments, maintained by Student.add/removeEnrollment.
+    // Also lets credit changes reach the enrolled students' GPA totals.
+    private final Set<Enrollment> roster = new LinkedHashSet<>();
     
     // Private constructor for Builder
     private Course(Builder builder) {
@@ -42,7 +53,7 @@ public class Course {
         }
         
         public Builder instructor(String instructor) {
-            this.instructor = instructor;
+            this.instructor = StringDictionary.shared().canonical(instructor);
             return this;
         }
         
@@ -52,7 +63,7 @@ public class Course {
         }
         
         public Builder department(String department) {
-            this.department = department;
+            this.department = StringDictionary.shared().canonical(department);
             return this;
         }
         
@@ -72,12 +83,45 @@ public class Course {
     
     // Setters
     public void setTitle(String title) { this.title = title; }
-    public void setCredits(int credits) { this.credits = credits; }
-    public void setInstructor(String instructor) { this.instructor = instructor; }
+    public void setCredits(int credits) {
+        List<Enrollment> affected;
+        synchronized (this) {
+            if (this.credits == credits) {
+                return;
+            }
+            this.credits = credits;
+            affected = new ArrayList<>(roster);
+        }
+        // Propagate outside the course lock; students lock themselves while recounting
+        for (Enrollment enrollment : affected) {
+            if (enrollment.getGrade() != null) {
+                enrollment.getStudent().refreshContribution(enrollment);
+            }
+        }
+    }
+    public void setInstructor(String instructor) { this.instructor = StringDictionary.shared().canonical(instructor); }
     public void setSemester(Semester semester) { this.semester = semester; }
-    public void setDepartment(String department) { this.department = department; }
+    public void setDepartment(String department) { this.department = StringDictionary.shared().canonical(department); }
     public void setActive(boolean active) { this.active = active; }
     
+    // Roster queries cost O(roster size) rather than a scan of every student's enrollments
+    public synchronized List<Enrollment> getRoster() { return new ArrayList<>(roster); }
+    public synchronized int getEnrollmentCount() { return roster.size(); }
+    
+    public synchronized Map<Grade, Long> getGradeDistribution() {
+        Map<Grade, Long> distribution = new EnumMap<>(Grade.class);
+        for (Enrollment enrollment : roster) {
+            Grade grade = enrollment.getGrade();
+            if (grade != null) {
+                distribution.merge(grade, 1L, Long::sum);
+            }
+        }
+        return distribution;
+    }
+    
+    synchronized void attach(Enrollment enrollment) { roster.add(enrollment); }
+    synchronized void detach(Enrollment enrollment) { roster.remove(enrollment); }
+    
     @Override
     public String toString() {
         return String.format("Course[Code: %s, Title: %s, Credits: %d, Instructor: %s, Semester: %s, Department: %s]", 
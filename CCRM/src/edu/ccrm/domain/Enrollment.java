@@ -7,12 +7,21 @@ public class Enrollment {
     private Student student;
     private Course course;
     private LocalDate enrollmentDate;
-    private Grade grade;
+    private volatile Grade grade;
+    // What this enrollment last contributed to the student's running GPA totals
+    private double countedPoints;
+    private int countedCredits;
+    private boolean attached;
     
     public Enrollment(Student student, Course course) {
+        this(student, course, LocalDate.now());
+    }
+    
+    // Used when restoring persisted enrollments with their original date
+    public Enrollment(Student student, Course course, LocalDate enrollmentDate) {
         this.student = Objects.requireNonNull(student, "Student cannot be null");
         this.course = Objects.requireNonNull(course, "Course cannot be null");
-        this.enrollmentDate = LocalDate.now();
+        this.enrollmentDate = Objects.requireNonNull(enrollmentDate, "Enrollment date cannot be null");
         this.grade = null; // No grade initially
     }
     
@@ -23,6 +32,29 @@ public class Enrollment {
     
     public void setGrade(Grade grade) {
         this.grade = grade;
+        if (attached) {
+            student.refreshContribution(this);
+        }
+    }
+    
+    double getCountedPoints() { return countedPoints; }
+    int getCountedCredits() { return countedCredits; }
+    boolean isAttached() { return attached; }
+    void setAttached(boolean attached) { this.attached = attached; }
+    
+    void recount() {
+        Grade current = grade;
+        if (current != null) {
+            countedCredits = course.getCredits();
+            countedPoints = current.getPoints() * countedCredits;
+        } else {
+            clearContribution();
+        }
+    }
+    
+    void clearContribution() {
+        countedPoints = 0.0;
+        countedCredits = 0;
     }
     
     @Override
@@ -32,6 +32,8 @@ public abstract class Person {
     public void setEmail(String email) { this.email = email; }
     
     public LocalDate getDateCreated() { return dateCreated; }
+    // Only for restoring persisted records; new people are stamped with today's date
+    public void setDateCreated(LocalDate dateCreated) { this.dateCreated = Objects.requireNonNull(dateCreated); }
     
     public boolean isActive() { return active; }
     public void setActive(boolean active) { this.active = active; }
@@ -1,12 +1,16 @@
 package ccrm.domain;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
 public class Student extends Person {
     private String regNo;
     private List<Enrollment> enrollments;
+    // Running GPA totals, kept in step with enrollments so calculateGPA() is O(1)
+    private double gradePointsTotal;
+    private int gradedCredits;
     
     public Student(String id, String regNo, String fullName, String email) {
         super(id, fullName, email);
@@ -17,30 +21,47 @@ public class Student extends Person {
     public String getRegNo() { return regNo; }
     public void setRegNo(String regNo) { this.regNo = regNo; }
     
-    public List<Enrollment> getEnrollments() { return enrollments; }
+    // Read-only view: enrollments must go through add/removeEnrollment to keep the GPA totals right
+    public List<Enrollment> getEnrollments() { return Collections.unmodifiableList(enrollments); }
     
-    public void addEnrollment(Enrollment enrollment) {
+    public synchronized void addEnrollment(Enrollment enrollment) {
+        if (enrollment.getStudent() != this) {
+            throw new IllegalArgumentException("Enrollment belongs to a different student");
+        }
         enrollments.add(enrollment);
+        enrollment.setAttached(true);
+        enrollment.getCourse().attach(enrollment);
+        refreshContribution(enrollment);
+    }
+    
+    public synchronized void removeEnrollment(Enrollment enrollment) {
+        if (enrollments.remove(enrollment)) {
+            gradePointsTotal -= enrollment.getCountedPoints();
+            gradedCredits -= enrollment.getCountedCredits();
+            enrollment.clearContribution();
+            enrollment.setAttached(false);
+            enrollment.getCourse().detach(enrollment);
+        }
     }
     
-    public void removeEnrollment(Enrollment enrollment) {
-        enrollments.remove(enrollment);
+    public synchronized double calculateGPA() {
+        return gradedCredits > 0 ? gradePointsTotal / gradedCredits : 0.0;
     }
     
-    public double calculateGPA() {
-        if (enrollments.isEmpty()) return 0.0;
-        
-        double totalPoints = 0.0;
-        int totalCredits = 0;
-        
-        for (Enrollment enrollment : enrollments) {
-            if (enrollment.getGrade() != null) {
-                totalPoints += enrollment.getGrade().getPoints() * enrollment.getCourse().getCredits();
-                totalCredits += enrollment.getCourse().getCredits();
-            }
+    /**
+     * Swaps the enrollment's previously counted contribution for one based on its
+     * current grade and course credits. Called when the grade or credits change.
+     * An enrollment removed meanwhile no longer counts and is left alone.
+     */
+    synchronized void refreshContribution(Enrollment enrollment) {
+        if (!enrollment.isAttached()) {
+            return;
         }
-        
-        return totalCredits > 0 ? totalPoints / totalCredits : 0.0;
+        gradePointsTotal -= enrollment.getCountedPoints();
+        gradedCredits -= enrollment.getCountedCredits();
+        enrollment.recount();
+        gradePointsTotal += enrollment.getCountedPoints();
+        gradedCredits += enrollment.getCountedCredits();
     }
     
     @Override
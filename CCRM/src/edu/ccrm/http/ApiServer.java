@@ -0,0 +1,630 @@
+package ccrm.http;
+
+import ccrm.domain.Course;
+import ccrm.domain.Enrollment;
+import ccrm.domain.Grade;
+import ccrm.domain.Semester;
+import ccrm.domain.Student;
+import ccrm.metrics.Counter;
+import ccrm.metrics.MetricsRegistry;
+import ccrm.metrics.Timer;
+import ccrm.service.CourseService;
+import ccrm.service.GpaAnalytics;
+import ccrm.service.GpaStatistics;
+import ccrm.service.GradeDistributionCounters;
+import ccrm.service.RankingService;
+import ccrm.service.StudentService;
+import ccrm.util.ValidationUtils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embedded HTTP/JSON API over the student and course services, on the JDK's
+ * built-in {@code com.sun.net.httpserver}.
+ * <pre>
+ * GET    /api/students?offset=0&amp;limit=100     POST /api/students
+ * GET    /api/students/{id}                    PATCH, DELETE (deactivate)
+ * GET    /api/students/{id}/transcript
+ * GET    /api/courses?department=|instructor=|semester=
+ * POST   /api/courses
+ * GET    /api/courses/{code}                   DELETE (deactivate)
+ * GET    /api/courses/{code}/roster
+ * POST   /api/enrollments                      {"studentId", "courseCode"}
+ * DELETE /api/enrollments/{studentId}/{courseCode}
+ * PUT    /api/grades                           {"studentId", "courseCode", "grade"}
+ * GET    /api/reports/top-students?limit=10[&amp;department=|semester=|course=]
+ * GET    /api/reports/grade-distribution[?department=|semester=|course=]
+ * GET    /api/reports/gpa
+ * GET    /api/metrics
+ * </pre>
+ * Each request runs on its own virtual thread when the JDK has them (21+),
+ * otherwise on a cached pool of platform threads, so slow requests, such as
+ * those waiting on a journal sync, never hold up others. The services must
+ * be created in their concurrent mode. Errors come back as
+ * {@code {"error": "..."}} with 400 for invalid input, 404 for unknown
+ * records, and 409 when an operation conflicts with the current state
+ * (already enrolled, credit limit).
+ */
+public class ApiServer {
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final Timer REQUEST_TIMER = MetricsRegistry.getInstance().timer("http.requests");
+    private static final Counter CLIENT_ERRORS = MetricsRegistry.getInstance().counter("http.clientErrors");
+    
+    static {
+        // Without TCP_NODELAY each small response waits on the client's delayed ACK,
+        // about 40 ms per request; read once, when the first server is created
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+    
+    private final StudentService studentService;
+    private final CourseService courseService;
+    private final RankingService rankingService;
+    private final GradeDistributionCounters gradeCounters;
+    private final GpaAnalytics gpaAnalytics;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    
+    /** Binds to the port (0 for any free port) without accepting requests yet; see {@link #start()}. */
+    public ApiServer(StudentService studentService, CourseService courseService, int port) throws IOException {
+        ValidationUtils.validateNotNull(studentService, "Student service cannot be null");
+        ValidationUtils.validateNotNull(courseService, "Course service cannot be null");
+        if (!studentService.isConcurrent() || !courseService.isConcurrent()) {
+            throw new IllegalArgumentException("The HTTP API needs concurrent student and course services");
+        }
+        this.studentService = studentService;
+        this.courseService = courseService;
+        this.rankingService = new RankingService(studentService, courseService);
+        this.gradeCounters = GradeDistributionCounters.attach(studentService, courseService);
+        this.gpaAnalytics = new GpaAnalytics(studentService);
+        
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newCachedThreadPool(new RequestThreadFactory());
+        // A deep accept backlog so bursts from hundreds of clients queue instead of being refused
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        this.server.createContext("/api/", this::handle);
+        this.server.setExecutor(executor);
+    }
+    
+    public void start() {
+        server.start();
+    }
+    
+    /**
+     * Stops accepting requests, waits up to {@code delaySeconds} for those in
+     * flight, and unregisters from the services, which may outlive the server.
+     * Returns {@code false} if some requests were still running when it gave up;
+     * they may go on changing the services afterwards.
+     */
+    public boolean stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            return executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            gradeCounters.detach();
+        }
+    }
+    
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+    
+    // Looked up reflectively so the code still compiles and runs on JDKs before 21
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Absent, or a preview feature that is not enabled
+            return null;
+        }
+    }
+    
+    private static class RequestThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+        
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "ccrm-http-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+    
+    /** An error with the HTTP status to answer with. */
+    private static class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        
+        final int status;
+        
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+    
+    private static class Request {
+        final String method;
+        final String[] path;
+        final Map<String, String> query;
+        final HttpExchange exchange;
+        
+        Request(HttpExchange exchange) {
+            this.exchange = exchange;
+            this.method = exchange.getRequestMethod();
+            String rawPath = exchange.getRequestURI().getRawPath();
+            // Segments after "/api/", decoded
+            String[] segments = rawPath.substring("/api/".length()).split("/");
+            int count = segments.length > 0 && segments[segments.length - 1].isEmpty() ? segments.length - 1 : segments.length;
+            this.path = new String[count];
+            for (int i = 0; i < count; i++) {
+                path[i] = decode(segments[i]);
+            }
+            this.query = parseQuery(exchange.getRequestURI().getRawQuery());
+        }
+        
+        boolean is(String method, int segments) {
+            return this.method.equals(method) && path.length == segments;
+        }
+        
+        Map<String, Object> body() throws IOException {
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+                if (bytes.length > MAX_BODY_BYTES) {
+                    throw new ApiException(413, "Request body too large");
+                }
+                return JsonParser.parseObject(new String(bytes, StandardCharsets.UTF_8));
+            }
+        }
+        
+        private static Map<String, String> parseQuery(String rawQuery) {
+            Map<String, String> query = new HashMap<>();
+            if (rawQuery == null || rawQuery.isEmpty()) {
+                return query;
+            }
+            for (String pair : rawQuery.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0) {
+                    query.put(decode(pair.substring(0, equals)), decode(pair.substring(equals + 1)));
+                } else if (!pair.isEmpty()) {
+                    query.put(decode(pair), "");
+                }
+            }
+            return query;
+        }
+        
+        private static String decode(String value) {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8);
+        }
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        int status = 200;
+        String body;
+        try {
+            Request request = new Request(exchange);
+            body = route(request);
+            if ("POST".equals(request.method)) {
+                status = 201;
+            }
+        } catch (ApiException e) {
+            status = e.status;
+            body = error(e.getMessage());
+        } catch (IllegalStateException e) {
+            status = 409;
+            body = error(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            body = error(e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            // The details stay in the server's log rather than going to the client
+            System.err.println("Error handling " + exchange.getRequestMethod() + " " + exchange.getRequestURI() + ": " + e);
+            e.printStackTrace();
+            status = 500;
+            body = error("Internal server error");
+            REQUEST_TIMER.recordError();
+        }
+        if (status >= 400 && status < 500) {
+            CLIENT_ERRORS.increment();
+        }
+        
+        try {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } finally {
+            exchange.close();
+            REQUEST_TIMER.stop(start);
+        }
+    }
+    
+    private String route(Request request) throws IOException {
+        String[] path = request.path;
+        String resource = path.length > 0 ? path[0] : "";
+        switch (resource) {
+            case "students":
+                if (request.is("GET", 1)) return listStudents(request);
+                if (request.is("POST", 1)) return addStudent(request.body());
+                if (request.is("GET", 2)) return student(findStudent(path[1]));
+                if (request.is("PATCH", 2)) return updateStudent(path[1], request.body());
+                if (request.is("DELETE", 2)) return deactivateStudent(path[1]);
+                if (request.is("GET", 3) && "transcript".equals(path[2])) return transcript(path[1]);
+                break;
+            case "courses":
+                if (request.is("GET", 1)) return listCourses(request);
+                if (request.is("POST", 1)) return addCourse(request.body());
+                if (request.is("GET", 2)) return course(findCourse(path[1]));
+                if (request.is("DELETE", 2)) return deactivateCourse(path[1]);
+                if (request.is("GET", 3) && "roster".equals(path[2])) return roster(path[1]);
+                break;
+            case "enrollments":
+                if (request.is("POST", 1)) return enroll(request.body());
+                if (request.is("DELETE", 3)) return unenroll(path[1], path[2]);
+                break;
+            case "grades":
+                if (request.is("PUT", 1)) return recordGrade(request.body());
+                break;
+            case "reports":
+                if (request.is("GET", 2) && "top-students".equals(path[1])) return topStudents(request);
+                if (request.is("GET", 2) && "grade-distribution".equals(path[1])) return gradeDistribution(request);
+                if (request.is("GET", 2) && "gpa".equals(path[1])) return gpaReport();
+                break;
+            case "metrics":
+                if (request.is("GET", 1)) return metrics();
+                break;
+            default:
+                throw new ApiException(404, "No route for /api/" + String.join("/", path));
+        }
+        throw new ApiException(405, "No route for " + request.method + " /api/" + String.join("/", path));
+    }
+    
+    private String listStudents(Request request) {
+        int offset = intParam(request, "offset", 0);
+        int limit = Math.min(intParam(request, "limit", DEFAULT_PAGE_SIZE), MAX_PAGE_SIZE);
+        JsonWriter json = new JsonWriter().beginObject().field("total", studentService.count()).name("students").beginArray();
+        for (Student student : studentService.findPage(offset, limit)) {
+            writeStudentSummary(json, student);
+        }
+        return json.endArray().endObject().toString();
+    }
+    
+    private String addStudent(Map<String, Object> body) {
+        Student student = new Student(requireString(body, "id"), requireString(body, "regNo"),
+                                      requireString(body, "fullName"), requireString(body, "email"));
+        studentService.addStudent(student);
+        return student(student);
+    }
+    
+    private String updateStudent(String id, Map<String, Object> body) {
+        findStudent(id);
+        studentService.updateStudent(id, optionalString(body, "fullName"), optionalString(body, "email"));
+        return student(findStudent(id));
+    }
+    
+    private String deactivateStudent(String id) {
+        findStudent(id);
+        studentService.deactivateStudent(id);
+        return student(findStudent(id));
+    }
+    
+    private String transcript(String id) {
+        findStudent(id);
+        return new JsonWriter().beginObject().field("transcript", studentService.generateTranscript(id)).endObject().toString();
+    }
+    
+    private String student(Student student) {
+        JsonWriter json = new JsonWriter().beginObject();
+        writeStudentFields(json, student);
+        json.name("enrollments").beginArray();
+        synchronized (studentService.lockFor(student.getId())) {
+            for (Enrollment enrollment : student.getEnrollments()) {
+                Course course = enrollment.getCourse();
+                Grade grade = enrollment.getGrade();
+                json.beginObject()
+                    .field("courseCode", course.getCode())
+                    .field("title", course.getTitle())
+                    .field("credits", course.getCredits())
+                    .field("enrollmentDate", enrollment.getEnrollmentDate().toString())
+                    .field("grade", grade != null ? grade.name() : null)
+                    .endObject();
+            }
+        }
+        return json.endArray().endObject().toString();
+    }
+    
+    private void writeStudentSummary(JsonWriter json, Student student) {
+        json.beginObject();
+        writeStudentFields(json, student);
+        json.endObject();
+    }
+    
+    private static void writeStudentFields(JsonWriter json, Student student) {
+        json.field("id", student.getId())
+            .field("regNo", student.getRegNo())
+            .field("fullName", student.getFullName())
+            .field("email", student.getEmail())
+            .field("active", student.isActive())
+            .field("gpa", student.calculateGPA());
+    }
+    
+    private String listCourses(Request request) {
+        List<Course> courses;
+        if (request.query.containsKey("department")) {
+            courses = courseService.findByDepartment(request.query.get("department"));
+        } else if (request.query.containsKey("instructor")) {
+            courses = courseService.findByInstructor(request.query.get("instructor"));
+        } else if (request.query.containsKey("semester")) {
+            courses = courseService.findBySemester(parseEnum(Semester.class, request.query.get("semester"), "semester"));
+        } else {
+            courses = courseService.findAll();
+        }
+        JsonWriter json = new JsonWriter().beginObject().field("total", courses.size()).name("courses").beginArray();
+        for (Course course : courses) {
+            writeCourse(json, course);
+        }
+        return json.endArray().endObject().toString();
+    }
+    
+    private String addCourse(Map<String, Object> body) {
+        Course course = new Course.Builder(requireString(body, "code"), requireString(body, "title"))
+            .credits(requireInt(body, "credits"))
+            .instructor(optionalString(body, "instructor"))
+            .semester(body.get("semester") != null ? parseEnum(Semester.class, requireString(body, "semester"), "semester") : null)
+            .department(optionalString(body, "department"))
+            .build();
+        courseService.addCourse(course);
+        return course(course);
+    }
+    
+    private String deactivateCourse(String code) {
+        findCourse(code);
+        courseService.deactivateCourse(code);
+        return course(findCourse(code));
+    }
+    
+    private String roster(String code) {
+        findCourse(code);
+        JsonWriter json = new JsonWriter().beginObject().field("courseCode", code).name("roster").beginArray();
+        for (Enrollment enrollment : courseService.getRoster(code)) {
+            Grade grade = enrollment.getGrade();
+            json.beginObject()
+                .field("studentId", enrollment.getStudent().getId())
+                .field("fullName", enrollment.getStudent().getFullName())
+                .field("grade", grade != null ? grade.name() : null)
+                .endObject();
+        }
+        return json.endArray().endObject().toString();
+    }
+    
+    private String course(Course course) {
+        JsonWriter json = new JsonWriter();
+        writeCourse(json, course);
+        return json.toString();
+    }
+    
+    private static void writeCourse(JsonWriter json, Course course) {
+        json.beginObject()
+            .field("code", course.getCode())
+            .field("title", course.getTitle())
+            .field("credits", course.getCredits())
+            .field("instructor", course.getInstructor())
+            .field("semester", course.getSemester() != null ? course.getSemester().name() : null)
+            .field("department", course.getDepartment())
+            .field("active", course.isActive())
+            .field("enrolled", course.getEnrollmentCount())
+            .endObject();
+    }
+    
+    private String enroll(Map<String, Object> body) {
+        String studentId = requireString(body, "studentId");
+        Course course = findCourse(requireString(body, "courseCode"));
+        findStudent(studentId);
+        studentService.enrollInCourse(studentId, course);
+        return enrollmentResult(studentId, course.getCode(), null);
+    }
+    
+    private String unenroll(String studentId, String courseCode) {
+        findStudent(studentId);
+        if (!studentService.unenrollFromCourse(studentId, courseCode)) {
+            throw new ApiException(404, "Student " + studentId + " is not enrolled in course " + courseCode);
+        }
+        return enrollmentResult(studentId, courseCode, null);
+    }
+    
+    private String recordGrade(Map<String, Object> body) {
+        String studentId = requireString(body, "studentId");
+        String courseCode = requireString(body, "courseCode");
+        Grade grade = parseEnum(Grade.class, requireString(body, "grade"), "grade");
+        findStudent(studentId);
+        studentService.recordGrade(studentId, courseCode, grade);
+        return enrollmentResult(studentId, courseCode, grade);
+    }
+    
+    private static String enrollmentResult(String studentId, String courseCode, Grade grade) {
+        JsonWriter json = new JsonWriter().beginObject().field("studentId", studentId).field("courseCode", courseCode);
+        if (grade != null) {
+            json.field("grade", grade.name()).field("gradePoints", grade.getPoints());
+        }
+        return json.endObject().toString();
+    }
+    
+    private String topStudents(Request request) {
+        int limit = intParam(request, "limit", 10);
+        List<RankingService.RankedStudent> top;
+        if (request.query.containsKey("department")) {
+            top = rankingService.topByDepartment(request.query.get("department"), limit);
+        } else if (request.query.containsKey("semester")) {
+            top = rankingService.topBySemester(parseEnum(Semester.class, request.query.get("semester"), "semester"), limit);
+        } else if (request.query.containsKey("course")) {
+            top = rankingService.topByCourse(findCourse(request.query.get("course")).getCode(), limit);
+        } else {
+            top = rankingService.topByGpa(limit);
+        }
+        JsonWriter json = new JsonWriter().beginArray();
+        for (RankingService.RankedStudent ranked : top) {
+            json.beginObject()
+                .field("id", ranked.getStudent().getId())
+                .field("fullName", ranked.getStudent().getFullName())
+                .field("gpa", ranked.getGpa())
+                .endObject();
+        }
+        return json.endArray().toString();
+    }
+    
+    private String gradeDistribution(Request request) {
+        Map<Grade, Long> distribution;
+        if (request.query.containsKey("course")) {
+            distribution = gradeCounters.getDistributionByCourse(findCourse(request.query.get("course")).getCode());
+        } else if (request.query.containsKey("department")) {
+            distribution = gradeCounters.getDistributionByDepartment(request.query.get("department"));
+        } else if (request.query.containsKey("semester")) {
+            distribution = gradeCounters.getDistributionBySemester(parseEnum(Semester.class, request.query.get("semester"), "semester"));
+        } else {
+            distribution = gradeCounters.getDistribution();
+        }
+        JsonWriter json = new JsonWriter().beginObject();
+        distribution.forEach((grade, count) -> json.field(grade.name(), count));
+        return json.endObject().toString();
+    }
+    
+    private String gpaReport() {
+        GpaAnalytics.Report report = gpaAnalytics.analyze();
+        JsonWriter json = new JsonWriter().beginObject().name("overall");
+        writeStatistics(json, report.getOverall());
+        json.name("byDepartment").beginObject();
+        report.getByDepartment().forEach((department, stats) -> writeStatistics(json.name(department), stats));
+        json.endObject().name("bySemester").beginObject();
+        report.getBySemester().forEach((semester, stats) -> writeStatistics(json.name(semester.name()), stats));
+        return json.endObject().endObject().toString();
+    }
+    
+    private static void writeStatistics(JsonWriter json, GpaStatistics stats) {
+        json.beginObject().field("count", stats.getCount());
+        if (stats.getCount() > 0) {
+            json.field("mean", stats.getMean())
+                .field("standardDeviation", stats.getStandardDeviation())
+                .field("min", stats.getMin())
+                .field("median", stats.getPercentile(50))
+                .field("p90", stats.getPercentile(90))
+                .field("max", stats.getMax());
+        }
+        json.endObject();
+    }
+    
+    private static String metrics() {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        JsonWriter json = new JsonWriter().beginObject().name("timers").beginObject();
+        for (Timer.Snapshot timer : metrics.getTimerSnapshots()) {
+            json.name(timer.getName()).beginObject()
+                .field("count", timer.getCount())
+                .field("errors", timer.getErrorCount())
+                .field("meanMillis", timer.getMeanMillis())
+                .field("p50Millis", timer.getMedianMillis())
+                .field("p95Millis", timer.getP95Millis())
+                .field("p99Millis", timer.getP99Millis())
+                .field("maxMillis", timer.getMaxMillis())
+                .endObject();
+        }
+        json.endObject().name("counters").beginObject();
+        for (Counter counter : metrics.getCounters()) {
+            json.field(counter.getName(), counter.getCount());
+        }
+        return json.endObject().endObject().toString();
+    }
+    
+    private Student findStudent(String id) {
+        return studentService.findById(id)
+            .orElseThrow(() -> new ApiException(404, "Student with ID " + id + " not found"));
+    }
+    
+    private Course findCourse(String code) {
+        return courseService.findById(code)
+            .orElseThrow(() -> new ApiException(404, "Course with code " + code + " not found"));
+    }
+    
+    private static String error(String message) {
+        return new JsonWriter().beginObject().field("error", message).endObject().toString();
+    }
+    
+    private static String requireString(Map<String, Object> body, String field) {
+        Object value = body.get(field);
+        if (value == null) {
+            throw new ApiException(400, "Missing field: " + field);
+        }
+        if (!(value instanceof String)) {
+            throw new ApiException(400, "Field " + field + " must be a string");
+        }
+        return (String) value;
+    }
+    
+    private static String optionalString(Map<String, Object> body, String field) {
+        return body.get(field) != null ? requireString(body, field) : null;
+    }
+    
+    private static int requireInt(Map<String, Object> body, String field) {
+        Object value = body.get(field);
+        if (!(value instanceof Long) || (Long) value < Integer.MIN_VALUE || (Long) value > Integer.MAX_VALUE) {
+            throw new ApiException(400, "Field " + field + " must be an integer");
+        }
+        return ((Long) value).intValue();
+    }
+    
+    private static int intParam(Request request, String name, int defaultValue) {
+        String value = request.query.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 0) {
+                throw new ApiException(400, "Parameter " + name + " cannot be negative");
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Parameter " + name + " must be an integer");
+        }
+    }
+    
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value, String name) {
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, "Invalid " + name + ": " + value);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package ccrm.http;
+
+/**
+ * Streaming JSON builder. Names and values are appended in document order and
+ * commas are placed automatically:
+ * <pre>
+ * new JsonWriter().beginObject().name("id").value("S1").name("gpa").value(9.5).endObject().toString()
+ * </pre>
+ * Nesting is not validated; callers are expected to balance begin and end calls.
+ */
+public class JsonWriter {
+    private final StringBuilder out = new StringBuilder(256);
+    // One bit per open container, set once it holds a value, up to 64 levels deep
+    private long hasValue;
+    private int depth;
+    private boolean afterName;
+    
+    public JsonWriter beginObject() {
+        separate();
+        out.append('{');
+        push();
+        return this;
+    }
+    
+    public JsonWriter endObject() {
+        depth--;
+        out.append('}');
+        return this;
+    }
+    
+    public JsonWriter beginArray() {
+        separate();
+        out.append('[');
+        push();
+        return this;
+    }
+    
+    public JsonWriter endArray() {
+        depth--;
+        out.append(']');
+        return this;
+    }
+    
+    public JsonWriter name(String name) {
+        separate();
+        quote(name);
+        out.append(':');
+        afterName = true;
+        return this;
+    }
+    
+    public JsonWriter value(String value) {
+        separate();
+        if (value == null) {
+            out.append("null");
+        } else {
+            quote(value);
+        }
+        return this;
+    }
+    
+    public JsonWriter value(long value) {
+        separate();
+        out.append(value);
+        return this;
+    }
+    
+    /** Non-finite values, which JSON cannot represent, are written as null. */
+    public JsonWriter value(double value) {
+        separate();
+        if (Double.isFinite(value)) {
+            out.append(value);
+        } else {
+            out.append("null");
+        }
+        return this;
+    }
+    
+    public JsonWriter value(boolean value) {
+        separate();
+        out.append(value);
+        return this;
+    }
+    
+    /** Shorthand for a string field. */
+    public JsonWriter field(String name, String value) {
+        return name(name).value(value);
+    }
+    
+    public JsonWriter field(String name, long value) {
+        return name(name).value(value);
+    }
+    
+    public JsonWriter field(String name, double value) {
+        return name(name).value(value);
+    }
+    
+    public JsonWriter field(String name, boolean value) {
+        return name(name).value(value);
+    }
+    
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+    
+    private void push() {
+        depth++;
+        hasValue &= ~(1L << depth);
+    }
+    
+    // Writes the comma before every value or name except the first in its container
+    private void separate() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            long bit = 1L << depth;
+            if ((hasValue & bit) != 0) {
+                out.append(',');
+            }
+            hasValue |= bit;
+        }
+    }
+    
+    private void quote(String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
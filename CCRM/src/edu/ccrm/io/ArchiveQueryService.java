@@ -0,0 +1,624 @@
+package ccrm.io;
+
+import ccrm.domain.Grade;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Read-only queries over a full backup directory, served straight from
+ * memory-mapped export files instead of loading students and enrollments onto
+ * the heap.
+ * <p>
+ * Each full backup writes an offset index ({@value #INDEX_FILE}) next to its
+ * CSV files: student record offsets sorted by ID, followed by each student's
+ * enrollment record offsets. {@link #findById} is then a binary search over
+ * the mapped index that compares IDs in place in the mapped students file, and
+ * only the rows a query returns are decoded. The index stores the sizes and
+ * timestamps of the files it was built from; when they no longer match, or a
+ * backup predates the index, {@link #open} builds the index in memory.
+ * <p>
+ * Each mapped file must be smaller than 2 GB. Mappings are released when the
+ * service is garbage collected. Courses are small and are read into memory so
+ * GPA queries can look up credits.
+ */
+public class ArchiveQueryService {
+    static final String INDEX_FILE = "students.idx";
+    
+    private static final int INDEX_MAGIC = 0x43434958; // "CCIX"
+    private static final int INDEX_VERSION = 1;
+    // magic, version, student count, enrollment count, then size and mtime of both CSV files
+    private static final int INDEX_HEADER_BYTES = 4 * 4 + 4 * 8;
+    private static final Map<String, Grade> GRADES_BY_TEXT = new HashMap<>();
+    
+    static {
+        for (Grade grade : Grade.values()) {
+            GRADES_BY_TEXT.put(grade.toString(), grade);
+        }
+    }
+    
+    private final Path directory;
+    private final ByteBuffer students;
+    private final ByteBuffer enrollments;
+    private final ByteBuffer index;
+    private final int studentCount;
+    private final int enrollmentCount;
+    private final int studentsStart;
+    private final int enrollmentsStart;
+    private final Map<String, Integer> creditsByCourse;
+    
+    private ArchiveQueryService(Path directory, ByteBuffer students, ByteBuffer enrollments, ByteBuffer index,
+                                Map<String, Integer> creditsByCourse) {
+        this.directory = directory;
+        this.students = students;
+        this.enrollments = enrollments;
+        this.index = index;
+        this.studentCount = index.getInt(8);
+        this.enrollmentCount = index.getInt(12);
+        this.studentsStart = recordEnd(students, 0);
+        this.enrollmentsStart = recordEnd(enrollments, 0);
+        this.creditsByCourse = creditsByCourse;
+    }
+    
+    /**
+     * Opens a full backup directory for querying. The directory is only read:
+     * a backup without a current offset index gets one built in memory instead.
+     */
+    public static ArchiveQueryService open(Path backupDir) throws IOException {
+        Path studentsFile = backupDir.resolve(BackupService.STUDENTS_FILE);
+        Path enrollmentsFile = backupDir.resolve(BackupService.ENROLLMENTS_FILE);
+        if (!Files.exists(studentsFile) || !Files.exists(enrollmentsFile)) {
+            throw new IOException("Not a backup directory: " + backupDir);
+        }
+        if (Files.exists(backupDir.resolve(BackupService.ENROLLMENT_STUDENTS_FILE))) {
+            throw new IOException("Incremental backups hold only changes; rebuild a full backup first");
+        }
+        
+        ByteBuffer students = map(studentsFile);
+        ByteBuffer enrollments = map(enrollmentsFile);
+        Path indexFile = backupDir.resolve(INDEX_FILE);
+        ByteBuffer index = Files.exists(indexFile) ? map(indexFile) : null;
+        if (index == null || !isCurrent(index, studentsFile, enrollmentsFile)) {
+            // Nothing is written here, so backups on read-only storage can still be opened
+            index = buildIndex(students, enrollments, studentsFile, enrollmentsFile);
+        }
+        return new ArchiveQueryService(backupDir, students, enrollments, index,
+                                       readCredits(backupDir.resolve(BackupService.COURSES_FILE)));
+    }
+    
+    public Path getDirectory() {
+        return directory;
+    }
+    
+    public int getStudentCount() {
+        return studentCount;
+    }
+    
+    public int getEnrollmentCount() {
+        return enrollmentCount;
+    }
+    
+    public Optional<StudentRecord> findById(String id) {
+        int slot = slotOf(id);
+        return slot < 0 ? Optional.empty() : Optional.of(studentAt(studentOffset(slot)));
+    }
+    
+    public List<EnrollmentRecord> getEnrollments(String studentId) {
+        int slot = slotOf(studentId);
+        if (slot < 0) {
+            return Collections.emptyList();
+        }
+        int from = enrollmentStart(slot);
+        int to = enrollmentStart(slot + 1);
+        List<EnrollmentRecord> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            result.add(enrollmentAt(enrollmentOffset(i)));
+        }
+        return result;
+    }
+    
+    /** Credit-weighted GPA over the student's graded enrollments, as {@code Student.calculateGPA()} computes it. */
+    public double calculateGPA(String studentId) {
+        int slot = slotOf(studentId);
+        if (slot < 0) {
+            return 0.0;
+        }
+        double points = 0.0;
+        int credits = 0;
+        for (int i = enrollmentStart(slot); i < enrollmentStart(slot + 1); i++) {
+            String[] fields = readRecord(enrollments, (int) enrollmentOffset(i));
+            if (fields.length >= 4 && GRADES_BY_TEXT.containsKey(fields[3])) {
+                int courseCredits = creditsByCourse.getOrDefault(fields[1], 0);
+                points += GRADES_BY_TEXT.get(fields[3]).getPoints() * courseCredits;
+                credits += courseCredits;
+            }
+        }
+        return credits > 0 ? points / credits : 0.0;
+    }
+    
+    /** Streams every student in file order, decoding one row at a time. */
+    public Stream<StudentRecord> students() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+            new RecordIterator<>(students, studentsStart, this::studentAt), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+    
+    public List<StudentRecord> search(Predicate<StudentRecord> predicate) {
+        List<StudentRecord> result = new ArrayList<>();
+        students().filter(predicate).forEach(result::add);
+        return result;
+    }
+    
+    public Stream<EnrollmentRecord> enrollments() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+            new RecordIterator<>(enrollments, enrollmentsStart, this::enrollmentAt), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+    
+    public Map<Grade, Long> getGradeDistribution() {
+        Map<Grade, Long> distribution = new EnumMap<>(Grade.class);
+        enrollments().forEach(e -> {
+            if (e.getGrade() != null) {
+                distribution.merge(e.getGrade(), 1L, Long::sum);
+            }
+        });
+        return distribution;
+    }
+    
+    public Map<String, Long> getEnrollmentCountByCourse() {
+        Map<String, Long> counts = new TreeMap<>();
+        enrollments().forEach(e -> counts.merge(e.getCourseCode(), 1L, Long::sum));
+        return counts;
+    }
+    
+    // Binary search over the sorted offsets, comparing IDs in place in the mapped students file
+    private int slotOf(String id) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = studentCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareFirstField(students, (int) studentOffset(mid), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+    
+    private long studentOffset(int slot) {
+        return index.getLong(INDEX_HEADER_BYTES + slot * 8);
+    }
+    
+    private int enrollmentStart(int slot) {
+        return index.getInt(INDEX_HEADER_BYTES + studentCount * 8 + slot * 4);
+    }
+    
+    private long enrollmentOffset(int i) {
+        return index.getLong(INDEX_HEADER_BYTES + studentCount * 8 + (studentCount + 1) * 4 + i * 8);
+    }
+    
+    private StudentRecord studentAt(long offset) {
+        String[] fields = readRecord(students, (int) offset);
+        return new StudentRecord(field(fields, 0), field(fields, 1), field(fields, 2), field(fields, 3),
+                                 !"Inactive".equals(field(fields, 4)));
+    }
+    
+    private EnrollmentRecord enrollmentAt(long offset) {
+        String[] fields = readRecord(enrollments, (int) offset);
+        return new EnrollmentRecord(field(fields, 0), field(fields, 1), field(fields, 2),
+                                    GRADES_BY_TEXT.get(field(fields, 3)));
+    }
+    
+    private static String field(String[] fields, int i) {
+        return i < fields.length ? fields[i] : "";
+    }
+    
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File too large to map: " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+    
+    private static boolean isCurrent(ByteBuffer index, Path studentsFile, Path enrollmentsFile) throws IOException {
+        return index.capacity() >= INDEX_HEADER_BYTES
+            && index.getInt(0) == INDEX_MAGIC
+            && index.getInt(4) == INDEX_VERSION
+            && index.getLong(16) == Files.size(studentsFile)
+            && index.getLong(24) == Files.getLastModifiedTime(studentsFile).toMillis()
+            && index.getLong(32) == Files.size(enrollmentsFile)
+            && index.getLong(40) == Files.getLastModifiedTime(enrollmentsFile).toMillis();
+    }
+    
+    /**
+     * Writes the offset index into a full backup directory. Backups call this
+     * once their CSV files are complete, so opening the backup later only reads.
+     */
+    public static void writeIndex(Path backupDir) throws IOException {
+        Path studentsFile = backupDir.resolve(BackupService.STUDENTS_FILE);
+        Path enrollmentsFile = backupDir.resolve(BackupService.ENROLLMENTS_FILE);
+        ByteBuffer index = buildIndex(map(studentsFile), map(enrollmentsFile), studentsFile, enrollmentsFile);
+        Path indexFile = backupDir.resolve(INDEX_FILE);
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (index.hasRemaining()) {
+                    channel.write(index);
+                }
+            }
+            Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    // Builds the index in a heap buffer from primitive arrays: one int per student
+    // and two per enrollment while building, rather than an object per row
+    private static ByteBuffer buildIndex(ByteBuffer students, ByteBuffer enrollments,
+                                         Path studentsFile, Path enrollmentsFile) throws IOException {
+        // Student offsets sorted by the UTF-8 bytes of the ID, the order slotOf searches in
+        int[] order = new int[1024];
+        int studentCount = 0;
+        for (int offset = recordEnd(students, 0); offset < students.limit(); offset = recordEnd(students, offset)) {
+            if (!isBlankLine(students, offset)) {
+                if (studentCount == order.length) {
+                    order = Arrays.copyOf(order, studentCount * 2);
+                }
+                order[studentCount++] = offset;
+            }
+        }
+        order = Arrays.copyOf(order, studentCount);
+        sortById(students, order);
+        
+        // Each enrollment's student slot, then a counting sort groups the offsets by
+        // slot while keeping file order within a student
+        int[] enrollmentOffsets = new int[1024];
+        int[] enrollmentSlots = new int[1024];
+        int enrollmentCount = 0;
+        for (int offset = recordEnd(enrollments, 0); offset < enrollments.limit(); offset = recordEnd(enrollments, offset)) {
+            if (!isBlankLine(enrollments, offset)) {
+                int slot = findSlot(students, order, enrollments, offset);
+                if (slot >= 0) {
+                    if (enrollmentCount == enrollmentOffsets.length) {
+                        enrollmentOffsets = Arrays.copyOf(enrollmentOffsets, enrollmentCount * 2);
+                        enrollmentSlots = Arrays.copyOf(enrollmentSlots, enrollmentCount * 2);
+                    }
+                    enrollmentOffsets[enrollmentCount] = offset;
+                    enrollmentSlots[enrollmentCount++] = slot;
+                }
+            }
+        }
+        int[] starts = new int[studentCount + 1];
+        for (int i = 0; i < enrollmentCount; i++) {
+            starts[enrollmentSlots[i] + 1]++;
+        }
+        for (int slot = 0; slot < studentCount; slot++) {
+            starts[slot + 1] += starts[slot];
+        }
+        
+        long size = INDEX_HEADER_BYTES + studentCount * 8L + (studentCount + 1) * 4L + enrollmentCount * 8L;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Backup too large to index: " + studentsFile.getParent());
+        }
+        ByteBuffer index = ByteBuffer.allocate((int) size);
+        index.putInt(INDEX_MAGIC);
+        index.putInt(INDEX_VERSION);
+        index.putInt(studentCount);
+        index.putInt(enrollmentCount);
+        index.putLong(Files.size(studentsFile));
+        index.putLong(Files.getLastModifiedTime(studentsFile).toMillis());
+        index.putLong(Files.size(enrollmentsFile));
+        index.putLong(Files.getLastModifiedTime(enrollmentsFile).toMillis());
+        for (int offset : order) {
+            index.putLong(offset);
+        }
+        for (int start : starts) {
+            index.putInt(start);
+        }
+        int enrollmentsBase = index.position();
+        int[] next = Arrays.copyOf(starts, studentCount);
+        for (int i = 0; i < enrollmentCount; i++) {
+            index.putLong(enrollmentsBase + next[enrollmentSlots[i]]++ * 8, enrollmentOffsets[i]);
+        }
+        index.clear();
+        return index;
+    }
+    
+    // Merge sort of record offsets by the record's ID, compared in place in the mapped file
+    private static void sortById(ByteBuffer buffer, int[] offsets) {
+        int[] source = offsets;
+        int[] target = new int[offsets.length];
+        for (int width = 1; width < offsets.length; width *= 2) {
+            for (int low = 0; low < offsets.length; low += 2 * width) {
+                int mid = Math.min(low + width, offsets.length);
+                int high = Math.min(low + 2 * width, offsets.length);
+                int i = low;
+                int j = mid;
+                for (int k = low; k < high; k++) {
+                    if (i < mid && (j >= high || compareFirstFields(buffer, source[i], buffer, source[j]) <= 0)) {
+                        target[k] = source[i++];
+                    } else {
+                        target[k] = source[j++];
+                    }
+                }
+            }
+            int[] swap = source;
+            source = target;
+            target = swap;
+        }
+        if (source != offsets) {
+            System.arraycopy(source, 0, offsets, 0, offsets.length);
+        }
+    }
+    
+    // Slot of the student whose ID is the first field of the record at 'offset', or -1
+    private static int findSlot(ByteBuffer students, int[] order, ByteBuffer buffer, int offset) {
+        int low = 0;
+        int high = order.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareFirstFields(students, order[mid], buffer, offset);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+    
+    private static Map<String, Integer> readCredits(Path coursesFile) throws IOException {
+        Map<String, Integer> credits = new HashMap<>();
+        if (!Files.exists(coursesFile)) {
+            return credits;
+        }
+        try (CsvReader reader = CsvReader.open(coursesFile)) {
+            reader.next(); // Skip header
+            while (reader.next()) {
+                if (reader.size() >= 3) {
+                    try {
+                        credits.put(reader.get(0).trim(), Integer.parseInt(reader.get(2).trim()));
+                    } catch (NumberFormatException e) {
+                        // Leave the course out; its enrollments count as zero credits
+                    }
+                }
+            }
+        }
+        return credits;
+    }
+    
+    // Offset just past the record starting at 'start', honouring quoted line breaks
+    static int recordEnd(ByteBuffer buffer, int start) {
+        boolean quoted = false;
+        int limit = buffer.limit();
+        for (int i = start; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (b == '\n' && !quoted) {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+    
+    private static boolean isBlankLine(ByteBuffer buffer, int offset) {
+        byte b = buffer.get(offset);
+        return b == '\n' || b == '\r';
+    }
+    
+    /** Decodes one RFC 4180 record starting at the given offset. */
+    static String[] readRecord(ByteBuffer buffer, int start) {
+        List<String> fields = new ArrayList<>(8);
+        int limit = buffer.limit();
+        int i = start;
+        while (true) {
+            if (i < limit && buffer.get(i) == '"') {
+                // Quoted field: copy bytes, collapsing doubled quotes
+                byte[] bytes = new byte[32];
+                int length = 0;
+                i++;
+                while (i < limit) {
+                    byte b = buffer.get(i++);
+                    if (b == '"') {
+                        if (i < limit && buffer.get(i) == '"') {
+                            i++;
+                        } else {
+                            break;
+                        }
+                    }
+                    if (length == bytes.length) {
+                        bytes = Arrays.copyOf(bytes, length * 2);
+                    }
+                    bytes[length++] = b;
+                }
+                fields.add(new String(bytes, 0, length, StandardCharsets.UTF_8));
+            } else {
+                int end = i;
+                while (end < limit && buffer.get(end) != ',' && buffer.get(end) != '\n' && buffer.get(end) != '\r') {
+                    end++;
+                }
+                byte[] bytes = new byte[end - i];
+                buffer.get(i, bytes);
+                fields.add(new String(bytes, StandardCharsets.UTF_8));
+                i = end;
+            }
+            if (i < limit && buffer.get(i) == ',') {
+                i++;
+            } else {
+                return fields.toArray(new String[0]);
+            }
+        }
+    }
+    
+    // Compares the first fields of two records without decoding them, unless either is quoted
+    private static int compareFirstFields(ByteBuffer a, int offsetA, ByteBuffer b, int offsetB) {
+        if ((offsetA < a.limit() && a.get(offsetA) == '"') || (offsetB < b.limit() && b.get(offsetB) == '"')) {
+            return Arrays.compareUnsigned(readRecord(a, offsetA)[0].getBytes(StandardCharsets.UTF_8),
+                                          readRecord(b, offsetB)[0].getBytes(StandardCharsets.UTF_8));
+        }
+        for (int k = 0; ; k++) {
+            boolean endA = isFieldEnd(a, offsetA + k);
+            boolean endB = isFieldEnd(b, offsetB + k);
+            if (endA || endB) {
+                return endA == endB ? 0 : endA ? -1 : 1;
+            }
+            int cmp = Integer.compare(a.get(offsetA + k) & 0xFF, b.get(offsetB + k) & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+    }
+    
+    private static boolean isFieldEnd(ByteBuffer buffer, int i) {
+        return i >= buffer.limit() || buffer.get(i) == ',' || buffer.get(i) == '\n' || buffer.get(i) == '\r';
+    }
+    
+    // Compares the record's first field with the key without decoding it, unless it is quoted
+    private static int compareFirstField(ByteBuffer buffer, int offset, byte[] key) {
+        int limit = buffer.limit();
+        if (offset < limit && buffer.get(offset) == '"') {
+            return Arrays.compareUnsigned(readRecord(buffer, offset)[0].getBytes(StandardCharsets.UTF_8), key);
+        }
+        for (int k = 0; ; k++) {
+            int i = offset + k;
+            boolean fieldEnded = i >= limit || buffer.get(i) == ',' || buffer.get(i) == '\n' || buffer.get(i) == '\r';
+            if (fieldEnded) {
+                return k == key.length ? 0 : -1;
+            }
+            if (k == key.length) {
+                return 1;
+            }
+            int cmp = Integer.compare(buffer.get(i) & 0xFF, key[k] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+    }
+    
+    @FunctionalInterface
+    private interface RecordDecoder<T> {
+        T decode(long offset);
+    }
+    
+    private static final class RecordIterator<T> implements Iterator<T> {
+        private final ByteBuffer buffer;
+        private final RecordDecoder<T> decoder;
+        private int offset;
+        
+        RecordIterator(ByteBuffer buffer, int start, RecordDecoder<T> decoder) {
+            this.buffer = buffer;
+            this.decoder = decoder;
+            this.offset = start;
+            skipBlankLines();
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return offset < buffer.limit();
+        }
+        
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T record = decoder.decode(offset);
+            offset = recordEnd(buffer, offset);
+            skipBlankLines();
+            return record;
+        }
+        
+        private void skipBlankLines() {
+            while (offset < buffer.limit() && isBlankLine(buffer, offset)) {
+                offset = recordEnd(buffer, offset);
+            }
+        }
+    }
+    
+    /** A student row decoded from the mapped students file. */
+    public static final class StudentRecord {
+        private final String id;
+        private final String regNo;
+        private final String fullName;
+        private final String email;
+        private final boolean active;
+        
+        StudentRecord(String id, String regNo, String fullName, String email, boolean active) {
+            this.id = id;
+            this.regNo = regNo;
+            this.fullName = fullName;
+            this.email = email;
+            this.active = active;
+        }
+        
+        public String getId() { return id; }
+        public String getRegNo() { return regNo; }
+        public String getFullName() { return fullName; }
+        public String getEmail() { return email; }
+        public boolean isActive() { return active; }
+        
+        @Override
+        public String toString() {
+            return String.format("Student[ID: %s, Reg: %s, Name: %s, Email: %s, Active: %s]",
+                               id, regNo, fullName, email, active ? "Yes" : "No");
+        }
+    }
+    
+    /** An enrollment row decoded from the mapped enrollments file; the grade is null when ungraded. */
+    public static final class EnrollmentRecord {
+        private final String studentId;
+        private final String courseCode;
+        private final String enrollmentDate;
+        private final Grade grade;
+        
+        EnrollmentRecord(String studentId, String courseCode, String enrollmentDate, Grade grade) {
+            this.studentId = studentId;
+            this.courseCode = courseCode;
+            this.enrollmentDate = enrollmentDate;
+            this.grade = grade;
+        }
+        
+        public String getStudentId() { return studentId; }
+        public String getCourseCode() { return courseCode; }
+        public String getEnrollmentDate() { return enrollmentDate; }
+        public Grade getGrade() { return grade; }
+        
+        @Override
+        public String toString() {
+            return String.format("Enrollment[Student: %s, Course: %s, Date: %s, Grade: %s]",
+                               studentId, courseCode, enrollmentDate, grade != null ? grade : "Not graded");
+        }
+    }
+}
\ No newline at end of file
@@ -1,40 +1,268 @@
 package ccrm.io;
 
 import ccrm.config.AppConfig;
+import ccrm.domain.Course;
+import ccrm.domain.Student;
+import ccrm.metrics.MetricsRegistry;
+import ccrm.metrics.Timer;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
 
-public class BackupService {
+public class BackupService implements Closeable {
+    static final String MANIFEST_FILE = "manifest.properties";
+    static final String STUDENTS_FILE = "students.csv";
+    static final String COURSES_FILE = "courses.csv";
+    static final String ENROLLMENTS_FILE = "enrollments.csv";
+    // Incremental backups list the students whose enrollment rows they replace
+    static final String ENROLLMENT_STUDENTS_FILE = "enrollment_students.csv";
+    
+    private static final String TYPE_FULL = "full";
+    private static final String TYPE_INCREMENTAL = "incremental";
+    private static final String ARCHIVE_EXTENSION = ".tar.gz";
+    private static final Timer FULL_TIMER = MetricsRegistry.getInstance().timer("backup.full");
+    private static final Timer INCREMENTAL_TIMER = MetricsRegistry.getInstance().timer("backup.incremental");
+    private static final Timer REBUILD_TIMER = MetricsRegistry.getInstance().timer("backup.rebuild");
+    private static final Timer ARCHIVE_TIMER = MetricsRegistry.getInstance().timer("backup.archive");
+    private static final Timer EXTRACT_TIMER = MetricsRegistry.getInstance().timer("backup.extract");
+    
     private final AppConfig config;
     private final ImportExportService importExportService;
+    private final ChangeTracker changeTracker;
+    // Most recent backup written by this service; incremental backups chain from it
+    private Path lastBackup;
     
     public BackupService(ImportExportService importExportService) {
         this.config = AppConfig.getInstance();
         this.importExportService = importExportService;
+        this.changeTracker = new ChangeTracker();
+        importExportService.getStudentService().addChangeListener(changeTracker);
+        importExportService.getCourseService().addChangeListener(changeTracker);
+    }
+    
+    /**
+     * Stops tracking changes for incremental backups. Owners call this when they
+     * are done with the service, so its tracker stops receiving every mutation.
+     */
+    @Override
+    public void close() {
+        importExportService.getStudentService().removeChangeListener(changeTracker);
+        importExportService.getCourseService().removeChangeListener(changeTracker);
     }
     
     public Path createBackup() throws IOException {
-        // Create backup directory with timestamp
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        Path backupDir = config.getBackupDirectory().resolve("backup_" + timestamp);
+        return FULL_TIMER.time(() -> doCreateBackup());
+    }
+    
+    private Path doCreateBackup() throws IOException {
+        // A full backup covers everything changed so far
+        ChangeTracker.Changes covered = changeTracker.drain();
+        Path backupDir = null;
+        try {
+            // Create backup directory with timestamp
+            backupDir = newBackupDirectory("");
+            
+            // Export data to backup directory
+            Path studentsFile = backupDir.resolve(STUDENTS_FILE);
+            Path coursesFile = backupDir.resolve(COURSES_FILE);
+            Path enrollmentsFile = backupDir.resolve(ENROLLMENTS_FILE);
+            
+            importExportService.exportStudentsToCSV(studentsFile);
+            importExportService.exportCoursesToCSV(coursesFile);
+            importExportService.exportEnrollmentsToCSV(enrollmentsFile);
+            ArchiveQueryService.writeIndex(backupDir);
+            
+            writeManifest(backupDir, TYPE_FULL, null, null);
+            lastBackup = backupDir;
+            return backupDir;
+        } catch (IOException | RuntimeException e) {
+            changeTracker.restore(covered);
+            discard(backupDir, e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Writes only the students, courses and enrollment lists changed since the
+     * previous backup, plus a manifest naming the parent and base backups.
+     * Falls back to a full backup when there is no previous backup to chain from.
+     */
+    public Path createIncrementalBackup() throws IOException {
+        return INCREMENTAL_TIMER.time(() -> doCreateIncrementalBackup());
+    }
+    
+    private Path doCreateIncrementalBackup() throws IOException {
+        if (lastBackup == null || !Files.isDirectory(lastBackup)) {
+            return createBackup();
+        }
         
-        Files.createDirectories(backupDir);
+        ChangeTracker.Changes changes = changeTracker.drain();
+        Path backupDir = null;
+        try {
+            backupDir = newBackupDirectory("_incr");
+            
+            List<Student> students = new ArrayList<>();
+            changes.studentIds.forEach(id -> importExportService.getStudentService().findById(id).ifPresent(students::add));
+            List<Course> courses = new ArrayList<>();
+            changes.courseCodes.forEach(code -> importExportService.getCourseService().findById(code).ifPresent(courses::add));
+            List<Student> enrollmentStudents = new ArrayList<>();
+            changes.enrollmentStudentIds.forEach(id -> importExportService.getStudentService().findById(id).ifPresent(enrollmentStudents::add));
+            
+            importExportService.exportStudentsToCSV(backupDir.resolve(STUDENTS_FILE), students);
+            importExportService.exportCoursesToCSV(backupDir.resolve(COURSES_FILE), courses);
+            importExportService.exportEnrollmentsToCSV(backupDir.resolve(ENROLLMENTS_FILE), enrollmentStudents);
+            try (CsvWriter writer = CsvWriter.create(backupDir.resolve(ENROLLMENT_STUDENTS_FILE))) {
+                writer.record("StudentID");
+                for (Student student : enrollmentStudents) {
+                    writer.record(student.getId());
+                }
+            }
+            
+            writeManifest(backupDir, TYPE_INCREMENTAL, lastBackup.getFileName().toString(), baseOf(lastBackup));
+            lastBackup = backupDir;
+            return backupDir;
+        } catch (IOException | RuntimeException e) {
+            changeTracker.restore(changes);
+            discard(backupDir, e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Replays the chain ending at the given backup (its base full backup followed
+     * by every incremental in order) and writes the result as a new full backup.
+     */
+    public Path rebuildFullBackup(Path backupDir) throws IOException {
+        return REBUILD_TIMER.time(() -> doRebuildFullBackup(backupDir));
+    }
+    
+    private Path doRebuildFullBackup(Path backupDir) throws IOException {
+        Deque<Path> chain = new ArrayDeque<>();
+        Path current = backupDir;
+        while (true) {
+            if (!Files.isDirectory(current)) {
+                throw new IOException("Backup not found: " + current);
+            }
+            chain.push(current);
+            Properties manifest = readManifest(current);
+            if (!TYPE_INCREMENTAL.equals(manifest.getProperty("type"))) {
+                break;
+            }
+            current = current.resolveSibling(manifest.getProperty("parent"));
+        }
         
-        // Export data to backup directory
-        Path studentsFile = backupDir.resolve("students.csv");
-        Path coursesFile = backupDir.resolve("courses.csv");
-        Path enrollmentsFile = backupDir.resolve("enrollments.csv");
+        Map<String, String[]> students = new LinkedHashMap<>();
+        Map<String, String[]> courses = new LinkedHashMap<>();
+        Map<String, List<String[]>> enrollmentsByStudent = new LinkedHashMap<>();
+        for (Path backup : chain) {
+            readRows(backup.resolve(STUDENTS_FILE)).forEach(row -> students.put(row[0], row));
+            readRows(backup.resolve(COURSES_FILE)).forEach(row -> courses.put(row[0], row));
+            
+            // Incrementals replace each listed student's enrollment rows wholesale
+            Path replaced = backup.resolve(ENROLLMENT_STUDENTS_FILE);
+            if (Files.exists(replaced)) {
+                readRows(replaced).forEach(row -> enrollmentsByStudent.put(row[0], new ArrayList<>()));
+            }
+            readRows(backup.resolve(ENROLLMENTS_FILE))
+                .forEach(row -> enrollmentsByStudent.computeIfAbsent(row[0], k -> new ArrayList<>()).add(row));
+        }
         
-        importExportService.exportStudentsToCSV(studentsFile);
-        importExportService.exportCoursesToCSV(coursesFile);
-        importExportService.exportEnrollmentsToCSV(enrollmentsFile);
+        Path rebuiltDir = newBackupDirectory("_rebuilt");
+        try {
+            writeRows(rebuiltDir.resolve(STUDENTS_FILE), ImportExportService.STUDENT_HEADER, students.values());
+            writeRows(rebuiltDir.resolve(COURSES_FILE), ImportExportService.COURSE_HEADER, courses.values());
+            List<String[]> enrollments = new ArrayList<>();
+            enrollmentsByStudent.values().forEach(enrollments::addAll);
+            writeRows(rebuiltDir.resolve(ENROLLMENTS_FILE), ImportExportService.ENROLLMENT_HEADER, enrollments);
+            ArchiveQueryService.writeIndex(rebuiltDir);
+            writeManifest(rebuiltDir, TYPE_FULL, null, null);
+            return rebuiltDir;
+        } catch (IOException | RuntimeException e) {
+            discard(rebuiltDir, e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Writes a full backup as a single tar.gz archive, compressed in parallel
+     * blocks. The archive holds one backup directory, so extracting it gives the
+     * same layout as {@link #createBackup()}. Archives are standalone snapshots
+     * and do not start or extend an incremental chain.
+     */
+    public Path createArchiveBackup() throws IOException {
+        return createArchiveBackup(Deflater.DEFAULT_COMPRESSION);
+    }
+    
+    public Path createArchiveBackup(int compressionLevel) throws IOException {
+        return ARCHIVE_TIMER.time(() -> doCreateArchiveBackup(compressionLevel));
+    }
+    
+    private Path doCreateArchiveBackup(int compressionLevel) throws IOException {
+        Path archive = newBackupPath("", ARCHIVE_EXTENSION);
+        String entryDir = archive.getFileName().toString();
+        entryDir = entryDir.substring(0, entryDir.length() - ARCHIVE_EXTENSION.length());
+        Files.createDirectories(archive.getParent());
         
-        return backupDir;
+        // Tar headers need each file's size up front, so exports go to a staging directory first
+        Path staging = Files.createTempDirectory(archive.getParent(), ".staging_");
+        Path partial = archive.resolveSibling(archive.getFileName() + ".part");
+        try {
+            importExportService.exportStudentsToCSV(staging.resolve(STUDENTS_FILE));
+            importExportService.exportCoursesToCSV(staging.resolve(COURSES_FILE));
+            importExportService.exportEnrollmentsToCSV(staging.resolve(ENROLLMENTS_FILE));
+            writeManifest(staging, TYPE_FULL, null, null);
+            
+            try (OutputStream out = new ParallelGzipOutputStream(Files.newOutputStream(partial), compressionLevel,
+                                                                 Runtime.getRuntime().availableProcessors())) {
+                for (String file : new String[] {MANIFEST_FILE, STUDENTS_FILE, COURSES_FILE, ENROLLMENTS_FILE}) {
+                    TarArchive.writeEntry(out, entryDir + "/" + file, staging.resolve(file));
+                }
+                TarArchive.finish(out);
+            }
+            // Only a completely written archive gets the final name
+            Files.move(partial, archive, StandardCopyOption.ATOMIC_MOVE);
+            return archive;
+        } finally {
+            Files.deleteIfExists(partial);
+            deleteDirectory(staging);
+        }
+    }
+    
+    /** Extracts an archive backup into the backup directory and returns the extracted backup directory. */
+    public Path extractArchiveBackup(Path archive) throws IOException {
+        return EXTRACT_TIMER.time(() -> doExtractArchiveBackup(archive));
+    }
+    
+    private Path doExtractArchiveBackup(Path archive) throws IOException {
+        List<Path> extracted;
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(archive), 64 * 1024)) {
+            extracted = TarArchive.extract(in, config.getBackupDirectory());
+        }
+        if (extracted.isEmpty()) {
+            throw new IOException("Archive is empty: " + archive);
+        }
+        return extracted.get(0).getParent();
+    }
+    
+    public Path getLastBackup() {
+        return lastBackup;
     }
     
     public long getBackupSize(Path directory) throws IOException {
@@ -69,4 +297,115 @@ public class BackupService {
             });
         }
     }
+    
+    private Path newBackupDirectory(String suffix) throws IOException {
+        Path backupDir = newBackupPath(suffix, "");
+        Files.createDirectories(backupDir);
+        return backupDir;
+    }
+    
+    private Path newBackupPath(String suffix, String extension) {
+        String name = "backup_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + suffix;
+        // Several backups in the same second get a counter rather than overwriting each other.
+        // Directory and archive backups share names, so an archive always extracts to a free directory.
+        String unique = name;
+        for (int i = 2; isTaken(unique); i++) {
+            unique = name + "_" + i;
+        }
+        return config.getBackupDirectory().resolve(unique + extension);
+    }
+    
+    private boolean isTaken(String name) {
+        Path backupDir = config.getBackupDirectory();
+        return Files.exists(backupDir.resolve(name)) || Files.exists(backupDir.resolve(name + ARCHIVE_EXTENSION));
+    }
+    
+    private static void deleteDirectory(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            List<Path> all = new ArrayList<>();
+            paths.forEach(all::add);
+            for (int i = all.size() - 1; i >= 0; i--) {
+                Files.deleteIfExists(all.get(i));
+            }
+        }
+    }
+    
+    // Removes a backup that failed part way, so no directory without a manifest is left behind
+    private static void discard(Path backupDir, Exception failure) {
+        if (backupDir == null) {
+            return;
+        }
+        try {
+            deleteDirectory(backupDir);
+        } catch (IOException suppressed) {
+            failure.addSuppressed(suppressed);
+        }
+    }
+    
+    private String baseOf(Path backupDir) throws IOException {
+        Properties manifest = readManifest(backupDir);
+        return TYPE_INCREMENTAL.equals(manifest.getProperty("type"))
+            ? manifest.getProperty("base")
+            : backupDir.getFileName().toString();
+    }
+    
+    private void writeManifest(Path backupDir, String type, String parent, String base) throws IOException {
+        Properties manifest = new Properties();
+        manifest.setProperty("type", type);
+        manifest.setProperty("created", LocalDateTime.now().toString());
+        if (parent != null) {
+            manifest.setProperty("parent", parent);
+            manifest.setProperty("base", base);
+        }
+        try (OutputStream out = Files.newOutputStream(backupDir.resolve(MANIFEST_FILE))) {
+            manifest.store(out, "CCRM backup manifest");
+        }
+    }
+    
+    // Backups written before manifests existed are full backups
+    private Properties readManifest(Path backupDir) throws IOException {
+        Properties manifest = new Properties();
+        Path file = backupDir.resolve(MANIFEST_FILE);
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                manifest.load(in);
+            }
+        } else {
+            manifest.setProperty("type", TYPE_FULL);
+        }
+        return manifest;
+    }
+    
+    private static List<String[]> readRows(Path file) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return rows;
+        }
+        try (CsvReader reader = CsvReader.open(file)) {
+            reader.next(); // Skip header
+            while (reader.next()) {
+                if (reader.size() == 1 && reader.get(0).isEmpty()) {
+                    continue;
+                }
+                String[] row = new String[reader.size()];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = reader.get(i);
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+    
+    private static void writeRows(Path file, String[] header, Iterable<String[]> rows) throws IOException {
+        try (CsvWriter writer = CsvWriter.create(file)) {
+            writer.record(header);
+            for (String[] row : rows) {
+                writer.record(row);
+            }
+        }
+    }
 }
\ No newline at end of file
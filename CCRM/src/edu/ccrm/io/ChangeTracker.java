@@ -0,0 +1,106 @@
+package ccrm.io;
+
+import ccrm.domain.Course;
+import ccrm.domain.Enrollment;
+import ccrm.domain.Grade;
+import ccrm.domain.Student;
+import ccrm.service.ChangeListener;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Records which students, courses and student enrollment lists changed since
+ * the last backup, so an incremental backup only has to write those rows.
+ */
+class ChangeTracker implements ChangeListener {
+    // Listeners share the read lock; drain() takes the write lock to swap sets atomically
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Changes current = new Changes();
+    
+    static class Changes {
+        final Set<String> studentIds = ConcurrentHashMap.newKeySet();
+        final Set<String> courseCodes = ConcurrentHashMap.newKeySet();
+        // Students whose enrollment list (membership or grades) changed
+        final Set<String> enrollmentStudentIds = ConcurrentHashMap.newKeySet();
+        
+        boolean isEmpty() {
+            return studentIds.isEmpty() && courseCodes.isEmpty() && enrollmentStudentIds.isEmpty();
+        }
+        
+        void addAll(Changes other) {
+            studentIds.addAll(other.studentIds);
+            courseCodes.addAll(other.courseCodes);
+            enrollmentStudentIds.addAll(other.enrollmentStudentIds);
+        }
+    }
+    
+    /** Hands over everything recorded so far and starts a fresh change set. */
+    Changes drain() {
+        lock.writeLock().lock();
+        try {
+            Changes drained = current;
+            current = new Changes();
+            return drained;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /** Puts drained changes back, e.g. when the backup that took them failed. */
+    void restore(Changes changes) {
+        lock.readLock().lock();
+        try {
+            current.addAll(changes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public void studentAdded(Student student) {
+        record(current -> current.studentIds.add(student.getId()));
+    }
+    
+    @Override
+    public void studentUpdated(Student student) {
+        record(current -> current.studentIds.add(student.getId()));
+    }
+    
+    @Override
+    public void courseAdded(Course course) {
+        record(current -> current.courseCodes.add(course.getCode()));
+    }
+    
+    @Override
+    public void courseUpdated(Course course) {
+        record(current -> current.courseCodes.add(course.getCode()));
+    }
+    
+    @Override
+    public void enrollmentAdded(Enrollment enrollment) {
+        record(current -> current.enrollmentStudentIds.add(enrollment.getStudent().getId()));
+    }
+    
+    @Override
+    public void enrollmentRemoved(Enrollment enrollment) {
+        record(current -> current.enrollmentStudentIds.add(enrollment.getStudent().getId()));
+    }
+    
+    @Override
+    public void gradeRecorded(Enrollment enrollment, Grade previousGrade) {
+        record(current -> current.enrollmentStudentIds.add(enrollment.getStudent().getId()));
+    }
+    
+    private void record(Consumer<Changes> change) {
+        lock.readLock().lock();
+        try {
+            change.accept(current);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
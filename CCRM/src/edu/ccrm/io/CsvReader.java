@@ -0,0 +1,179 @@
+package ccrm.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Streaming RFC 4180 CSV reader.
+ * <p>
+ * Records are read one at a time into a reused field array from a reused char
+ * buffer. Quoted fields may contain commas, doubled quotes and line breaks.
+ * Unquoted fields that sit inside the buffer become a String straight from
+ * the buffer, with no per-field regex, split array or StringBuilder.
+ */
+public class CsvReader implements Closeable {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    
+    private final Reader in;
+    private final char[] buffer;
+    private int pos;
+    private int limit;
+    private boolean eof;
+    
+    // Holds a field only when it spans a buffer refill or contains quotes
+    private final StringBuilder pending = new StringBuilder();
+    private String[] fields = new String[16];
+    private int fieldCount;
+    private long recordNumber;
+    
+    public CsvReader(Reader in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+    
+    public CsvReader(Reader in, int bufferSize) {
+        this.in = in;
+        this.buffer = new char[bufferSize];
+    }
+    
+    public static CsvReader open(Path filePath) throws IOException {
+        return new CsvReader(new InputStreamReader(Files.newInputStream(filePath), StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Advances to the next record.
+     *
+     * @return false once the input is exhausted
+     */
+    public boolean next() throws IOException {
+        fieldCount = 0;
+        if (pos >= limit && !fill()) {
+            return false;
+        }
+        
+        pending.setLength(0);
+        boolean quoted = false;
+        boolean inQuotes = false;
+        int start = pos;
+        
+        while (true) {
+            if (pos >= limit) {
+                // Keep the partial field before the buffer is overwritten
+                pending.append(buffer, start, pos - start);
+                if (!fill()) {
+                    endField(quoted, -1);
+                    recordNumber++;
+                    return true;
+                }
+                start = pos;
+            }
+            
+            char c = buffer[pos];
+            if (inQuotes) {
+                if (c == '"') {
+                    pending.append(buffer, start, pos - start);
+                    pos++;
+                    if (pos >= limit && !fill()) {
+                        endField(true, -1);
+                        recordNumber++;
+                        return true;
+                    }
+                    if (buffer[pos] == '"') {
+                        // Escaped quote: keep one, continue inside the quotes
+                        pending.append('"');
+                        pos++;
+                    } else {
+                        inQuotes = false;
+                    }
+                    start = pos;
+                } else {
+                    pos++;
+                }
+            } else if (c == ',') {
+                endField(quoted, start);
+                pos++;
+                start = pos;
+                quoted = false;
+            } else if (c == '\n' || c == '\r') {
+                endField(quoted, start);
+                pos++;
+                if (c == '\r' && (pos < limit || fill()) && buffer[pos] == '\n') {
+                    pos++;
+                }
+                recordNumber++;
+                return true;
+            } else if (c == '"' && !quoted && pos == start && pending.length() == 0) {
+                quoted = true;
+                inQuotes = true;
+                pos++;
+                start = pos;
+            } else {
+                pos++;
+            }
+        }
+    }
+    
+    /** Number of fields in the current record. */
+    public int size() {
+        return fieldCount;
+    }
+    
+    public String get(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + index + " of " + fieldCount);
+        }
+        return fields[index];
+    }
+    
+    /** 1-based number of the current record, counting the header. */
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+    
+    private void endField(boolean quoted, int start) {
+        String value;
+        if (pending.length() == 0 && !quoted && start >= 0) {
+            value = new String(buffer, start, pos - start);
+        } else {
+            if (start >= 0) {
+                pending.append(buffer, start, pos - start);
+            }
+            value = pending.toString();
+            pending.setLength(0);
+        }
+        
+        if (fieldCount == fields.length) {
+            fields = Arrays.copyOf(fields, fieldCount * 2);
+        }
+        fields[fieldCount++] = value;
+    }
+    
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        int read = in.read(buffer, 0, buffer.length);
+        while (read == 0) {
+            read = in.read(buffer, 0, buffer.length);
+        }
+        if (read < 0) {
+            eof = true;
+            pos = 0;
+            limit = 0;
+            return false;
+        }
+        pos = 0;
+        limit = read;
+        return true;
+    }
+}
\ No newline at end of file
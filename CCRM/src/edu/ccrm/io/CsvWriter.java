@@ -0,0 +1,153 @@
+package ccrm.io;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * Streaming RFC 4180 CSV writer, the counterpart of {@link CsvReader}.
+ * <p>
+ * Records go straight to a buffered writer. Numbers and dates are written
+ * digit by digit from a reused scratch buffer, and strings are quoted only when
+ * they contain a comma, quote or line break, so writing a row allocates nothing
+ * and memory use does not depend on how many rows are written.
+ */
+public class CsvWriter implements Closeable, Flushable {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    
+    private final Writer out;
+    private final char[] scratch = new char[20];
+    private boolean startOfRecord = true;
+    
+    public CsvWriter(Writer out) {
+        this.out = out;
+    }
+    
+    public static CsvWriter create(Path filePath) throws IOException {
+        return new CsvWriter(new BufferedWriter(
+            new OutputStreamWriter(Files.newOutputStream(filePath), StandardCharsets.UTF_8), DEFAULT_BUFFER_SIZE));
+    }
+    
+    /** Writes a complete record of plain string fields, e.g. a header. */
+    public CsvWriter record(String... values) throws IOException {
+        for (String value : values) {
+            field(value);
+        }
+        return endRecord();
+    }
+    
+    public CsvWriter field(String value) throws IOException {
+        separator();
+        if (value == null) {
+            return this;
+        }
+        if (needsQuotes(value)) {
+            out.write('"');
+            int start = 0;
+            for (int i = 0; i < value.length(); i++) {
+                if (value.charAt(i) == '"') {
+                    // Double embedded quotes
+                    out.write(value, start, i - start + 1);
+                    out.write('"');
+                    start = i + 1;
+                }
+            }
+            out.write(value, start, value.length() - start);
+            out.write('"');
+        } else {
+            out.write(value);
+        }
+        return this;
+    }
+    
+    public CsvWriter field(long value) throws IOException {
+        separator();
+        writeLong(value);
+        return this;
+    }
+    
+    /** Writes an ISO-8601 date (yyyy-MM-dd), the same text as {@link LocalDate#toString()} for years 0-9999. */
+    public CsvWriter field(LocalDate date) throws IOException {
+        separator();
+        if (date == null) {
+            return this;
+        }
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            out.write(date.toString());
+            return this;
+        }
+        writePadded(year, 4);
+        out.write('-');
+        writePadded(date.getMonthValue(), 2);
+        out.write('-');
+        writePadded(date.getDayOfMonth(), 2);
+        return this;
+    }
+    
+    public CsvWriter endRecord() throws IOException {
+        out.write(LINE_SEPARATOR);
+        startOfRecord = true;
+        return this;
+    }
+    
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+    
+    private void separator() throws IOException {
+        if (!startOfRecord) {
+            out.write(',');
+        }
+        startOfRecord = false;
+    }
+    
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            out.write(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            out.write('-');
+            value = -value;
+        }
+        int pos = scratch.length;
+        do {
+            scratch[--pos] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        out.write(scratch, pos, scratch.length - pos);
+    }
+    
+    private void writePadded(int value, int width) throws IOException {
+        for (int i = width - 1; i >= 0; i--) {
+            scratch[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        out.write(scratch, 0, width);
+    }
+}
\ No newline at end of file
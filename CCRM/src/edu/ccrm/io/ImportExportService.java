@@ -2,19 +2,46 @@ package ccrm.io;
 
 import ccrm.domain.Student;
 import ccrm.domain.Course;
+import ccrm.domain.Enrollment;
+import ccrm.domain.Grade;
 import ccrm.domain.Semester;
+import ccrm.metrics.Counter;
+import ccrm.metrics.MetricsRegistry;
+import ccrm.metrics.Timer;
+import ccrm.service.BulkEnrollment;
 import ccrm.service.StudentService;
 import ccrm.service.CourseService;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Locale;
 
 public class ImportExportService {
+    static final String[] STUDENT_HEADER = {"ID", "RegistrationNo", "FullName", "Email", "Status"};
+    static final String[] COURSE_HEADER = {"Code", "Title", "Credits", "Instructor", "Semester", "Department", "Status"};
+    static final String[] ENROLLMENT_HEADER = {"StudentID", "CourseCode", "EnrollmentDate", "Grade", "GradePoints"};
+    
+    // Grade points as text, formatted once rather than per exported row
+    private static final String[] GRADE_POINTS = new String[Grade.values().length];
+    
+    static {
+        for (Grade grade : Grade.values()) {
+            GRADE_POINTS[grade.ordinal()] = String.valueOf(grade.getPoints());
+        }
+    }
+    
+    private static final Timer IMPORT_STUDENTS_TIMER = MetricsRegistry.getInstance().timer("io.importStudents");
+    private static final Timer IMPORT_COURSES_TIMER = MetricsRegistry.getInstance().timer("io.importCourses");
+    private static final Timer IMPORT_ENROLLMENTS_TIMER = MetricsRegistry.getInstance().timer("io.importEnrollments");
+    private static final Timer EXPORT_STUDENTS_TIMER = MetricsRegistry.getInstance().timer("io.exportStudents");
+    private static final Timer EXPORT_COURSES_TIMER = MetricsRegistry.getInstance().timer("io.exportCourses");
+    private static final Timer EXPORT_ENROLLMENTS_TIMER = MetricsRegistry.getInstance().timer("io.exportEnrollments");
+    private static final Counter ROWS_IMPORTED = MetricsRegistry.getInstance().counter("io.rowsImported");
+    private static final Counter ROWS_EXPORTED = MetricsRegistry.getInstance().counter("io.rowsExported");
+    
     private final StudentService studentService;
     private final CourseService courseService;
     
@@ -23,98 +50,217 @@ public class ImportExportService {
         this.courseService = courseService;
     }
     
+    // Export layouts, for writers that produce rows without going through the services
+    public static String[] studentHeader() { return STUDENT_HEADER.clone(); }
+    public static String[] courseHeader() { return COURSE_HEADER.clone(); }
+    public static String[] enrollmentHeader() { return ENROLLMENT_HEADER.clone(); }
+    
+    public StudentService getStudentService() {
+        return studentService;
+    }
+    
+    public CourseService getCourseService() {
+        return courseService;
+    }
+    
     public void importStudentsFromCSV(Path filePath) throws IOException {
-        try (Stream<String> lines = Files.lines(filePath)) {
-            lines.skip(1) // Skip header
-                .forEach(line -> {
-                    String[] parts = line.split(",");
-                    if (parts.length >= 4) {
-                        String id = parts[0].trim();
-                        String regNo = parts[1].trim();
-                        String fullName = parts[2].trim();
-                        String email = parts[3].trim();
-                        
-                        Student student = new Student(id, regNo, fullName, email);
-                        studentService.addStudent(student);
-                    }
-                });
+        IMPORT_STUDENTS_TIMER.time(() -> doImportStudentsFromCSV(filePath));
+    }
+    
+    private void doImportStudentsFromCSV(Path filePath) throws IOException {
+        try (CsvReader reader = CsvReader.open(filePath)) {
+            reader.next(); // Skip header
+            while (reader.next()) {
+                Student student = parseStudent(reader);
+                if (student != null) {
+                    studentService.addStudent(student);
+                    ROWS_IMPORTED.increment();
+                }
+            }
         }
     }
     
     public void importCoursesFromCSV(Path filePath) throws IOException {
-        try (Stream<String> lines = Files.lines(filePath)) {
-            lines.skip(1) // Skip header
-                .forEach(line -> {
-                    String[] parts = line.split(",");
-                    if (parts.length >= 6) {
-                        String code = parts[0].trim();
-                        String title = parts[1].trim();
-                        int credits = Integer.parseInt(parts[2].trim());
-                        String instructor = parts[3].trim();
-                        Semester semester = Semester.valueOf(parts[4].trim().toUpperCase());
-                        String department = parts[5].trim();
-                        
-                        Course course = new Course.Builder(code, title)
-                            .credits(credits)
-                            .instructor(instructor)
-                            .semester(semester)
-                            .department(department)
-                            .build();
-                        
-                        courseService.addCourse(course);
-                    }
-                });
+        IMPORT_COURSES_TIMER.time(() -> doImportCoursesFromCSV(filePath));
+    }
+    
+    private void doImportCoursesFromCSV(Path filePath) throws IOException {
+        try (CsvReader reader = CsvReader.open(filePath)) {
+            reader.next(); // Skip header
+            while (reader.next()) {
+                Course course = parseCourse(reader);
+                if (course != null) {
+                    courseService.addCourse(course);
+                    ROWS_IMPORTED.increment();
+                }
+            }
         }
     }
     
-    public void exportStudentsToCSV(Path filePath) throws IOException {
-        List<String> lines = studentService.findAll().stream()
-            .map(student -> String.format("%s,%s,%s,%s,%s",
-                student.getId(),
-                student.getRegNo(),
-                student.getFullName(),
-                student.getEmail(),
-                student.isActive() ? "Active" : "Inactive"))
-            .collect(Collectors.toList());
+    public ImportReport importStudentsFromCSVParallel(Path filePath) throws IOException {
+        return IMPORT_STUDENTS_TIMER.time(() -> doImportStudentsFromCSVParallel(filePath));
+    }
+    
+    private ImportReport doImportStudentsFromCSVParallel(Path filePath) throws IOException {
+        ImportReport report = new ParallelCsvImporter(studentService, courseService).importStudents(filePath);
+        ROWS_IMPORTED.add(report.getImportedCount());
+        return report;
+    }
+    
+    public ImportReport importCoursesFromCSVParallel(Path filePath) throws IOException {
+        return IMPORT_COURSES_TIMER.time(() -> doImportCoursesFromCSVParallel(filePath));
+    }
+    
+    private ImportReport doImportCoursesFromCSVParallel(Path filePath) throws IOException {
+        ImportReport report = new ParallelCsvImporter(studentService, courseService).importCourses(filePath);
+        ROWS_IMPORTED.add(report.getImportedCount());
+        return report;
+    }
+    
+    public BulkEnrollment.Report importEnrollmentsFromCSV(Path filePath) throws IOException {
+        return IMPORT_ENROLLMENTS_TIMER.time(() -> doImportEnrollmentsFromCSV(filePath));
+    }
+    
+    private BulkEnrollment.Report doImportEnrollmentsFromCSV(Path filePath) throws IOException {
+        // Only the first two columns are used, so an enrollments export can be re-imported as is
+        List<BulkEnrollment.Request> requests = new ArrayList<>();
+        try (CsvReader reader = CsvReader.open(filePath)) {
+            reader.next(); // Skip header
+            while (reader.next()) {
+                if (reader.size() >= 2) {
+                    requests.add(new BulkEnrollment.Request(reader.get(0).trim(), reader.get(1).trim(),
+                                                            reader.getRecordNumber()));
+                } else if (!reader.get(0).trim().isEmpty()) {
+                    requests.add(new BulkEnrollment.Request(null, null, reader.getRecordNumber()));
+                }
+            }
+        }
+        BulkEnrollment.Report report = studentService.enrollAll(requests.stream(), courseService::findById);
+        ROWS_IMPORTED.add(report.getEnrolledCount());
+        return report;
+    }
+    
+    // Returns null for rows with too few columns, which the importers skip
+    static Student parseStudent(CsvReader reader) {
+        if (reader.size() < 4) {
+            return null;
+        }
+        String id = reader.get(0).trim();
+        String regNo = reader.get(1).trim();
+        String fullName = reader.get(2).trim();
+        String email = reader.get(3).trim();
         
-        // Add header
-        lines.add(0, "ID,RegistrationNo,FullName,Email,Status");
+        return new Student(id, regNo, fullName, email);
+    }
+    
+    static Course parseCourse(CsvReader reader) {
+        if (reader.size() < 6) {
+            return null;
+        }
+        String code = reader.get(0).trim();
+        String title = reader.get(1).trim();
+        int credits = Integer.parseInt(reader.get(2).trim());
+        String instructor = reader.get(3).trim();
+        Semester semester = Semester.valueOf(reader.get(4).trim().toUpperCase(Locale.ROOT));
+        String department = reader.get(5).trim();
         
-        Files.write(filePath, lines, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new Course.Builder(code, title)
+            .credits(credits)
+            .instructor(instructor)
+            .semester(semester)
+            .department(department)
+            .build();
+    }
+    
+    public void exportStudentsToCSV(Path filePath) throws IOException {
+        exportStudentsToCSV(filePath, studentService.findAll());
+    }
+    
+    public void exportStudentsToCSV(Path filePath, Collection<Student> students) throws IOException {
+        EXPORT_STUDENTS_TIMER.time(() -> doExportStudentsToCSV(filePath, students));
+    }
+    
+    private void doExportStudentsToCSV(Path filePath, Collection<Student> students) throws IOException {
+        // Rows are streamed to the file as they are formatted, so memory use stays flat
+        try (CsvWriter writer = CsvWriter.create(filePath)) {
+            writer.record(STUDENT_HEADER);
+            for (Student student : students) {
+                writeStudent(writer, student);
+                ROWS_EXPORTED.increment();
+            }
+        }
     }
     
     public void exportCoursesToCSV(Path filePath) throws IOException {
-        List<String> lines = courseService.findAll().stream()
-            .map(course -> String.format("%s,%s,%d,%s,%s,%s,%s",
-                course.getCode(),
-                course.getTitle(),
-                course.getCredits(),
-                course.getInstructor(),
-                course.getSemester(),
-                course.getDepartment(),
-                course.isActive() ? "Active" : "Inactive"))
-            .collect(Collectors.toList());
-        
-        // Add header
-        lines.add(0, "Code,Title,Credits,Instructor,Semester,Department,Status");
-        
-        Files.write(filePath, lines, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        exportCoursesToCSV(filePath, courseService.findAll());
+    }
+    
+    public void exportCoursesToCSV(Path filePath, Collection<Course> courses) throws IOException {
+        EXPORT_COURSES_TIMER.time(() -> doExportCoursesToCSV(filePath, courses));
+    }
+    
+    private void doExportCoursesToCSV(Path filePath, Collection<Course> courses) throws IOException {
+        try (CsvWriter writer = CsvWriter.create(filePath)) {
+            writer.record(COURSE_HEADER);
+            for (Course course : courses) {
+                writeCourse(writer, course);
+                ROWS_EXPORTED.increment();
+            }
+        }
     }
     
+    /** Exports every enrollment, grouped by student in student order. */
     public void exportEnrollmentsToCSV(Path filePath) throws IOException {
-        List<String> lines = studentService.findAll().stream()
-            .flatMap(student -> student.getEnrollments().stream()
-                .map(enrollment -> String.format("%s,%s,%s,%s,%s",
-                    student.getId(),
-                    enrollment.getCourse().getCode(),
-                    enrollment.getEnrollmentDate(),
-                    enrollment.getGrade() != null ? enrollment.getGrade() : "Not graded",
-                    enrollment.getGrade() != null ? enrollment.getGrade().getPoints() : "0.0")))
-            .collect(Collectors.toList());
-        
-        // Add header
-        lines.add(0, "StudentID,CourseCode,EnrollmentDate,Grade,GradePoints");
-        
-        Files.write(filePath, lines, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        exportEnrollmentsToCSV(filePath, studentService.findAll());
+    }
+    
+    /** Exports every enrollment held by the given students. */
+    public void exportEnrollmentsToCSV(Path filePath, Collection<Student> students) throws IOException {
+        EXPORT_ENROLLMENTS_TIMER.time(() -> doExportEnrollmentsToCSV(filePath, students));
+    }
+    
+    private void doExportEnrollmentsToCSV(Path filePath, Collection<Student> students) throws IOException {
+        try (CsvWriter writer = CsvWriter.create(filePath)) {
+            writer.record(ENROLLMENT_HEADER);
+            for (Student student : students) {
+                // Concurrent enrollments would otherwise change the list mid-iteration
+                synchronized (studentService.lockFor(student.getId())) {
+                    for (Enrollment enrollment : student.getEnrollments()) {
+                        writeEnrollment(writer, enrollment);
+                        ROWS_EXPORTED.increment();
+                    }
+                }
+            }
+        }
+    }
+    
+    public static void writeStudent(CsvWriter writer, Student student) throws IOException {
+        writer.field(student.getId())
+            .field(student.getRegNo())
+            .field(student.getFullName())
+            .field(student.getEmail())
+            .field(student.isActive() ? "Active" : "Inactive")
+            .endRecord();
+    }
+    
+    public static void writeCourse(CsvWriter writer, Course course) throws IOException {
+        writer.field(course.getCode())
+            .field(course.getTitle())
+            .field(course.getCredits())
+            .field(course.getInstructor())
+            .field(course.getSemester() != null ? course.getSemester().toString() : null)
+            .field(course.getDepartment())
+            .field(course.isActive() ? "Active" : "Inactive")
+            .endRecord();
+    }
+    
+    public static void writeEnrollment(CsvWriter writer, Enrollment enrollment) throws IOException {
+        Grade grade = enrollment.getGrade();
+        writer.field(enrollment.getStudent().getId())
+            .field(enrollment.getCourse().getCode())
+            .field(enrollment.getEnrollmentDate())
+            .field(grade != null ? grade.toString() : "Not graded")
+            .field(grade != null ? GRADE_POINTS[grade.ordinal()] : "0.0")
+            .endRecord();
     }
-}
+}
\ No newline at end of file
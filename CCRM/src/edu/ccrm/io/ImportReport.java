@@ -0,0 +1,35 @@
+package ccrm.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a parallel CSV import: how many rows were imported and which rows
+ * were skipped, with the file line they came from.
+ */
+public class ImportReport {
+    private final String fileName;
+    private final int importedCount;
+    private final List<String> problems;
+    private final long elapsedMillis;
+    
+    ImportReport(String fileName, int importedCount, List<String> problems, long elapsedMillis) {
+        this.fileName = fileName;
+        this.importedCount = importedCount;
+        this.problems = Collections.unmodifiableList(new ArrayList<>(problems));
+        this.elapsedMillis = elapsedMillis;
+    }
+    
+    public String getFileName() { return fileName; }
+    public int getImportedCount() { return importedCount; }
+    public int getSkippedCount() { return problems.size(); }
+    public List<String> getProblems() { return problems; }
+    public long getElapsedMillis() { return elapsedMillis; }
+    
+    @Override
+    public String toString() {
+        return String.format("Imported %d rows from %s in %d ms (%d skipped)",
+                           importedCount, fileName, elapsedMillis, problems.size());
+    }
+}
\ No newline at end of file
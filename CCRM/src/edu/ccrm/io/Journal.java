@@ -0,0 +1,627 @@
+package ccrm.io;
+
+import ccrm.domain.Course;
+import ccrm.domain.Enrollment;
+import ccrm.domain.Grade;
+import ccrm.domain.Semester;
+import ccrm.domain.Student;
+import ccrm.metrics.Counter;
+import ccrm.metrics.MetricsRegistry;
+import ccrm.metrics.Timer;
+import ccrm.service.ChangeListener;
+import ccrm.service.CourseService;
+import ccrm.service.StudentService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal of every service mutation, replayed on top of
+ * the latest snapshot at startup.
+ * <p>
+ * Registered as a {@link ChangeListener}, the journal appends one record per
+ * change and returns only once the record is on disk. A single flusher thread
+ * writes and fsyncs whatever has accumulated since its last sync, so writers
+ * that arrive while a sync is in progress share the next one (group commit):
+ * concurrent writers cost one fsync per batch rather than one each.
+ * <p>
+ * Records carry the full new state of what changed (a student, a course, one
+ * enrollment or grade) rather than the operation, so replaying a record twice
+ * is harmless. Each record is framed as length, CRC-32 and payload. A torn
+ * record at the end, left by a crash mid-write, is dropped when the journal is
+ * reopened.
+ * <p>
+ * Changes are applied in memory first and journaled from the listener callback,
+ * so a failed write leaves the change in memory but not on disk. The caller gets
+ * an {@link UncheckedIOException}, and the failure is sticky: every later change
+ * fails the same way, so nothing more is acknowledged until the application is
+ * restarted from the snapshot and the intact journal.
+ * <p>
+ * A checkpoint moves the records written so far to a previous segment (the
+ * journal file name plus {@code .old}) and deletes that segment once the
+ * snapshot is saved. Replay applies the previous segment, when one is left
+ * over, before the journal itself.
+ */
+public class Journal implements ChangeListener, Closeable {
+    private static final int MAGIC = 0x43434A4C; // "CCJL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int FRAME_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+    
+    private static final byte STUDENT = 1;
+    private static final byte COURSE = 2;
+    private static final byte ENROLL = 3;
+    private static final byte UNENROLL = 4;
+    private static final byte GRADE = 5;
+    // One sample per group commit: the write and fsync of a whole batch
+    private static final Timer SYNC_TIMER = MetricsRegistry.getInstance().timer("journal.sync");
+    private static final Counter BYTES_WRITTEN = MetricsRegistry.getInstance().counter("journal.bytesWritten");
+    
+    private final Path filePath;
+    private final FileChannel channel;
+    private final Thread flusher;
+    private final Object lock = new Object();
+    // Held for a whole checkpoint, never while appending, so checkpoints run one at a time
+    private final Object checkpointLock = new Object();
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private ByteArrayOutputStream spare = new ByteArrayOutputStream();
+    private long appendedSeq;
+    private long durableSeq;
+    private long syncCount;
+    private IOException failure;
+    private boolean closed;
+    
+    private Journal(Path filePath, FileChannel channel) {
+        this.filePath = filePath;
+        this.channel = channel;
+        this.flusher = new Thread(this::flushLoop, "journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+    
+    /**
+     * Opens (or creates) a journal for appending. Anything after the last
+     * complete record is truncated, so new records never follow a torn one.
+     */
+    public static Journal open(Path filePath) throws IOException {
+        FileChannel channel = FileChannel.open(filePath, StandardOpenOption.CREATE,
+                                               StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < HEADER_BYTES) {
+                channel.truncate(0);
+                channel.write(header(), 0);
+                channel.force(true);
+            } else {
+                checkHeader(channel, filePath);
+            }
+            long end = validLength(channel);
+            if (end < channel.size()) {
+                channel.truncate(end);
+                channel.force(true);
+            }
+            channel.position(end);
+            return new Journal(filePath, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Applies every complete record in the journal to the services, starting
+     * with the previous segment a failed or interrupted checkpoint left behind.
+     * Must run before the journal is registered as a listener, or the replay
+     * would be journaled again.
+     *
+     * @return the number of records applied
+     * @throws IOException if a record cannot be applied, such as an enrollment of
+     *                     a student or course the services do not hold; the
+     *                     journal does not match the state it was written against
+     */
+    public static int replay(Path filePath, StudentService studentService, CourseService courseService) throws IOException {
+        return replaySegment(previousSegment(filePath), studentService, courseService)
+            + replaySegment(filePath, studentService, courseService);
+    }
+    
+    private static int replaySegment(Path filePath, StudentService studentService, CourseService courseService) throws IOException {
+        if (!Files.exists(filePath)) {
+            return 0;
+        }
+        int replayed = 0;
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return 0;
+            }
+            checkHeader(channel, filePath);
+            long position = HEADER_BYTES;
+            byte[] payload;
+            while ((payload = readRecord(channel, position)) != null) {
+                try {
+                    apply(new DataInputStream(new ByteArrayInputStream(payload)), studentService, courseService);
+                    replayed++;
+                } catch (IOException | RuntimeException e) {
+                    // Skipping it would silently lose a committed change
+                    throw new IOException("Cannot apply record at offset " + position + " of " + filePath + ": " + e.getMessage(), e);
+                }
+                position += FRAME_BYTES + payload.length;
+            }
+        }
+        return replayed;
+    }
+    
+    /**
+     * Runs a checkpoint, normally a snapshot save, then drops the records it
+     * covers. The records so far move to the previous segment and the journal
+     * starts empty; the action then runs without holding the journal, so a
+     * writer that holds a student's lock stripe while appending cannot block a
+     * snapshot waiting for that stripe. A change made during the action stays
+     * in the journal whether or not the snapshot caught it, which replay
+     * tolerates since records carry full state. The previous segment is deleted
+     * only once the action succeeds, so every change is always in the snapshot
+     * or in a segment.
+     */
+    public void checkpoint(Checkpoint action) throws IOException {
+        synchronized (checkpointLock) {
+            Path previous = rotate();
+            action.run();
+            Files.deleteIfExists(previous);
+        }
+    }
+    
+    // Appends every record to the previous segment, then empties the journal
+    private Path rotate() throws IOException {
+        Path previous = previousSegment(filePath);
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            // Writers can queue more while this waits, so wait until nothing is in
+            // flight; then the flusher is idle and stays so while the lock is held
+            while (durableSeq < appendedSeq) {
+                awaitDurable(appendedSeq);
+            }
+            long end = channel.size();
+            // A segment left by an earlier failed checkpoint is extended, never replaced
+            try (FileChannel out = FileChannel.open(previous, StandardOpenOption.CREATE,
+                                                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                if (out.size() < HEADER_BYTES) {
+                    out.truncate(0);
+                    out.write(header(), 0);
+                } else {
+                    checkHeader(out, previous);
+                }
+                // Drop a torn tail, or the records copied after it could never be read
+                long start = validLength(out);
+                out.truncate(start);
+                out.position(start);
+                for (long position = HEADER_BYTES; position < end; ) {
+                    position += channel.transferTo(position, end - position, out);
+                }
+                out.force(true);
+            }
+            channel.truncate(HEADER_BYTES);
+            channel.position(HEADER_BYTES);
+            channel.force(true);
+        }
+        return previous;
+    }
+    
+    private static Path previousSegment(Path filePath) {
+        return filePath.resolveSibling(filePath.getFileName() + ".old");
+    }
+    
+    public long size() throws IOException {
+        return channel.size();
+    }
+    
+    /** Number of fsyncs so far; lower than the number of records when commits were grouped. */
+    public long getSyncCount() {
+        synchronized (lock) {
+            return syncCount;
+        }
+    }
+    
+    public long getRecordCount() {
+        synchronized (lock) {
+            return appendedSeq;
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        boolean interrupted = false;
+        while (flusher.isAlive()) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        channel.close();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    @Override
+    public void studentAdded(Student student) {
+        studentUpdated(student);
+    }
+    
+    @Override
+    public void studentUpdated(Student student) {
+        append(out -> {
+            out.writeByte(STUDENT);
+            out.writeUTF(student.getId());
+            out.writeUTF(student.getRegNo());
+            out.writeUTF(student.getFullName());
+            out.writeUTF(student.getEmail());
+            out.writeInt((int) student.getDateCreated().toEpochDay());
+            out.writeBoolean(student.isActive());
+        });
+    }
+    
+    @Override
+    public void courseAdded(Course course) {
+        courseUpdated(course);
+    }
+    
+    @Override
+    public void courseUpdated(Course course) {
+        append(out -> {
+            out.writeByte(COURSE);
+            out.writeUTF(course.getCode());
+            out.writeUTF(course.getTitle());
+            out.writeInt(course.getCredits());
+            writeNullable(out, course.getInstructor());
+            writeNullable(out, course.getSemester() != null ? course.getSemester().name() : null);
+            writeNullable(out, course.getDepartment());
+            out.writeBoolean(course.isActive());
+        });
+    }
+    
+    @Override
+    public void enrollmentAdded(Enrollment enrollment) {
+        append(out -> {
+            out.writeByte(ENROLL);
+            out.writeUTF(enrollment.getStudent().getId());
+            out.writeUTF(enrollment.getCourse().getCode());
+            out.writeInt((int) enrollment.getEnrollmentDate().toEpochDay());
+            writeNullable(out, enrollment.getGrade() != null ? enrollment.getGrade().name() : null);
+        });
+    }
+    
+    @Override
+    public void enrollmentRemoved(Enrollment enrollment) {
+        append(out -> {
+            out.writeByte(UNENROLL);
+            out.writeUTF(enrollment.getStudent().getId());
+            out.writeUTF(enrollment.getCourse().getCode());
+        });
+    }
+    
+    @Override
+    public void gradeRecorded(Enrollment enrollment, Grade previousGrade) {
+        append(out -> {
+            out.writeByte(GRADE);
+            out.writeUTF(enrollment.getStudent().getId());
+            out.writeUTF(enrollment.getCourse().getCode());
+            writeNullable(out, enrollment.getGrade() != null ? enrollment.getGrade().name() : null);
+        });
+    }
+    
+    /**
+     * Encodes a record, queues it for the flusher and waits until it is durable.
+     * Listener callbacks cannot throw checked exceptions, so a failed write
+     * surfaces as an {@link UncheckedIOException} to the caller that made the change.
+     */
+    private void append(RecordWriter writer) {
+        byte[] record;
+        try {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(64);
+            writer.write(new DataOutputStream(payload));
+            byte[] bytes = payload.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            record = ByteBuffer.allocate(FRAME_BYTES + bytes.length)
+                .putInt(bytes.length).putInt((int) crc.getValue()).put(bytes).array();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            pending.write(record, 0, record.length);
+            long seq = ++appendedSeq;
+            lock.notifyAll();
+            try {
+                awaitDurable(seq);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Journal write failed", e);
+            }
+        }
+    }
+    
+    // Caller holds the lock
+    private void awaitDurable(long seq) throws IOException {
+        boolean interrupted = false;
+        while (durableSeq < seq && failure == null) {
+            try {
+                lock.wait();
+            } catch (InterruptedException e) {
+                // The record is already queued; keep waiting so the caller learns its fate
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+    
+    private void flushLoop() {
+        while (true) {
+            ByteArrayOutputStream batch;
+            long batchSeq;
+            synchronized (lock) {
+                while (pending.size() == 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // Only close() stops the flusher
+                    }
+                }
+                if (pending.size() == 0) {
+                    return;
+                }
+                // Swap buffers so writers can queue the next batch while this one syncs
+                batch = pending;
+                pending = spare;
+                spare = batch;
+                batchSeq = appendedSeq;
+            }
+            long start = System.nanoTime();
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+                SYNC_TIMER.stop(start);
+                BYTES_WRITTEN.add(buffer.capacity());
+                synchronized (lock) {
+                    batch.reset();
+                    durableSeq = batchSeq;
+                    syncCount++;
+                    lock.notifyAll();
+                }
+            } catch (IOException e) {
+                SYNC_TIMER.recordError();
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+        }
+    }
+    
+    private static ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION);
+        header.flip();
+        return header;
+    }
+    
+    private static void checkHeader(FileChannel channel, Path filePath) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+            throw new IOException("Not a CCRM journal: " + filePath);
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported journal version " + version);
+        }
+    }
+    
+    private static long validLength(FileChannel channel) throws IOException {
+        long position = HEADER_BYTES;
+        byte[] payload;
+        while ((payload = readRecord(channel, position)) != null) {
+            position += FRAME_BYTES + payload.length;
+        }
+        return position;
+    }
+    
+    // Returns null at the end of the journal or at a torn or corrupt record
+    private static byte[] readRecord(FileChannel channel, long position) throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_BYTES);
+        if (readFully(channel, frame, position) < FRAME_BYTES) {
+            return null;
+        }
+        frame.flip();
+        int length = frame.getInt();
+        int checksum = frame.getInt();
+        if (length <= 0 || length > MAX_RECORD_BYTES) {
+            return null;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        if (readFully(channel, payload, position + FRAME_BYTES) < length) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload.array());
+        return (int) crc.getValue() == checksum ? payload.array() : null;
+    }
+    
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+    
+    private static void apply(DataInputStream in, StudentService studentService, CourseService courseService) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case STUDENT:
+                applyStudent(in, studentService);
+                break;
+            case COURSE:
+                applyCourse(in, courseService);
+                break;
+            // Students and courses are never removed, so a reference to a missing one means
+            // records were lost or reordered. Enrollment changes that no longer apply are
+            // skipped: records written while a checkpoint saved its snapshot are
+            // replayed on top of a snapshot that may already include them.
+            case ENROLL: {
+                Student student = requireStudent(studentService, in.readUTF());
+                Course course = requireCourse(courseService, in.readUTF());
+                LocalDate date = LocalDate.ofEpochDay(in.readInt());
+                String grade = readNullable(in);
+                if (!isEnrolled(student, course.getCode())) {
+                    Enrollment enrollment = new Enrollment(student, course, date);
+                    enrollment.setGrade(grade != null ? Grade.valueOf(grade) : null);
+                    studentService.restoreEnrollment(enrollment);
+                }
+                break;
+            }
+            case UNENROLL: {
+                Student student = requireStudent(studentService, in.readUTF());
+                studentService.unenrollFromCourse(student.getId(), requireCourse(courseService, in.readUTF()).getCode());
+                break;
+            }
+            case GRADE: {
+                Student student = requireStudent(studentService, in.readUTF());
+                String courseCode = requireCourse(courseService, in.readUTF()).getCode();
+                String grade = readNullable(in);
+                if (grade != null && isEnrolled(student, courseCode)) {
+                    studentService.recordGrade(student.getId(), courseCode, Grade.valueOf(grade));
+                }
+                break;
+            }
+            default:
+                throw new IOException("Unknown journal record type " + type);
+        }
+    }
+    
+    private static Student requireStudent(StudentService studentService, String id) throws IOException {
+        return studentService.findById(id).orElseThrow(() -> new IOException("Unknown student " + id));
+    }
+    
+    private static Course requireCourse(CourseService courseService, String code) throws IOException {
+        return courseService.findById(code).orElseThrow(() -> new IOException("Unknown course " + code));
+    }
+    
+    private static void applyStudent(DataInputStream in, StudentService studentService) throws IOException {
+        String id = in.readUTF();
+        String regNo = in.readUTF();
+        String fullName = in.readUTF();
+        String email = in.readUTF();
+        LocalDate created = LocalDate.ofEpochDay(in.readInt());
+        boolean active = in.readBoolean();
+        
+        Optional<Student> existing = studentService.findById(id);
+        if (existing.isPresent()) {
+            studentService.updateStudent(id, fullName, email);
+            studentService.changeRegNo(id, regNo);
+            if (!active && existing.get().isActive()) {
+                studentService.deactivateStudent(id);
+            } else if (active) {
+                existing.get().setActive(true);
+            }
+        } else {
+            Student student = new Student(id, regNo, fullName, email);
+            student.setDateCreated(created);
+            student.setActive(active);
+            studentService.addStudent(student);
+        }
+    }
+    
+    private static void applyCourse(DataInputStream in, CourseService courseService) throws IOException {
+        String code = in.readUTF();
+        String title = in.readUTF();
+        int credits = in.readInt();
+        String instructor = readNullable(in);
+        String semesterName = readNullable(in);
+        Semester semester = semesterName != null ? Semester.valueOf(semesterName) : null;
+        String department = readNullable(in);
+        boolean active = in.readBoolean();
+        
+        Optional<Course> existing = courseService.findById(code);
+        if (existing.isPresent()) {
+            courseService.updateCourse(code, title, credits, instructor, semester, department);
+            if (!active && existing.get().isActive()) {
+                courseService.deactivateCourse(code);
+            } else if (active) {
+                existing.get().setActive(true);
+            }
+        } else {
+            Course course = new Course.Builder(code, title)
+                .credits(credits)
+                .instructor(instructor)
+                .semester(semester)
+                .department(department)
+                .build();
+            course.setActive(active);
+            courseService.addCourse(course);
+        }
+    }
+    
+    private static boolean isEnrolled(Student student, String courseCode) {
+        return student.getEnrollments().stream()
+            .anyMatch(e -> e.getCourse().getCode().equals(courseCode));
+    }
+    
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+    
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+    
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+    
+    @FunctionalInterface
+    public interface Checkpoint {
+        void run() throws IOException;
+    }
+}
\ No newline at end of file
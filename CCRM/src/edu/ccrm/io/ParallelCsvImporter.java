@@ -0,0 +1,330 @@
+package ccrm.io;
+
+import ccrm.domain.Course;
+import ccrm.domain.Student;
+import ccrm.service.CourseService;
+import ccrm.service.StudentService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Imports large CSV files on several cores.
+ * <p>
+ * The file is split into byte ranges that start right after a newline. Each
+ * range is parsed and validated on a worker thread with its own
+ * {@link CsvReader}. Duplicate keys are then resolved across all chunks, and
+ * the first occurrence in file order wins, just as with the sequential
+ * importer. Finally the surviving rows are added to the service in file order.
+ * <p>
+ * Ranges are aligned on newlines, so every record must fit on one line. Files
+ * with line breaks inside quoted fields must go through the sequential
+ * importers in {@link ImportExportService}.
+ */
+public class ParallelCsvImporter {
+    private static final long MIN_CHUNK_BYTES = 1L << 20;
+    private static final int HEADER_LINES = 1;
+    
+    private final StudentService studentService;
+    private final CourseService courseService;
+    private final int threads;
+    
+    public ParallelCsvImporter(StudentService studentService, CourseService courseService) {
+        this(studentService, courseService, Runtime.getRuntime().availableProcessors());
+    }
+    
+    public ParallelCsvImporter(StudentService studentService, CourseService courseService, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        this.studentService = studentService;
+        this.courseService = courseService;
+        this.threads = threads;
+    }
+    
+    public ImportReport importStudents(Path filePath) throws IOException {
+        List<Key<Student>> keys = Arrays.asList(
+            new Key<>("Student with ID", Student::getId,
+                      id -> studentService.findById(id).isPresent()),
+            new Key<>("Student with registration number", Student::getRegNo,
+                      regNo -> studentService.findByRegNo(regNo).isPresent()));
+        return importFile(filePath, ImportExportService::parseStudent, keys, studentService::addStudent);
+    }
+    
+    public ImportReport importCourses(Path filePath) throws IOException {
+        List<Key<Course>> keys = Arrays.asList(
+            new Key<>("Course with code", Course::getCode,
+                      code -> courseService.findById(code).isPresent()));
+        return importFile(filePath, ImportExportService::parseCourse, keys, courseService::addCourse);
+    }
+    
+    private <T> ImportReport importFile(Path filePath, Function<CsvReader, T> parser,
+                                        List<Key<T>> keys, Consumer<T> adder) throws IOException {
+        long started = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            List<Chunk<T>> chunks = split(channel);
+            
+            // Phase 1: parse and validate each range on the pool
+            List<Callable<Void>> parseTasks = new ArrayList<>();
+            for (Chunk<T> chunk : chunks) {
+                parseTasks.add(() -> {
+                    parseChunk(channel, chunk, parser);
+                    return null;
+                });
+            }
+            runAll(pool, parseTasks);
+            
+            // Phase 2: the lowest (chunk, row) position claims each key, across all chunks
+            List<Map<String, Long>> claims = new ArrayList<>();
+            for (int k = 0; k < keys.size(); k++) {
+                claims.add(new ConcurrentHashMap<>());
+            }
+            List<Callable<Void>> claimTasks = new ArrayList<>();
+            for (Chunk<T> chunk : chunks) {
+                claimTasks.add(() -> {
+                    for (int r = 0; r < chunk.rows.size(); r++) {
+                        long position = position(chunk.index, r);
+                        for (int k = 0; k < keys.size(); k++) {
+                            claims.get(k).merge(keys.get(k).extractor.apply(chunk.rows.get(r)), position, Math::min);
+                        }
+                    }
+                    return null;
+                });
+            }
+            runAll(pool, claimTasks);
+            
+            List<Callable<Void>> dedupeTasks = new ArrayList<>();
+            for (Chunk<T> chunk : chunks) {
+                dedupeTasks.add(() -> {
+                    dedupeChunk(chunk, keys, claims);
+                    return null;
+                });
+            }
+            runAll(pool, dedupeTasks);
+            
+            // Phase 3: merge into the service in file order
+            List<String> problems = new ArrayList<>();
+            int imported = 0;
+            int firstLine = HEADER_LINES + 1;
+            for (Chunk<T> chunk : chunks) {
+                for (int r = 0; r < chunk.rows.size(); r++) {
+                    if (chunk.accepted[r]) {
+                        try {
+                            adder.accept(chunk.rows.get(r));
+                            imported++;
+                        } catch (RuntimeException e) {
+                            chunk.problem(chunk.rowRecords.get(r), e.getMessage());
+                        }
+                    }
+                }
+                chunk.problems.sort((a, b) -> Integer.compare(a.record, b.record));
+                for (Problem problem : chunk.problems) {
+                    problems.add("Line " + (firstLine + problem.record) + ": " + problem.message);
+                }
+                firstLine += chunk.records;
+            }
+            
+            long elapsed = (System.nanoTime() - started) / 1_000_000;
+            return new ImportReport(filePath.getFileName().toString(), imported, problems, elapsed);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    private <T> List<Chunk<T>> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        // The header is the first line; data starts at the first line break after byte 0
+        long dataStart = nextLineStart(channel, 1, size);
+        long dataBytes = size - dataStart;
+        
+        int count = (int) Math.max(1, Math.min(threads * 4L, dataBytes / MIN_CHUNK_BYTES));
+        List<Chunk<T>> chunks = new ArrayList<>();
+        long start = dataStart;
+        for (int i = 1; i <= count && start < size; i++) {
+            long end = i == count ? size : nextLineStart(channel, dataStart + dataBytes * i / count, size);
+            if (end > start) {
+                chunks.add(new Chunk<>(chunks.size(), start, end));
+                start = end;
+            }
+        }
+        return chunks;
+    }
+    
+    // First offset at or after 'from' that begins a line (or the file size)
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long position = from - 1;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+    
+    private static <T> void parseChunk(FileChannel channel, Chunk<T> chunk, Function<CsvReader, T> parser) throws IOException {
+        InputStream in = new RangeInputStream(channel, chunk.start, chunk.end);
+        try (CsvReader reader = new CsvReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            while (reader.next()) {
+                int record = chunk.records++;
+                try {
+                    T row = parser.apply(reader);
+                    if (row != null) {
+                        chunk.rows.add(row);
+                        chunk.rowRecords.add(record);
+                    } else if (reader.size() > 1 || !reader.get(0).trim().isEmpty()) {
+                        chunk.problem(record, "Too few columns");
+                    }
+                } catch (RuntimeException e) {
+                    chunk.problem(record, "Invalid row - " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private static <T> void dedupeChunk(Chunk<T> chunk, List<Key<T>> keys, List<Map<String, Long>> claims) {
+        chunk.accepted = new boolean[chunk.rows.size()];
+        for (int r = 0; r < chunk.rows.size(); r++) {
+            T row = chunk.rows.get(r);
+            long position = position(chunk.index, r);
+            String rejection = null;
+            for (int k = 0; k < keys.size() && rejection == null; k++) {
+                Key<T> key = keys.get(k);
+                String value = key.extractor.apply(row);
+                if (claims.get(k).get(value) != position) {
+                    rejection = key.label + " " + value + " appears earlier in the file";
+                } else if (key.existing.test(value)) {
+                    rejection = key.label + " " + value + " already exists";
+                }
+            }
+            if (rejection == null) {
+                chunk.accepted[r] = true;
+            } else {
+                chunk.problem(chunk.rowRecords.get(r), rejection);
+            }
+        }
+    }
+    
+    private static long position(int chunkIndex, int row) {
+        return ((long) chunkIndex << 32) | row;
+    }
+    
+    private static void runAll(ExecutorService pool, List<Callable<Void>> tasks) throws IOException {
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Import failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+    
+    private static class Key<T> {
+        final String label;
+        final Function<T, String> extractor;
+        final Predicate<String> existing;
+        
+        Key(String label, Function<T, String> extractor, Predicate<String> existing) {
+            this.label = label;
+            this.extractor = extractor;
+            this.existing = existing;
+        }
+    }
+    
+    private static class Problem {
+        final int record;
+        final String message;
+        
+        Problem(int record, String message) {
+            this.record = record;
+            this.message = message;
+        }
+    }
+    
+    private static class Chunk<T> {
+        final int index;
+        final long start;
+        final long end;
+        final List<T> rows = new ArrayList<>();
+        final List<Integer> rowRecords = new ArrayList<>();
+        final List<Problem> problems = new ArrayList<>();
+        boolean[] accepted;
+        int records;
+        
+        Chunk(int index, long start, long end) {
+            this.index = index;
+            this.start = start;
+            this.end = end;
+        }
+        
+        void problem(int record, String message) {
+            problems.add(new Problem(record, message));
+        }
+    }
+    
+    /** Reads [start, end) of a channel with positional reads, so workers can share one channel. */
+    private static class RangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+        
+        RangeInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int wanted = (int) Math.min(len, end - position);
+            int read = channel.read(ByteBuffer.wrap(b, off, wanted), position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,161 @@
+package ccrm.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip output stream that compresses fixed-size blocks on several threads.
+ * <p>
+ * Each block becomes an independent gzip member, and the members are written
+ * in order. A multi-member file is still a valid gzip file: {@code gunzip} and
+ * {@link java.util.zip.GZIPInputStream} read it as one stream. Only a bounded
+ * number of blocks is in flight at a time, so memory use does not depend on how
+ * much data is written.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+    
+    private final OutputStream out;
+    private final int level;
+    private final int blockSize;
+    private final int maxInFlight;
+    private final ExecutorService pool;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private byte[] block;
+    private int count;
+    private boolean closed;
+    
+    public ParallelGzipOutputStream(OutputStream out) {
+        this(out, Deflater.DEFAULT_COMPRESSION, Runtime.getRuntime().availableProcessors());
+    }
+    
+    public ParallelGzipOutputStream(OutputStream out, int level, int threads) {
+        this(out, level, threads, DEFAULT_BLOCK_SIZE);
+    }
+    
+    public ParallelGzipOutputStream(OutputStream out, int level, int threads, int blockSize) {
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Compression level must be between 0 and 9");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        this.out = out;
+        this.level = level;
+        this.blockSize = blockSize;
+        this.maxInFlight = threads * 2;
+        this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "gzip-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.block = new byte[blockSize];
+    }
+    
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        block[count++] = (byte) b;
+        if (count == blockSize) {
+            submitBlock();
+        }
+    }
+    
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int n = Math.min(len, blockSize - count);
+            System.arraycopy(b, off, block, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == blockSize) {
+                submitBlock();
+            }
+        }
+    }
+    
+    /** Flushes only completed members; a partial block is kept so it can still fill up. */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        while (!pending.isEmpty() && pending.peekFirst().isDone()) {
+            writeNext();
+        }
+        out.flush();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (count > 0 || pending.isEmpty()) {
+                submitBlock();
+            }
+            while (!pending.isEmpty()) {
+                writeNext();
+            }
+            out.flush();
+        } finally {
+            pool.shutdownNow();
+            out.close();
+        }
+    }
+    
+    private void submitBlock() throws IOException {
+        byte[] data = block;
+        int length = count;
+        pending.addLast(pool.submit(() -> compress(data, length)));
+        block = new byte[blockSize];
+        count = 0;
+        while (pending.size() >= maxInFlight) {
+            writeNext();
+        }
+    }
+    
+    private void writeNext() throws IOException {
+        try {
+            out.write(pending.removeFirst().get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Compression interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("Compression failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+    
+    private byte[] compress(byte[] data, int length) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, length / 2));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer, 64 * 1024) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            gzip.write(data, 0, length);
+        }
+        return buffer.toByteArray();
+    }
+    
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
\ No newline at end of file
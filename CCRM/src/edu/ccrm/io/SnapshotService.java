@@ -0,0 +1,423 @@
+package ccrm.io;
+
+import ccrm.domain.Course;
+import ccrm.domain.Enrollment;
+import ccrm.domain.Grade;
+import ccrm.domain.Semester;
+import ccrm.domain.Student;
+import ccrm.metrics.MetricsRegistry;
+import ccrm.metrics.Timer;
+import ccrm.service.CourseService;
+import ccrm.service.StudentService;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Saves and loads the complete student, course and enrollment state as a
+ * compact binary snapshot, so startup does not have to parse and validate CSV.
+ * <p>
+ * Layout (version 1), all integers big-endian:
+ * <pre>
+ *   magic "CCRM" | version u16 | created epoch-millis i64
+ *   enum tables: semester names, grade names (later bytes are indexes into these)
+ *   courses:  count, then code, title, credits, instructor?, semester#, department?, active
+ *   students: count, then id, regNo, name, email, created epoch-day, active,
+ *             enrollment count, then per enrollment: course#, epoch-day, grade#
+ *   CRC-32 of everything above
+ * </pre>
+ * Strings are a varint of (UTF-8 length + 1) followed by the bytes, with 0 for
+ * null. Enrollments point at courses by position in the course section, and
+ * enums are stored by position in the name tables, so reordering an enum does
+ * not break old snapshots.
+ */
+public class SnapshotService {
+    private static final int MAGIC = 0x4343524D; // "CCRM"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int NONE = 0xFF;
+    private static final Timer SAVE_TIMER = MetricsRegistry.getInstance().timer("snapshot.save");
+    private static final Timer LOAD_TIMER = MetricsRegistry.getInstance().timer("snapshot.load");
+    
+    private final StudentService studentService;
+    private final CourseService courseService;
+    
+    public SnapshotService(StudentService studentService, CourseService courseService) {
+        this.studentService = studentService;
+        this.courseService = courseService;
+    }
+    
+    /**
+     * Writes the snapshot to a temporary file and renames it into place, so a
+     * crash never leaves a half-written snapshot under the real name.
+     */
+    public void save(Path filePath) throws IOException {
+        SAVE_TIMER.time(() -> doSave(filePath));
+    }
+    
+    private void doSave(Path filePath) throws IOException {
+        Path temp = filePath.resolveSibling(filePath.getFileName() + ".tmp");
+        try {
+            write(temp);
+            Files.move(temp, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            // Never leave a partial snapshot behind
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+    
+    private void write(Path temp) throws IOException {
+        CRC32 crc = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(Files.newOutputStream(temp), crc), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            
+            writeVarInt(out, Semester.values().length);
+            for (Semester semester : Semester.values()) {
+                writeString(out, semester.name());
+            }
+            writeVarInt(out, Grade.values().length);
+            for (Grade grade : Grade.values()) {
+                writeString(out, grade.name());
+            }
+            
+            List<Course> courses = courseService.findAll();
+            Map<Course, Integer> courseIndex = new HashMap<>();
+            out.writeInt(courses.size());
+            for (Course course : courses) {
+                courseIndex.put(course, courseIndex.size());
+                writeString(out, course.getCode());
+                writeString(out, course.getTitle());
+                writeVarInt(out, course.getCredits());
+                writeString(out, course.getInstructor());
+                out.writeByte(course.getSemester() != null ? course.getSemester().ordinal() : NONE);
+                writeString(out, course.getDepartment());
+                out.writeBoolean(course.isActive());
+            }
+            
+            List<Student> students = studentService.findAll();
+            out.writeInt(students.size());
+            for (Student student : students) {
+                writeString(out, student.getId());
+                writeString(out, student.getRegNo());
+                writeString(out, student.getFullName());
+                writeString(out, student.getEmail());
+                out.writeInt((int) student.getDateCreated().toEpochDay());
+                out.writeBoolean(student.isActive());
+                
+                // The count and the rows must agree, so the list may not change between them
+                synchronized (studentService.lockFor(student.getId())) {
+                    List<Enrollment> enrollments = student.getEnrollments();
+                    writeVarInt(out, enrollments.size());
+                    for (Enrollment enrollment : enrollments) {
+                        Integer index = courseIndex.get(enrollment.getCourse());
+                        if (index == null) {
+                            throw new IllegalStateException("Enrollment refers to unknown course " + enrollment.getCourse().getCode());
+                        }
+                        writeVarInt(out, index);
+                        out.writeInt((int) enrollment.getEnrollmentDate().toEpochDay());
+                        out.writeByte(enrollment.getGrade() != null ? enrollment.getGrade().ordinal() : NONE);
+                    }
+                }
+            }
+            
+            out.flush();
+            // The checksum covers everything written so far and is not part of itself
+            out.writeInt((int) crc.getValue());
+        }
+    }
+    
+    /**
+     * Loads a snapshot into the (empty) services this instance was created with.
+     * The checksum is verified over the whole file before anything is decoded,
+     * so a damaged snapshot adds nothing to the services.
+     *
+     * @throws IllegalStateException if either service already holds data
+     * @throws IOException if the file is not a snapshot, has an unsupported
+     *                     version, is truncated, fails its checksum or holds
+     *                     values that cannot be decoded
+     */
+    public void load(Path filePath) throws IOException {
+        LOAD_TIMER.time(() -> doLoad(filePath));
+    }
+    
+    private void doLoad(Path filePath) throws IOException {
+        if (!studentService.findAll().isEmpty() || !courseService.findAll().isEmpty()) {
+            throw new IllegalStateException("Snapshots can only be loaded into empty services");
+        }
+        
+        long size = Files.size(filePath);
+        verifyChecksum(filePath, size);
+        
+        try (Input in = new Input(Files.newInputStream(filePath), size)) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a CCRM snapshot: " + filePath);
+            }
+            int version = in.readShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            in.readLong(); // Creation time, informational only
+            
+            Semester[] semesters = new Semester[in.readCount(in.readVarInt())];
+            for (int i = 0; i < semesters.length; i++) {
+                semesters[i] = Semester.valueOf(in.readString());
+            }
+            Grade[] grades = new Grade[in.readCount(in.readVarInt())];
+            for (int i = 0; i < grades.length; i++) {
+                grades[i] = Grade.valueOf(in.readString());
+            }
+            
+            Course[] courses = new Course[in.readCount(in.readInt())];
+            for (int i = 0; i < courses.length; i++) {
+                Course course = new Course.Builder(in.readString(), in.readString())
+                    .credits(in.readVarInt())
+                    .instructor(in.readString())
+                    .semester(lookup(semesters, in.readByte()))
+                    .department(in.readString())
+                    .build();
+                course.setActive(in.readBoolean());
+                courseService.addCourse(course);
+                courses[i] = course;
+            }
+            
+            int studentCount = in.readCount(in.readInt());
+            for (int i = 0; i < studentCount; i++) {
+                Student student = new Student(in.readString(), in.readString(), in.readString(), in.readString());
+                student.setDateCreated(LocalDate.ofEpochDay(in.readInt()));
+                student.setActive(in.readBoolean());
+                studentService.addStudent(student);
+                
+                int enrollmentCount = in.readCount(in.readVarInt());
+                for (int e = 0; e < enrollmentCount; e++) {
+                    int courseIndex = in.readVarInt();
+                    if (courseIndex < 0 || courseIndex >= courses.length) {
+                        throw new IOException("Corrupt snapshot: course index " + courseIndex + " out of range");
+                    }
+                    Enrollment enrollment = new Enrollment(student, courses[courseIndex], LocalDate.ofEpochDay(in.readInt()));
+                    // Grade before attaching, so the GPA totals are computed once
+                    enrollment.setGrade(lookup(grades, in.readByte()));
+                    studentService.restoreEnrollment(enrollment);
+                }
+            }
+            
+            int expected = (int) in.checksum();
+            if (in.readInt() != expected) {
+                throw new IOException("Snapshot checksum mismatch: " + filePath);
+            }
+        } catch (RuntimeException e) {
+            // Values that passed the checksum but do not decode, such as an unknown enum name
+            throw new IOException("Corrupt snapshot: " + e, e);
+        }
+    }
+    
+    // Checks the trailing CRC-32 against the rest of the file in one streaming pass
+    private static void verifyChecksum(Path filePath, long size) throws IOException {
+        if (size < 4) {
+            throw new IOException("Not a CCRM snapshot: " + filePath);
+        }
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(filePath)) {
+            long left = size - 4;
+            while (left > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, left));
+                if (read < 0) {
+                    throw new EOFException("Truncated snapshot");
+                }
+                crc.update(buffer, 0, read);
+                left -= read;
+            }
+            int stored = 0;
+            for (int i = 0; i < 4; i++) {
+                int b = in.read();
+                if (b < 0) {
+                    throw new EOFException("Truncated snapshot");
+                }
+                stored = (stored << 8) | b;
+            }
+            if (stored != (int) crc.getValue()) {
+                throw new IOException("Snapshot checksum mismatch: " + filePath);
+            }
+        }
+    }
+    
+    private static <E> E lookup(E[] table, int index) throws IOException {
+        if (index == NONE) {
+            return null;
+        }
+        if (index >= table.length) {
+            throw new IOException("Corrupt snapshot: enum index " + index + " out of range");
+        }
+        return table[index];
+    }
+    
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+    
+    // Unsigned LEB128: 7 bits per byte, high bit set on all but the last
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+    
+    /**
+     * Buffered big-endian reader that decodes straight out of a large byte
+     * array and checksums each refill as a block rather than byte by byte.
+     */
+    private static final class Input implements AutoCloseable {
+        private final InputStream in;
+        private final CRC32 crc = new CRC32();
+        private byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private int limit;
+        private int checksummed;
+        // Bytes of the file not yet read into the buffer
+        private long unread;
+        
+        Input(InputStream in, long size) {
+            this.in = in;
+            this.unread = size;
+        }
+        
+        int readByte() throws IOException {
+            require(1);
+            return buffer[position++] & 0xFF;
+        }
+        
+        boolean readBoolean() throws IOException {
+            return readByte() != 0;
+        }
+        
+        int readShort() throws IOException {
+            require(2);
+            int value = ((buffer[position] & 0xFF) << 8) | (buffer[position + 1] & 0xFF);
+            position += 2;
+            return value;
+        }
+        
+        int readInt() throws IOException {
+            require(4);
+            int value = ((buffer[position] & 0xFF) << 24) | ((buffer[position + 1] & 0xFF) << 16)
+                      | ((buffer[position + 2] & 0xFF) << 8) | (buffer[position + 3] & 0xFF);
+            position += 4;
+            return value;
+        }
+        
+        long readLong() throws IOException {
+            return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+        }
+        
+        int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Corrupt snapshot: malformed varint");
+        }
+        
+        String readString() throws IOException {
+            int encoded = readVarInt();
+            if (encoded == 0) {
+                return null;
+            }
+            int length = encoded - 1;
+            require(length);
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+        
+        /**
+         * Checks a decoded element count. Every element takes at least one byte,
+         * so a count larger than the rest of the file is corrupt, and rejecting it
+         * keeps a damaged count from sizing a huge array.
+         */
+        int readCount(int count) throws IOException {
+            if (count < 0 || count > limit - position + unread) {
+                throw new IOException("Corrupt snapshot: count " + count + " out of range");
+            }
+            return count;
+        }
+        
+        /** CRC-32 of every byte consumed so far. */
+        long checksum() {
+            crc.update(buffer, checksummed, position - checksummed);
+            checksummed = position;
+            return crc.getValue();
+        }
+        
+        // Makes at least n unread bytes available, compacting and growing the buffer as needed
+        private void require(int n) throws IOException {
+            if (n < 0) {
+                throw new IOException("Corrupt snapshot: negative length " + n);
+            }
+            if (limit - position >= n) {
+                return;
+            }
+            // Checked before growing the buffer, so a damaged length cannot force a huge allocation
+            if (n > limit - position + unread) {
+                throw new EOFException("Truncated snapshot");
+            }
+            crc.update(buffer, checksummed, position - checksummed);
+            int remaining = limit - position;
+            if (n > buffer.length) {
+                byte[] larger = new byte[Math.max(n, buffer.length * 2)];
+                System.arraycopy(buffer, position, larger, 0, remaining);
+                buffer = larger;
+            } else {
+                System.arraycopy(buffer, position, buffer, 0, remaining);
+            }
+            position = 0;
+            limit = remaining;
+            checksummed = 0;
+            while (limit < n) {
+                int read = in.read(buffer, limit, buffer.length - limit);
+                if (read < 0) {
+                    throw new EOFException("Truncated snapshot");
+                }
+                limit += read;
+                unread -= read;
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,204 @@
+package ccrm.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal ustar reader and writer for backup archives: regular files only, with
+ * names of up to 100 bytes. Anything else is rejected rather than mangled.
+ */
+final class TarArchive {
+    private static final int BLOCK = 512;
+    
+    private TarArchive() {
+    }
+    
+    static void writeEntry(OutputStream out, String name, Path file) throws IOException {
+        long size = Files.size(file);
+        out.write(header(name, size, Files.getLastModifiedTime(file).toMillis() / 1000));
+        long copied = Files.copy(file, out);
+        if (copied != size) {
+            throw new IOException("File changed while archiving: " + file);
+        }
+        pad(out, size);
+    }
+    
+    /** Writes the two empty blocks that end an archive. */
+    static void finish(OutputStream out) throws IOException {
+        out.write(new byte[BLOCK * 2]);
+    }
+    
+    /**
+     * Extracts every regular file into the target directory and returns the
+     * extracted paths. Existing files are never overwritten.
+     */
+    static List<Path> extract(InputStream in, Path targetDir) throws IOException {
+        List<Path> extracted = new ArrayList<>();
+        Path root = targetDir.toAbsolutePath().normalize();
+        byte[] header = new byte[BLOCK];
+        while (readFully(in, header)) {
+            if (isZero(header)) {
+                break;
+            }
+            verifyChecksum(header);
+            String name = text(header, 0, 100);
+            long size = number(header, 124, 12);
+            char type = (char) header[156];
+            if (type != '0' && type != '\0') {
+                throw new IOException("Unsupported archive entry type '" + type + "' for " + name);
+            }
+            Path target;
+            try {
+                target = root.resolve(name).normalize();
+            } catch (InvalidPathException e) {
+                throw new IOException("Corrupt archive header: invalid entry name " + name, e);
+            }
+            if (!target.startsWith(root)) {
+                throw new IOException("Archive entry escapes target directory: " + name);
+            }
+            Files.createDirectories(target.getParent());
+            try (OutputStream out = Files.newOutputStream(target, StandardOpenOption.CREATE_NEW)) {
+                copy(in, out, size);
+            }
+            skip(in, (BLOCK - size % BLOCK) % BLOCK);
+            extracted.add(target);
+        }
+        return extracted;
+    }
+    
+    private static byte[] header(String name, long size, long mtime) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > 100) {
+            throw new IOException("Archive entry name too long: " + name);
+        }
+        byte[] header = new byte[BLOCK];
+        System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+        octal(header, 100, 8, 0644);
+        octal(header, 108, 8, 0);
+        octal(header, 116, 8, 0);
+        octal(header, 124, 12, size);
+        octal(header, 136, 12, mtime);
+        header[156] = '0';
+        put(header, 257, "ustar\0");
+        put(header, 263, "00");
+        
+        // Checksum is computed with its own field set to spaces
+        for (int i = 148; i < 156; i++) {
+            header[i] = ' ';
+        }
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xff;
+        }
+        octal(header, 148, 7, checksum);
+        return header;
+    }
+    
+    // Zero-padded octal digits followed by a NUL terminator
+    private static void octal(byte[] header, int offset, int width, long value) throws IOException {
+        String digits = Long.toOctalString(value);
+        if (digits.length() > width - 1) {
+            throw new IOException("Value too large for archive header: " + value);
+        }
+        int pad = width - 1 - digits.length();
+        for (int i = 0; i < pad; i++) {
+            header[offset + i] = '0';
+        }
+        put(header, offset + pad, digits);
+        header[offset + width - 1] = 0;
+    }
+    
+    // A damaged or foreign header fails here rather than being read as an entry
+    private static void verifyChecksum(byte[] header) throws IOException {
+        long stored = number(header, 148, 8);
+        long unsigned = 0;
+        long signed = 0;
+        for (int i = 0; i < BLOCK; i++) {
+            int b = i >= 148 && i < 156 ? ' ' : header[i];
+            unsigned += b & 0xff;
+            signed += b;
+        }
+        // Some older tar writers summed signed bytes
+        if (stored != unsigned && stored != signed) {
+            throw new IOException("Corrupt archive header: checksum mismatch");
+        }
+    }
+    
+    private static long number(byte[] header, int offset, int width) throws IOException {
+        String digits = text(header, offset, width).trim();
+        try {
+            long value = Long.parseLong(digits, 8);
+            if (value < 0) {
+                throw new NumberFormatException("negative");
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IOException("Corrupt archive header: bad number '" + digits + "' at offset " + offset, e);
+        }
+    }
+    
+    private static void put(byte[] header, int offset, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+    
+    private static String text(byte[] header, int offset, int width) {
+        int end = offset;
+        while (end < offset + width && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+    
+    private static void pad(OutputStream out, long size) throws IOException {
+        int padding = (int) ((BLOCK - size % BLOCK) % BLOCK);
+        out.write(new byte[padding]);
+    }
+    
+    private static boolean isZero(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean readFully(InputStream in, byte[] buffer) throws IOException {
+        int read = in.readNBytes(buffer, 0, buffer.length);
+        if (read == 0) {
+            return false;
+        }
+        if (read < buffer.length) {
+            throw new EOFException("Truncated archive");
+        }
+        return true;
+    }
+    
+    private static void copy(InputStream in, OutputStream out, long size) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        while (size > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, size));
+            if (read < 0) {
+                throw new EOFException("Truncated archive");
+            }
+            out.write(buffer, 0, read);
+            size -= read;
+        }
+    }
+    
+    private static void skip(InputStream in, long bytes) throws IOException {
+        if (in.readNBytes((int) bytes).length != bytes) {
+            throw new EOFException("Truncated archive");
+        }
+    }
+}
\ No newline at end of file
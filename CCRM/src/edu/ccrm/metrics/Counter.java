@@ -0,0 +1,35 @@
+package ccrm.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** A running total, updated without locking; see {@link MetricsRegistry#counter}. */
+public class Counter implements CounterMBean {
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    
+    Counter(String name) {
+        this.name = name;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void increment() {
+        count.increment();
+    }
+    
+    public void add(long amount) {
+        count.add(amount);
+    }
+    
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+    
+    @Override
+    public void reset() {
+        count.reset();
+    }
+}
@@ -0,0 +1,7 @@
+package ccrm.metrics;
+
+/** JMX view of a {@link Counter}. */
+public interface CounterMBean {
+    long getCount();
+    void reset();
+}
@@ -0,0 +1,104 @@
+package ccrm.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide set of named {@link Timer}s and {@link Counter}s.
+ * <p>
+ * Instrumented classes look their metrics up once, into static fields, so the
+ * hot path never touches the registry. After {@link #registerMBeans} every
+ * metric, including ones created later, is also published on the platform
+ * MBean server as {@code ccrm:type=Timer,name=...} or
+ * {@code ccrm:type=Counter,name=...}, where JConsole and other JMX clients
+ * can read and reset it.
+ */
+public class MetricsRegistry {
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+    
+    private final Map<String, Timer> timers = new ConcurrentSkipListMap<>();
+    private final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    // Set once MBeans are registered; guarded by this
+    private MBeanServer mbeanServer;
+    
+    private MetricsRegistry() {
+    }
+    
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+    
+    /** The timer with the given name, created on first use. */
+    public Timer timer(String name) {
+        Timer timer = timers.get(name);
+        return timer != null ? timer : register(timers, name, new Timer(name), "Timer");
+    }
+    
+    /** The counter with the given name, created on first use. */
+    public Counter counter(String name) {
+        Counter counter = counters.get(name);
+        return counter != null ? counter : register(counters, name, new Counter(name), "Counter");
+    }
+    
+    /** Snapshots of every timer, by name. */
+    public List<Timer.Snapshot> getTimerSnapshots() {
+        List<Timer.Snapshot> snapshots = new ArrayList<>(timers.size());
+        timers.values().forEach(timer -> snapshots.add(timer.snapshot()));
+        return snapshots;
+    }
+    
+    /** Every counter, by name. */
+    public List<Counter> getCounters() {
+        return new ArrayList<>(counters.values());
+    }
+    
+    public void reset() {
+        timers.values().forEach(Timer::reset);
+        counters.values().forEach(Counter::reset);
+    }
+    
+    /** Publishes every metric, now and from here on, on the platform MBean server. */
+    public synchronized void registerMBeans() throws JMException {
+        if (mbeanServer != null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (Timer timer : timers.values()) {
+            registerMBean(server, timer, "Timer", timer.getName());
+        }
+        for (Counter counter : counters.values()) {
+            registerMBean(server, counter, "Counter", counter.getName());
+        }
+        mbeanServer = server;
+    }
+    
+    private synchronized <T> T register(Map<String, T> metrics, String name, T metric, String type) {
+        T existing = metrics.putIfAbsent(name, metric);
+        if (existing != null) {
+            return existing;
+        }
+        if (mbeanServer != null) {
+            try {
+                registerMBean(mbeanServer, metric, type, name);
+            } catch (JMException e) {
+                // The metric still works in-process; it is only missing from JMX
+                System.err.println("Could not publish metric " + name + " over JMX: " + e.getMessage());
+            }
+        }
+        return metric;
+    }
+    
+    private static void registerMBean(MBeanServer server, Object metric, String type, String name) throws JMException {
+        ObjectName objectName = new ObjectName("ccrm:type=" + type + ",name=" + name);
+        if (!server.isRegistered(objectName)) {
+            server.registerMBean(metric, objectName);
+        }
+    }
+}
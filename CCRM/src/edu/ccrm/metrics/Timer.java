@@ -0,0 +1,184 @@
+package ccrm.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call count, error count and latency distribution of one operation.
+ * Instrumented methods usually wrap their work in {@link #time}:
+ * <pre>
+ * public String generateTranscript(String studentId) {
+ *     return TRANSCRIPT_TIMER.time(() -&gt; doGenerateTranscript(studentId));
+ * }
+ * </pre>
+ * The lambda may be allocated on every call unless the JIT inlines it away, so
+ * hot paths such as lookups, enrollments and grading read {@link System#nanoTime}
+ * before the operation instead, pass it to {@link #stop} in a {@code finally}
+ * block and call {@link #recordError} when the operation throws. Recording
+ * itself never locks or allocates.
+ */
+public class Timer implements TimerMBean {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    
+    private final String name;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    
+    Timer(String name) {
+        this.name = name;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /** A timed operation that returns a value; {@code E} lets it throw a checked exception. */
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+    
+    /** A timed operation without a result. */
+    @FunctionalInterface
+    public interface Task<E extends Exception> {
+        void run() throws E;
+    }
+    
+    /** Runs the call and records its duration, and an error if it throws anything, errors included. */
+    public <T, E extends Exception> T time(Call<T, E> call) throws E {
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } catch (Throwable e) {
+            recordError();
+            throw e;
+        } finally {
+            stop(start);
+        }
+    }
+    
+    public <E extends Exception> void time(Task<E> task) throws E {
+        long start = System.nanoTime();
+        try {
+            task.run();
+        } catch (Throwable e) {
+            recordError();
+            throw e;
+        } finally {
+            stop(start);
+        }
+    }
+    
+    /** Records the time elapsed since {@code startNanos}, a {@link System#nanoTime} reading. */
+    public void stop(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+    
+    public void record(long nanos) {
+        histogram.record(nanos);
+        totalNanos.add(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+    
+    public void recordError() {
+        errors.increment();
+    }
+    
+    public Snapshot snapshot() {
+        long calls = histogram.getCount();
+        return new Snapshot(name, calls, errors.sum(),
+                            calls > 0 ? totalNanos.sum() / (double) calls : 0.0,
+                            histogram.getPercentile(50), histogram.getPercentile(95), histogram.getPercentile(99),
+                            maxNanos.get());
+    }
+    
+    @Override
+    public long getCount() {
+        return histogram.getCount();
+    }
+    
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+    
+    @Override
+    public double getMeanMillis() {
+        return snapshot().getMeanMillis();
+    }
+    
+    @Override
+    public double getMedianMillis() {
+        return snapshot().getMedianMillis();
+    }
+    
+    @Override
+    public double getP95Millis() {
+        return snapshot().getP95Millis();
+    }
+    
+    @Override
+    public double getP99Millis() {
+        return snapshot().getP99Millis();
+    }
+    
+    @Override
+    public double getMaxMillis() {
+        return snapshot().getMaxMillis();
+    }
+    
+    /** Clears all counts. Not atomic: calls finishing during a reset may be partly kept. */
+    @Override
+    public void reset() {
+        histogram.reset();
+        errors.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+    
+    /** A point-in-time copy of a timer's figures, in milliseconds. */
+    public static class Snapshot {
+        private final String name;
+        private final long count;
+        private final long errorCount;
+        private final double meanNanos;
+        private final long medianNanos;
+        private final long p95Nanos;
+        private final long p99Nanos;
+        private final long maxNanos;
+        
+        Snapshot(String name, long count, long errorCount, double meanNanos,
+                 long medianNanos, long p95Nanos, long p99Nanos, long maxNanos) {
+            this.name = name;
+            this.count = count;
+            this.errorCount = errorCount;
+            this.meanNanos = meanNanos;
+            this.medianNanos = medianNanos;
+            this.p95Nanos = p95Nanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+        }
+        
+        public String getName() { return name; }
+        public long getCount() { return count; }
+        public long getErrorCount() { return errorCount; }
+        public double getMeanMillis() { return meanNanos / NANOS_PER_MILLI; }
+        // Percentiles come from the histogram, so they can't exceed the exact maximum
+        public double getMedianMillis() { return Math.min(medianNanos, maxNanos) / NANOS_PER_MILLI; }
+        public double getP95Millis() { return Math.min(p95Nanos, maxNanos) / NANOS_PER_MILLI; }
+        public double getP99Millis() { return Math.min(p99Nanos, maxNanos) / NANOS_PER_MILLI; }
+        public double getMaxMillis() { return maxNanos / NANOS_PER_MILLI; }
+        
+        @Override
+        public String toString() {
+            return String.format("%s: n=%d, errors=%d, mean=%.1f us, p50=%.1f us, p95=%.1f us, p99=%.1f us, max=%.1f us",
+                                 name, count, errorCount, getMeanMillis() * 1000, getMedianMillis() * 1000,
+                                 getP95Millis() * 1000, getP99Millis() * 1000, getMaxMillis() * 1000);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package ccrm.metrics;
+
+/** JMX view of a {@link Timer}. Latencies are in milliseconds. */
+public interface TimerMBean {
+    long getCount();
+    long getErrorCount();
+    double getMeanMillis();
+    double getMedianMillis();
+    double getP95Millis();
+    double getP99Millis();
+    double getMaxMillis();
+    void reset();
+}
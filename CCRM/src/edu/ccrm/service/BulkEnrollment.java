@@ -0,0 +1,106 @@
+package ccrm.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Value types for {@link StudentService#enrollAll}: the (studentId, courseCode)
+ * rows going in and the per-row report coming out.
+ */
+public final class BulkEnrollment {
+    
+    private BulkEnrollment() {
+        // Holder for nested types only
+    }
+    
+    public enum Status {
+        ENROLLED,
+        ALREADY_ENROLLED,
+        CREDIT_LIMIT_EXCEEDED,
+        STUDENT_NOT_FOUND,
+        COURSE_NOT_FOUND,
+        INVALID
+    }
+    
+    public static class Request {
+        private final String studentId;
+        private final String courseCode;
+        private final long lineNumber;
+        
+        public Request(String studentId, String courseCode) {
+            this(studentId, courseCode, 0);
+        }
+        
+        /** @param lineNumber the line of the source file the row was read from, or 0 if none */
+        public Request(String studentId, String courseCode, long lineNumber) {
+            this.studentId = studentId;
+            this.courseCode = courseCode;
+            this.lineNumber = lineNumber;
+        }
+        
+        public String getStudentId() { return studentId; }
+        public String getCourseCode() { return courseCode; }
+        public long getLineNumber() { return lineNumber; }
+        
+        @Override
+        public String toString() {
+            return studentId + "," + courseCode;
+        }
+    }
+    
+    public static class RowResult {
+        private final long rowNumber;
+        private final Request request;
+        private final Status status;
+        private final String message;
+        
+        // The request's source line when it has one, otherwise its 1-based position in the batch
+        RowResult(int position, Request request, Status status, String message) {
+            this.request = Objects.requireNonNull(request);
+            this.rowNumber = request.getLineNumber() > 0 ? request.getLineNumber() : position;
+            this.status = Objects.requireNonNull(status);
+            this.message = message;
+        }
+        
+        public long getRowNumber() { return rowNumber; }
+        public Request getRequest() { return request; }
+        public Status getStatus() { return status; }
+        public String getMessage() { return message; }
+        public boolean isSuccess() { return status == Status.ENROLLED; }
+        
+        @Override
+        public String toString() {
+            return String.format("%s %d [%s]: %s%s", request.getLineNumber() > 0 ? "Line" : "Row", rowNumber, request, status,
+                               message != null ? " - " + message : "");
+        }
+    }
+    
+    public static class Report {
+        private final List<RowResult> rows;
+        private final Map<Status, Integer> counts;
+        
+        Report(List<RowResult> rows) {
+            this.rows = Collections.unmodifiableList(new ArrayList<>(rows));
+            this.counts = new EnumMap<>(Status.class);
+            for (RowResult row : rows) {
+                counts.merge(row.getStatus(), 1, Integer::sum);
+            }
+        }
+        
+        public List<RowResult> getRows() { return rows; }
+        public int getTotalCount() { return rows.size(); }
+        public int getCount(Status status) { return counts.getOrDefault(status, 0); }
+        public int getEnrolledCount() { return getCount(Status.ENROLLED); }
+        public int getFailedCount() { return rows.size() - getEnrolledCount(); }
+        
+        @Override
+        public String toString() {
+            return String.format("Bulk enrollment: %d rows, %d enrolled, %d failed %s",
+                               getTotalCount(), getEnrolledCount(), getFailedCount(), counts);
+        }
+    }
+}
\ No newline at end of file
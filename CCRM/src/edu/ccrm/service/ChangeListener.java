@@ -0,0 +1,35 @@
+package ccrm.service;
+
+import ccrm.domain.Course;
+import ccrm.domain.Enrollment;
+import ccrm.domain.Grade;
+import ccrm.domain.Student;
+
+/**
+ * Callback for mutations made through {@link StudentService} and {@link CourseService}.
+ * <p>
+ * Listeners are notified after the change has been applied, on the thread that
+ * made it; {@code courseAdded} alone comes just before the new course becomes
+ * visible, so no event can refer to a course whose addition was not delivered.
+ * Student and enrollment events, additions included, are delivered while the
+ * student's lock stripe is held, so events for one student arrive in the order
+ * they happened.
+ * Every method has an empty default so listeners only override what they need.
+ */
+public interface ChangeListener {
+    default void studentAdded(Student student) {}
+    
+    /** Name, email, registration number or active flag changed. */
+    default void studentUpdated(Student student) {}
+    
+    default void courseAdded(Course course) {}
+    
+    /** Any course attribute changed, including deactivation. */
+    default void courseUpdated(Course course) {}
+    
+    default void enrollmentAdded(Enrollment enrollment) {}
+    
+    default void enrollmentRemoved(Enrollment enrollment) {}
+    
+    default void gradeRecorded(Enrollment enrollment, Grade previousGrade) {}
+}
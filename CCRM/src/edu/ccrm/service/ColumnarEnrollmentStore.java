@@ -0,0 +1,368 @@
+package ccrm.service;
+
+import ccrm.domain.Course;
+import ccrm.domain.Enrollment;
+import ccrm.domain.Grade;
+import ccrm.domain.Student;
+import ccrm.util.ValidationUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Enrollment store that keeps every enrollment as one row across parallel
+ * primitive arrays (student slot, course slot, epoch day, grade ordinal)
+ * instead of an {@link Enrollment} object with a {@link LocalDate}, a list slot
+ * and a roster entry. Rows are chained per student and per course through
+ * index arrays, so per-student and per-course queries touch only their own rows
+ * and whole-store reports are sequential scans.
+ * <p>
+ * It answers the enrollment queries of {@link StudentService}, {@code calculateGPA}
+ * and the CLI reports with the same rules; {@link Enrollment} values it returns
+ * are detached copies built on demand. All methods are synchronized.
+ */
+public class ColumnarEnrollmentStore {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final byte NO_GRADE = -1;
+    private static final int NONE = -1;
+    private static final Grade[] GRADES = Grade.values();
+    
+    // Dictionaries: slot -> domain object, and ID -> slot
+    private final List<Student> students = new ArrayList<>();
+    private final Map<String, Integer> studentSlots = new HashMap<>();
+    private final List<Course> courses = new ArrayList<>();
+    private final Map<String, Integer> courseSlots = new HashMap<>();
+    
+    // Row columns; a row whose student is NONE is free and chained through nextForStudent
+    private int[] studentColumn = new int[INITIAL_CAPACITY];
+    private int[] courseColumn = new int[INITIAL_CAPACITY];
+    private int[] dayColumn = new int[INITIAL_CAPACITY];
+    private byte[] gradeColumn = new byte[INITIAL_CAPACITY];
+    // Per-student rows in enrollment order (singly linked, head and tail per student)
+    private int[] nextForStudent = new int[INITIAL_CAPACITY];
+    private int[] studentHead = new int[INITIAL_CAPACITY];
+    private int[] studentTail = new int[INITIAL_CAPACITY];
+    // Per-course rows (doubly linked, so dropping a row from a long roster is O(1))
+    private int[] nextForCourse = new int[INITIAL_CAPACITY];
+    private int[] previousForCourse = new int[INITIAL_CAPACITY];
+    private int[] courseHead = new int[INITIAL_CAPACITY];
+    private int[] courseTail = new int[INITIAL_CAPACITY];
+    private int[] courseCount = new int[INITIAL_CAPACITY];
+    
+    private int rowLimit;
+    private int freeRow = NONE;
+    private int size;
+    
+    /** Copies every enrollment currently held by the service, grades and dates included. */
+    public static ColumnarEnrollmentStore from(StudentService studentService) {
+        ValidationUtils.validateNotNull(studentService, "Student service cannot be null");
+        ColumnarEnrollmentStore store = new ColumnarEnrollmentStore();
+        for (Student student : studentService.findAll()) {
+            synchronized (studentService.lockFor(student.getId())) {
+                for (Enrollment enrollment : student.getEnrollments()) {
+                    int row = store.insert(store.studentSlot(student), store.courseSlot(enrollment.getCourse()),
+                                           enrollment.getEnrollmentDate());
+                    Grade grade = enrollment.getGrade();
+                    store.gradeColumn[row] = grade != null ? (byte) grade.ordinal() : NO_GRADE;
+                }
+            }
+        }
+        return store;
+    }
+    
+    /**
+     * Enrolls the student with the same duplicate and credit-limit rules as
+     * {@link StudentService#enrollInCourse}.
+     */
+    public synchronized void enroll(Student student, Course course, LocalDate enrollmentDate) {
+        ValidationUtils.validateNotNull(student, "Student cannot be null");
+        ValidationUtils.validateNotNull(course, "Course cannot be null");
+        ValidationUtils.validateNotNull(enrollmentDate, "Enrollment date cannot be null");
+        
+        int studentSlot = studentSlot(student);
+        int credits = 0;
+        for (int row = studentHead[studentSlot]; row != NONE; row = nextForStudent[row]) {
+            Course enrolled = courses.get(courseColumn[row]);
+            if (enrolled.equals(course)) {
+                throw new IllegalStateException("Student is already enrolled in this course");
+            }
+            credits += enrolled.getCredits();
+        }
+        if (credits + course.getCredits() > StudentService.MAX_CREDITS_PER_SEMESTER) {
+            throw new IllegalStateException("Credit limit exceeded. Maximum allowed: " + StudentService.MAX_CREDITS_PER_SEMESTER);
+        }
+        insert(studentSlot, courseSlot(course), enrollmentDate);
+    }
+    
+    public synchronized boolean unenroll(String studentId, String courseCode) {
+        int row = findRow(studentId, courseCode);
+        if (row == NONE) {
+            return false;
+        }
+        remove(row);
+        return true;
+    }
+    
+    public synchronized void recordGrade(String studentId, String courseCode, Grade grade) {
+        ValidationUtils.validateNotNull(grade, "Grade cannot be null");
+        int row = findRow(studentId, courseCode);
+        if (row == NONE) {
+            throw new IllegalArgumentException("Student is not enrolled in course " + courseCode);
+        }
+        gradeColumn[row] = (byte) grade.ordinal();
+    }
+    
+    public synchronized boolean isEnrolled(String studentId, String courseCode) {
+        return findRow(studentId, courseCode) != NONE;
+    }
+    
+    public synchronized List<Enrollment> getEnrollments(String studentId) {
+        List<Enrollment> result = new ArrayList<>();
+        Integer slot = studentSlots.get(studentId);
+        if (slot != null) {
+            for (int row = studentHead[slot]; row != NONE; row = nextForStudent[row]) {
+                result.add(toEnrollment(row));
+            }
+        }
+        return result;
+    }
+    
+    public synchronized List<Enrollment> getRoster(String courseCode) {
+        List<Enrollment> result = new ArrayList<>();
+        Integer slot = courseSlots.get(courseCode);
+        if (slot != null) {
+            for (int row = courseHead[slot]; row != NONE; row = nextForCourse[row]) {
+                result.add(toEnrollment(row));
+            }
+        }
+        return result;
+    }
+    
+    /** Credit-weighted GPA over the student's graded enrollments, as {@code Student.calculateGPA()} computes it. */
+    public synchronized double calculateGPA(String studentId) {
+        Integer slot = studentSlots.get(studentId);
+        if (slot == null) {
+            return 0.0;
+        }
+        double points = 0.0;
+        int credits = 0;
+        for (int row = studentHead[slot]; row != NONE; row = nextForStudent[row]) {
+            byte grade = gradeColumn[row];
+            if (grade != NO_GRADE) {
+                int courseCredits = courses.get(courseColumn[row]).getCredits();
+                points += GRADES[grade].getPoints() * courseCredits;
+                credits += courseCredits;
+            }
+        }
+        return credits > 0 ? points / credits : 0.0;
+    }
+    
+    public synchronized int getEnrollmentCount(String courseCode) {
+        Integer slot = courseSlots.get(courseCode);
+        return slot == null ? 0 : courseCount[slot];
+    }
+    
+    public synchronized Map<String, Long> getEnrollmentCountByCourse() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (int slot = 0; slot < courses.size(); slot++) {
+            if (courseCount[slot] > 0) {
+                counts.put(courses.get(slot).getCode(), (long) courseCount[slot]);
+            }
+        }
+        return counts;
+    }
+    
+    public synchronized Map<Grade, Long> getGradeDistribution() {
+        long[] counts = new long[GRADES.length];
+        for (int row = 0; row < rowLimit; row++) {
+            if (studentColumn[row] != NONE && gradeColumn[row] != NO_GRADE) {
+                counts[gradeColumn[row]]++;
+            }
+        }
+        return toDistribution(counts);
+    }
+    
+    public synchronized Map<Grade, Long> getGradeDistribution(String courseCode) {
+        long[] counts = new long[GRADES.length];
+        Integer slot = courseSlots.get(courseCode);
+        if (slot != null) {
+            for (int row = courseHead[slot]; row != NONE; row = nextForCourse[row]) {
+                if (gradeColumn[row] != NO_GRADE) {
+                    counts[gradeColumn[row]]++;
+                }
+            }
+        }
+        return toDistribution(counts);
+    }
+    
+    public synchronized int size() {
+        return size;
+    }
+    
+    private int findRow(String studentId, String courseCode) {
+        ValidationUtils.validateNotNull(studentId, "Student ID cannot be null");
+        ValidationUtils.validateNotNull(courseCode, "Course code cannot be null");
+        Integer studentSlot = studentSlots.get(studentId);
+        Integer courseSlot = courseSlots.get(courseCode);
+        if (studentSlot == null || courseSlot == null) {
+            return NONE;
+        }
+        for (int row = studentHead[studentSlot]; row != NONE; row = nextForStudent[row]) {
+            if (courseColumn[row] == courseSlot) {
+                return row;
+            }
+        }
+        return NONE;
+    }
+    
+    private int studentSlot(Student student) {
+        Integer slot = studentSlots.get(student.getId());
+        if (slot != null) {
+            return slot;
+        }
+        int created = students.size();
+        students.add(student);
+        studentSlots.put(student.getId(), created);
+        if (created == studentHead.length) {
+            int capacity = grow(created);
+            studentHead = Arrays.copyOf(studentHead, capacity);
+            studentTail = Arrays.copyOf(studentTail, capacity);
+        }
+        studentHead[created] = NONE;
+        studentTail[created] = NONE;
+        return created;
+    }
+    
+    private int courseSlot(Course course) {
+        Integer slot = courseSlots.get(course.getCode());
+        if (slot != null) {
+            return slot;
+        }
+        int created = courses.size();
+        courses.add(course);
+        courseSlots.put(course.getCode(), created);
+        if (created == courseHead.length) {
+            int capacity = grow(created);
+            courseHead = Arrays.copyOf(courseHead, capacity);
+            courseTail = Arrays.copyOf(courseTail, capacity);
+            courseCount = Arrays.copyOf(courseCount, capacity);
+        }
+        courseHead[created] = NONE;
+        courseTail[created] = NONE;
+        return created;
+    }
+    
+    private int insert(int studentSlot, int courseSlot, LocalDate enrollmentDate) {
+        int row;
+        if (freeRow != NONE) {
+            row = freeRow;
+            freeRow = nextForStudent[row];
+        } else {
+            if (rowLimit == studentColumn.length) {
+                growRows();
+            }
+            row = rowLimit++;
+        }
+        studentColumn[row] = studentSlot;
+        courseColumn[row] = courseSlot;
+        dayColumn[row] = Math.toIntExact(enrollmentDate.toEpochDay());
+        gradeColumn[row] = NO_GRADE;
+        
+        nextForStudent[row] = NONE;
+        if (studentTail[studentSlot] == NONE) {
+            studentHead[studentSlot] = row;
+        } else {
+            nextForStudent[studentTail[studentSlot]] = row;
+        }
+        studentTail[studentSlot] = row;
+        
+        nextForCourse[row] = NONE;
+        previousForCourse[row] = courseTail[courseSlot];
+        if (courseTail[courseSlot] == NONE) {
+            courseHead[courseSlot] = row;
+        } else {
+            nextForCourse[courseTail[courseSlot]] = row;
+        }
+        courseTail[courseSlot] = row;
+        courseCount[courseSlot]++;
+        size++;
+        return row;
+    }
+    
+    private void remove(int row) {
+        // Student chains are a few rows long, so find the predecessor by walking
+        int studentSlot = studentColumn[row];
+        int previous = NONE;
+        for (int r = studentHead[studentSlot]; r != row; r = nextForStudent[r]) {
+            previous = r;
+        }
+        if (previous == NONE) {
+            studentHead[studentSlot] = nextForStudent[row];
+        } else {
+            nextForStudent[previous] = nextForStudent[row];
+        }
+        if (studentTail[studentSlot] == row) {
+            studentTail[studentSlot] = previous;
+        }
+        
+        int courseSlot = courseColumn[row];
+        int before = previousForCourse[row];
+        int after = nextForCourse[row];
+        if (before == NONE) {
+            courseHead[courseSlot] = after;
+        } else {
+            nextForCourse[before] = after;
+        }
+        if (after == NONE) {
+            courseTail[courseSlot] = before;
+        } else {
+            previousForCourse[after] = before;
+        }
+        courseCount[courseSlot]--;
+        
+        studentColumn[row] = NONE;
+        nextForStudent[row] = freeRow;
+        freeRow = row;
+        size--;
+    }
+    
+    private void growRows() {
+        int capacity = grow(rowLimit);
+        studentColumn = Arrays.copyOf(studentColumn, capacity);
+        courseColumn = Arrays.copyOf(courseColumn, capacity);
+        dayColumn = Arrays.copyOf(dayColumn, capacity);
+        gradeColumn = Arrays.copyOf(gradeColumn, capacity);
+        nextForStudent = Arrays.copyOf(nextForStudent, capacity);
+        nextForCourse = Arrays.copyOf(nextForCourse, capacity);
+        previousForCourse = Arrays.copyOf(previousForCourse, capacity);
+    }
+    
+    private static int grow(int length) {
+        return length + (length >> 1);
+    }
+    
+    private Enrollment toEnrollment(int row) {
+        Enrollment enrollment = new Enrollment(students.get(studentColumn[row]), courses.get(courseColumn[row]),
+                                               LocalDate.ofEpochDay(dayColumn[row]));
+        if (gradeColumn[row] != NO_GRADE) {
+            enrollment.setGrade(GRADES[gradeColumn[row]]);
+        }
+        return enrollment;
+    }
+    
+    private static Map<Grade, Long> toDistribution(long[] counts) {
+        Map<Grade, Long> distribution = new EnumMap<>(Grade.class);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                distribution.put(GRADES[i], counts[i]);
+            }
+        }
+        return distribution;
+    }
+}
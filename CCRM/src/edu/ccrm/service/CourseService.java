@@ -1,39 +1,111 @@
 package ccrm.service;
 
 import ccrm.domain.Course;
+import ccrm.domain.Enrollment;
 import ccrm.domain.Semester;
+import ccrm.metrics.MetricsRegistry;
+import ccrm.metrics.Timer;
+import ccrm.util.StringDictionary;
 import ccrm.util.ValidationUtils;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class CourseService implements Searchable<Course> {
     private List<Course> courses;
+    private Map<String, Course> coursesByCode;
+    // Secondary indexes, keyed by case-folded value so lookups match equalsIgnoreCase
+    private Map<String, Set<Course>> coursesByInstructor;
+    private Map<String, Set<Course>> coursesByDepartment;
+    private Map<Semester, Set<Course>> coursesBySemester;
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final boolean concurrent;
+    // Process-wide operation metrics, shared by every instance
+    private static final Timer ADD_TIMER = MetricsRegistry.getInstance().timer("courses.add");
+    private static final Timer UPDATE_TIMER = MetricsRegistry.getInstance().timer("courses.update");
+    private static final Timer DEACTIVATE_TIMER = MetricsRegistry.getInstance().timer("courses.deactivate");
+    private static final Timer FIND_BY_INSTRUCTOR_TIMER = MetricsRegistry.getInstance().timer("courses.findByInstructor");
+    private static final Timer FIND_BY_DEPARTMENT_TIMER = MetricsRegistry.getInstance().timer("courses.findByDepartment");
+    private static final Timer FIND_BY_SEMESTER_TIMER = MetricsRegistry.getInstance().timer("courses.findBySemester");
+    private static final Timer SEARCH_TIMER = MetricsRegistry.getInstance().timer("courses.search");
+    private static final Timer FIND_BY_ID_TIMER = MetricsRegistry.getInstance().timer("courses.findById");
     
     public CourseService() {
-        this.courses = new ArrayList<>();
+        this(false);
     }
     
-    public void addCourse(Course course) {
+    /**
+     * @param concurrent when true, the service is safe to call from many threads:
+     *                   lookups by code and scans never block, while changes and
+     *                   index lookups are serialized on the service, since courses
+     *                   are few and rarely change.
+     */
+    public CourseService(boolean concurrent) {
+        this.concurrent = concurrent;
+        this.courses = concurrent ? new CopyOnWriteArrayList<>() : new ArrayList<>();
+        this.coursesByCode = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        this.coursesByInstructor = new HashMap<>();
+        this.coursesByDepartment = new HashMap<>();
+        this.coursesBySemester = new EnumMap<>(Semester.class);
+    }
+    
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+    
+    public synchronized void addCourse(Course course) {
+        ADD_TIMER.time(() -> doAddCourse(course));
+    }
+    
+    private void doAddCourse(Course course) {
         ValidationUtils.validateNotNull(course, "Course cannot be null");
         
         // Check if course with same code already exists
-        if (findById(course.getCode()).isPresent()) {
+        if (coursesByCode.containsKey(course.getCode())) {
             throw new IllegalArgumentException("Course with code " + course.getCode() + " already exists");
         }
         
+        // Notify before the course becomes visible to other threads, so no enrollment in it
+        // can reach the listeners (the journal) first
+        listeners.forEach(l -> l.courseAdded(course));
         courses.add(course);
+        coursesByCode.put(course.getCode(), course);
+        indexCourse(course);
     }
     
-    public void updateCourse(String code, String title, Integer credits, String instructor, Semester semester, String department) {
+    public void addChangeListener(ChangeListener listener) {
+        ValidationUtils.validateNotNull(listener, "Listener cannot be null");
+        listeners.add(listener);
+    }
+    
+    public void removeChangeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+    
+    public synchronized void updateCourse(String code, String title, Integer credits, String instructor, Semester semester, String department) {
+        UPDATE_TIMER.time(() -> doUpdateCourse(code, title, credits, instructor, semester, department));
+    }
+    
+    private void doUpdateCourse(String code, String title, Integer credits, String instructor, Semester semester, String department) {
         ValidationUtils.validateNotNull(code, "Course code cannot be null");
         
-        Course course = findById(code)
+        Course course = byCode(code)
             .orElseThrow(() -> new IllegalArgumentException("Course with code " + code + " not found"));
         
+        // Drop the old index entries before the indexed attributes change
+        unindexCourse(course);
+        
         if (title != null && !title.trim().isEmpty()) {
             course.setTitle(title);
         }
@@ -53,28 +125,68 @@ public class CourseService implements Searchable<Course> {
         if (department != null && !department.trim().isEmpty()) {
             course.setDepartment(department);
         }
+        
+        indexCourse(course);
+        listeners.forEach(l -> l.courseUpdated(course));
+    }
+    
+    public synchronized void deactivateCourse(String code) {
+        DEACTIVATE_TIMER.time(() -> doDeactivateCourse(code));
     }
     
-    public void deactivateCourse(String code) {
-        Course course = findById(code)
+    private void doDeactivateCourse(String code) {
+        Course course = byCode(code)
             .orElseThrow(() -> new IllegalArgumentException("Course with code " + code + " not found"));
+        // Deactivation is a soft delete: the course stays in every index, as it did in the full scans
         course.setActive(false);
+        listeners.forEach(l -> l.courseUpdated(course));
+    }
+    
+    public synchronized List<Course> findByInstructor(String instructor) {
+        return FIND_BY_INSTRUCTOR_TIMER.time(() -> doFindByInstructor(instructor));
+    }
+    
+    private List<Course> doFindByInstructor(String instructor) {
+        if (instructor == null) {
+            return new ArrayList<>();
+        }
+        return lookup(coursesByInstructor.get(foldQuery(instructor)));
+    }
+    
+    public synchronized List<Course> findByDepartment(String department) {
+        return FIND_BY_DEPARTMENT_TIMER.time(() -> doFindByDepartment(department));
+    }
+    
+    private List<Course> doFindByDepartment(String department) {
+        if (department == null) {
+            return new ArrayList<>();
+        }
+        return lookup(coursesByDepartment.get(foldQuery(department)));
     }
     
-    public List<Course> findByInstructor(String instructor) {
-        return search(c -> c.getInstructor() != null && c.getInstructor().equalsIgnoreCase(instructor));
+    public synchronized List<Course> findBySemester(Semester semester) {
+        return FIND_BY_SEMESTER_TIMER.time(() -> doFindBySemester(semester));
     }
     
-    public List<Course> findByDepartment(String department) {
-        return search(c -> c.getDepartment() != null && c.getDepartment().equalsIgnoreCase(department));
+    private List<Course> doFindBySemester(Semester semester) {
+        if (semester == null) {
+            return search(c -> c.getSemester() == null);
+        }
+        return lookup(coursesBySemester.get(semester));
     }
     
-    public List<Course> findBySemester(Semester semester) {
-        return search(c -> c.getSemester() == semester);
+    public List<Enrollment> getRoster(String code) {
+        Course course = byCode(code)
+            .orElseThrow(() -> new IllegalArgumentException("Course with code " + code + " not found"));
+        return course.getRoster();
     }
     
     @Override
     public List<Course> search(Predicate<Course> predicate) {
+        return SEARCH_TIMER.time(() -> doSearch(predicate));
+    }
+    
+    private List<Course> doSearch(Predicate<Course> predicate) {
         return courses.stream()
             .filter(predicate)
             .collect(Collectors.toList());
@@ -87,8 +199,61 @@ public class CourseService implements Searchable<Course> {
     
     @Override
     public Optional<Course> findById(String code) {
-        return courses.stream()
-            .filter(c -> c.getCode().equals(code))
-            .findFirst();
+        return FIND_BY_ID_TIMER.time(() -> byCode(code));
+    }
+    
+    // Untimed, for operations that are timed as a whole
+    private Optional<Course> byCode(String code) {
+        return Optional.ofNullable(coursesByCode.get(code));
+    }
+    
+    private void indexCourse(Course course) {
+        if (course.getInstructor() != null) {
+            coursesByInstructor.computeIfAbsent(fold(course.getInstructor()), k -> new LinkedHashSet<>()).add(course);
+        }
+        if (course.getDepartment() != null) {
+            coursesByDepartment.computeIfAbsent(fold(course.getDepartment()), k -> new LinkedHashSet<>()).add(course);
+        }
+        if (course.getSemester() != null) {
+            coursesBySemester.computeIfAbsent(course.getSemester(), k -> new LinkedHashSet<>()).add(course);
+        }
+    }
+    
+    private void unindexCourse(Course course) {
+        if (course.getInstructor() != null) {
+            removeFromIndex(coursesByInstructor, fold(course.getInstructor()), course);
+        }
+        if (course.getDepartment() != null) {
+            removeFromIndex(coursesByDepartment, fold(course.getDepartment()), course);
+        }
+        if (course.getSemester() != null) {
+            removeFromIndex(coursesBySemester, course.getSemester(), course);
+        }
+    }
+    
+    private static <K> void removeFromIndex(Map<K, Set<Course>> index, K key, Course course) {
+        Set<Course> bucket = index.get(key);
+        if (bucket != null) {
+            bucket.remove(course);
+            if (bucket.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+    
+    private static List<Course> lookup(Set<Course> bucket) {
+        return bucket == null ? new ArrayList<>() : new ArrayList<>(bucket);
+    }
+    
+    // Index keys are canonical, so courses sharing a department or instructor share one key
+    // instance; the dictionary drops a key once no index holds it
+    private static String fold(String value) {
+        return StringDictionary.shared().canonical(value.toLowerCase(Locale.ROOT));
+    }
+    
+    // Query strings are arbitrary, so they are looked up without entering the dictionary;
+    // a query matching an indexed value gets its canonical instance and compares by reference
+    private static String foldQuery(String value) {
+        return StringDictionary.shared().find(value.toLowerCase(Locale.ROOT));
     }
 }
\ No newline at end of file
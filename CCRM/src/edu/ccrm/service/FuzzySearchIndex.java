@@ -0,0 +1,68 @@
+package ccrm.service;
+
+import ccrm.domain.Course;
+import ccrm.domain.Student;
+import ccrm.util.ValidationUtils;
+
+import java.util.List;
+
+/**
+ * Typo-tolerant search over active students (name and email) and active
+ * courses (title), backed by {@link TrigramIndex}es that follow adds, updates
+ * and deactivations through {@link ChangeListener} events.
+ */
+public class FuzzySearchIndex implements ChangeListener {
+    private final TrigramIndex<Student> students = new TrigramIndex<>();
+    private final TrigramIndex<Course> courses = new TrigramIndex<>();
+    
+    /**
+     * Indexes the current students and courses and registers for changes on
+     * both services. Attach before other threads start mutating the services.
+     */
+    public static FuzzySearchIndex attach(StudentService studentService, CourseService courseService) {
+        ValidationUtils.validateNotNull(studentService, "Student service cannot be null");
+        ValidationUtils.validateNotNull(courseService, "Course service cannot be null");
+        FuzzySearchIndex index = new FuzzySearchIndex();
+        studentService.findAll().forEach(index::studentAdded);
+        courseService.findAll().forEach(index::courseAdded);
+        studentService.addChangeListener(index);
+        courseService.addChangeListener(index);
+        return index;
+    }
+    
+    public List<TrigramIndex.Match<Student>> searchStudents(String query, int limit) {
+        return students.search(query, limit);
+    }
+    
+    public List<TrigramIndex.Match<Course>> searchCourses(String query, int limit) {
+        return courses.search(query, limit);
+    }
+    
+    @Override
+    public void studentAdded(Student student) {
+        studentUpdated(student);
+    }
+    
+    @Override
+    public void studentUpdated(Student student) {
+        if (student.isActive()) {
+            students.put(student, student.getFullName(), student.getEmail());
+        } else {
+            students.remove(student);
+        }
+    }
+    
+    @Override
+    public void courseAdded(Course course) {
+        courseUpdated(course);
+    }
+    
+    @Override
+    public void courseUpdated(Course course) {
+        if (course.isActive()) {
+            courses.put(course, course.getTitle());
+        } else {
+            courses.remove(course);
+        }
+    }
+}
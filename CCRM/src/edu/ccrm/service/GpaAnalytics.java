@@ -0,0 +1,141 @@
+package ccrm.service;
+
+import ccrm.domain.Enrollment;
+import ccrm.domain.Grade;
+import ccrm.domain.Semester;
+import ccrm.domain.Student;
+import ccrm.util.ValidationUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collector;
+
+/**
+ * GPA analytics over every active student: overall, per department and per
+ * semester {@link GpaStatistics}. A student counts toward a department or
+ * semester with the GPA of their graded enrollments in it, and students with
+ * no graded credits are left out. Departments are grouped ignoring case, the way
+ * course searches match them, and reported under the first spelling seen.
+ * <p>
+ * Each student is visited once. In parallel mode the students are split across
+ * the common fork/join pool, each worker fills its own {@link Report}, and the
+ * partial reports are merged.
+ */
+public class GpaAnalytics {
+    private static final Semester[] SEMESTERS = Semester.values();
+    private static final Comparator<String> DEPARTMENT_ORDER = Comparator.comparing(GpaAnalytics::departmentKey);
+    
+    private final StudentService studentService;
+    
+    public GpaAnalytics(StudentService studentService) {
+        ValidationUtils.validateNotNull(studentService, "Student service cannot be null");
+        this.studentService = studentService;
+    }
+    
+    public static class Report {
+        private final GpaStatistics overall = new GpaStatistics();
+        private final Map<String, GpaStatistics> byDepartment = new TreeMap<>(DEPARTMENT_ORDER);
+        private final Map<Semester, GpaStatistics> bySemester = new EnumMap<>(Semester.class);
+        
+        public GpaStatistics getOverall() { return overall; }
+        public Map<String, GpaStatistics> getByDepartment() { return Collections.unmodifiableMap(byDepartment); }
+        public Map<Semester, GpaStatistics> getBySemester() { return Collections.unmodifiableMap(bySemester); }
+        
+        Report merge(Report other) {
+            overall.merge(other.overall);
+            other.byDepartment.forEach((department, stats) ->
+                byDepartment.computeIfAbsent(department, d -> new GpaStatistics()).merge(stats));
+            other.bySemester.forEach((semester, stats) ->
+                bySemester.computeIfAbsent(semester, s -> new GpaStatistics()).merge(stats));
+            return this;
+        }
+    }
+    
+    public Report analyze() {
+        return analyze(true);
+    }
+    
+    public Report analyze(boolean parallel) {
+        List<Student> students = studentService.findAll();
+        return (parallel ? students.parallelStream() : students.stream())
+            .filter(Student::isActive)
+            .collect(Collector.of(Report::new, this::add, Report::merge));
+    }
+    
+    private void add(Report report, Student student) {
+        // Per-student totals; students hold a few enrollments, so small lists beat maps here
+        List<String> departments = new ArrayList<>(4);
+        List<String> departmentKeys = new ArrayList<>(4);
+        List<double[]> departmentTotals = new ArrayList<>(4);
+        double[][] semesterTotals = new double[SEMESTERS.length][];
+        double points = 0.0;
+        int credits = 0;
+        
+        synchronized (studentService.lockFor(student.getId())) {
+            for (Enrollment enrollment : student.getEnrollments()) {
+                Grade grade = enrollment.getGrade();
+                if (grade == null) {
+                    continue;
+                }
+                int courseCredits = enrollment.getCourse().getCredits();
+                double coursePoints = grade.getPoints() * courseCredits;
+                points += coursePoints;
+                credits += courseCredits;
+                
+                String department = enrollment.getCourse().getDepartment();
+                if (department != null) {
+                    String key = departmentKey(department);
+                    int index = departmentKeys.indexOf(key);
+                    if (index < 0) {
+                        departments.add(department);
+                        departmentKeys.add(key);
+                        departmentTotals.add(new double[2]);
+                        index = departments.size() - 1;
+                    }
+                    accumulate(departmentTotals.get(index), coursePoints, courseCredits);
+                }
+                Semester semester = enrollment.getCourse().getSemester();
+                if (semester != null) {
+                    if (semesterTotals[semester.ordinal()] == null) {
+                        semesterTotals[semester.ordinal()] = new double[2];
+                    }
+                    accumulate(semesterTotals[semester.ordinal()], coursePoints, courseCredits);
+                }
+            }
+        }
+        
+        if (credits == 0) {
+            return;
+        }
+        report.overall.accept(points / credits);
+        for (int i = 0; i < departments.size(); i++) {
+            double[] totals = departmentTotals.get(i);
+            if (totals[1] > 0) {
+                report.byDepartment.computeIfAbsent(departments.get(i), d -> new GpaStatistics())
+                    .accept(totals[0] / totals[1]);
+            }
+        }
+        for (Semester semester : SEMESTERS) {
+            double[] totals = semesterTotals[semester.ordinal()];
+            if (totals != null && totals[1] > 0) {
+                report.bySemester.computeIfAbsent(semester, s -> new GpaStatistics())
+                    .accept(totals[0] / totals[1]);
+            }
+        }
+    }
+    
+    private static String departmentKey(String department) {
+        return department.toLowerCase(Locale.ROOT);
+    }
+    
+    private static void accumulate(double[] totals, double points, int credits) {
+        totals[0] += points;
+        totals[1] += credits;
+    }
+}
@@ -0,0 +1,125 @@
+package ccrm.service;
+
+import ccrm.domain.Grade;
+
+/**
+ * Mergeable summary of a set of GPAs: count, mean, standard deviation, range,
+ * percentiles and histograms. Values are also tallied at 0.01 resolution, the
+ * precision GPAs are reported at, so percentiles and histograms need no list
+ * of values and two partial summaries combine with {@link #merge} in
+ * O(buckets). Not thread-safe; give each thread its own and merge them.
+ */
+public class GpaStatistics {
+    private static final int STEPS_PER_POINT = 100;
+    private static final double MAX_GPA = maxPoints();
+    
+    private final long[] tally = new long[(int) Math.round(MAX_GPA * STEPS_PER_POINT) + 1];
+    private long count;
+    private double mean;
+    // Sum of squared deviations from the mean (Welford), merged with Chan's formula
+    private double squaredDeviations;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    
+    public void accept(double gpa) {
+        if (gpa < 0 || gpa > MAX_GPA + 1e-9) {
+            throw new IllegalArgumentException("GPA out of range: " + gpa);
+        }
+        count++;
+        double delta = gpa - mean;
+        mean += delta / count;
+        squaredDeviations += delta * (gpa - mean);
+        min = count == 1 ? gpa : Math.min(min, gpa);
+        max = count == 1 ? gpa : Math.max(max, gpa);
+        tally[Math.min((int) Math.round(gpa * STEPS_PER_POINT), tally.length - 1)]++;
+    }
+    
+    public GpaStatistics merge(GpaStatistics other) {
+        if (other.count == 0) {
+            return this;
+        }
+        if (count == 0) {
+            min = other.min;
+            max = other.max;
+        } else {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+        long combined = count + other.count;
+        double delta = other.mean - mean;
+        squaredDeviations += other.squaredDeviations + delta * delta * count * other.count / combined;
+        mean += delta * other.count / combined;
+        count = combined;
+        for (int i = 0; i < tally.length; i++) {
+            tally[i] += other.tally[i];
+        }
+        return this;
+    }
+    
+    public long getCount() { return count; }
+    public double getMean() { return count > 0 ? mean : Double.NaN; }
+    public double getMin() { return min; }
+    public double getMax() { return max; }
+    
+    /** Population standard deviation. */
+    public double getStandardDeviation() {
+        return count > 0 ? Math.sqrt(squaredDeviations / count) : Double.NaN;
+    }
+    
+    /**
+     * Nearest-rank percentile, to 0.01 GPA points.
+     *
+     * @param percentile in the range (0, 100]
+     */
+    public double getPercentile(double percentile) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be in (0, 100]");
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) Math.ceil(percentile / 100 * count);
+        long seen = 0;
+        for (int i = 0; i < tally.length; i++) {
+            seen += tally[i];
+            if (seen >= rank) {
+                return (double) i / STEPS_PER_POINT;
+            }
+        }
+        return max;
+    }
+    
+    /**
+     * Counts per bin of {@code binWidth} GPA points, starting at 0. The last bin
+     * also holds the maximum GPA.
+     */
+    public long[] getHistogram(double binWidth) {
+        if (binWidth <= 0) {
+            throw new IllegalArgumentException("Bin width must be positive");
+        }
+        int bins = Math.max(1, (int) Math.ceil(MAX_GPA / binWidth - 1e-9));
+        long[] histogram = new long[bins];
+        for (int i = 0; i < tally.length; i++) {
+            if (tally[i] != 0) {
+                int bin = (int) ((double) i / STEPS_PER_POINT / binWidth + 1e-9);
+                histogram[Math.min(bin, bins - 1)] += tally[i];
+            }
+        }
+        return histogram;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("n=%d, mean=%.2f, sd=%.2f, min=%.2f, p25=%.2f, median=%.2f, p75=%.2f, p90=%.2f, max=%.2f",
+                             count, getMean(), getStandardDeviation(), min,
+                             getPercentile(25), getPercentile(50), getPercentile(75), getPercentile(90), max);
+    }
+    
+    private static double maxPoints() {
+        double max = 0.0;
+        for (Grade grade : Grade.values()) {
+            max = Math.max(max, grade.getPoints());
+        }
+        return max;
+    }
+}
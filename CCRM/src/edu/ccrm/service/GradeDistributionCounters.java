@@ -0,0 +1,191 @@
+package ccrm.service;
+
+import ccrm.domain.Course;
+import ccrm.domain.Enrollment;
+import ccrm.domain.Grade;
+import ccrm.domain.Semester;
+import ccrm.util.ValidationUtils;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Live grade counts overall and per course, department and semester, kept up to
+ * date from {@link ChangeListener} events so a distribution report is a read of
+ * a handful of counters instead of a scan of every enrollment.
+ * <p>
+ * Each course remembers the department and semester its counts were filed
+ * under, so when a course moves, its counts move with it. Departments are
+ * matched case-insensitively, as in {@link CourseService#findByDepartment}.
+ */
+public class GradeDistributionCounters implements ChangeListener {
+    private static final Grade[] GRADES = Grade.values();
+    
+    private final long[] overall = new long[GRADES.length];
+    private final Map<String, CourseCounts> byCourse = new HashMap<>();
+    private final Map<String, long[]> byDepartment = new HashMap<>();
+    private final Map<Semester, long[]> bySemester = new EnumMap<>(Semester.class);
+    private final StudentService studentService;
+    private final CourseService courseService;
+    
+    private static class CourseCounts {
+        final long[] counts = new long[GRADES.length];
+        String department;
+        Semester semester;
+    }
+    
+    private GradeDistributionCounters(StudentService studentService, CourseService courseService) {
+        this.studentService = studentService;
+        this.courseService = courseService;
+    }
+    
+    /**
+     * Counts the grades already recorded and registers for changes on both
+     * services. Attach before other threads start mutating the services, so
+     * no change lands between the initial count and the registration.
+     */
+    public static GradeDistributionCounters attach(StudentService studentService, CourseService courseService) {
+        ValidationUtils.validateNotNull(studentService, "Student service cannot be null");
+        ValidationUtils.validateNotNull(courseService, "Course service cannot be null");
+        GradeDistributionCounters counters = new GradeDistributionCounters(studentService, courseService);
+        for (Course course : courseService.findAll()) {
+            counters.courseAdded(course);
+            for (Enrollment enrollment : course.getRoster()) {
+                counters.enrollmentAdded(enrollment);
+            }
+        }
+        studentService.addChangeListener(counters);
+        courseService.addChangeListener(counters);
+        return counters;
+    }
+    
+    /** Stops following changes; the counts stay as they were. */
+    public void detach() {
+        studentService.removeChangeListener(this);
+        courseService.removeChangeListener(this);
+    }
+    
+    public synchronized Map<Grade, Long> getDistribution() {
+        return toDistribution(overall);
+    }
+    
+    public synchronized Map<Grade, Long> getDistributionByCourse(String courseCode) {
+        CourseCounts course = byCourse.get(courseCode);
+        return toDistribution(course != null ? course.counts : null);
+    }
+    
+    public synchronized Map<Grade, Long> getDistributionByDepartment(String department) {
+        return toDistribution(department != null ? byDepartment.get(fold(department)) : null);
+    }
+    
+    public synchronized Map<Grade, Long> getDistributionBySemester(Semester semester) {
+        return toDistribution(bySemester.get(semester));
+    }
+    
+    @Override
+    public synchronized void courseAdded(Course course) {
+        CourseCounts counts = new CourseCounts();
+        counts.department = departmentKey(course);
+        counts.semester = course.getSemester();
+        byCourse.put(course.getCode(), counts);
+    }
+    
+    @Override
+    public synchronized void courseUpdated(Course course) {
+        CourseCounts counts = countsFor(course);
+        String department = departmentKey(course);
+        Semester semester = course.getSemester();
+        if (Objects.equals(counts.department, department) && counts.semester == semester) {
+            return;
+        }
+        // Refile the course's counts under its new department and semester
+        for (int grade = 0; grade < GRADES.length; grade++) {
+            long count = counts.counts[grade];
+            if (count != 0) {
+                add(bucket(byDepartment, counts.department), grade, -count);
+                add(bucket(bySemester, counts.semester), grade, -count);
+                add(bucket(byDepartment, department), grade, count);
+                add(bucket(bySemester, semester), grade, count);
+            }
+        }
+        counts.department = department;
+        counts.semester = semester;
+    }
+    
+    @Override
+    public synchronized void enrollmentAdded(Enrollment enrollment) {
+        // Restored enrollments can arrive already graded
+        if (enrollment.getGrade() != null) {
+            count(enrollment.getCourse(), enrollment.getGrade(), 1);
+        }
+    }
+    
+    @Override
+    public synchronized void enrollmentRemoved(Enrollment enrollment) {
+        if (enrollment.getGrade() != null) {
+            count(enrollment.getCourse(), enrollment.getGrade(), -1);
+        }
+    }
+    
+    @Override
+    public synchronized void gradeRecorded(Enrollment enrollment, Grade previousGrade) {
+        if (previousGrade != null) {
+            count(enrollment.getCourse(), previousGrade, -1);
+        }
+        if (enrollment.getGrade() != null) {
+            count(enrollment.getCourse(), enrollment.getGrade(), 1);
+        }
+    }
+    
+    private void count(Course course, Grade grade, long delta) {
+        CourseCounts counts = countsFor(course);
+        int index = grade.ordinal();
+        overall[index] += delta;
+        counts.counts[index] += delta;
+        add(bucket(byDepartment, counts.department), index, delta);
+        add(bucket(bySemester, counts.semester), index, delta);
+    }
+    
+    // Courses added before the counters were attached are registered on first use
+    private CourseCounts countsFor(Course course) {
+        CourseCounts counts = byCourse.get(course.getCode());
+        if (counts == null) {
+            courseAdded(course);
+            counts = byCourse.get(course.getCode());
+        }
+        return counts;
+    }
+    
+    private static <K> long[] bucket(Map<K, long[]> index, K key) {
+        return key == null ? null : index.computeIfAbsent(key, k -> new long[GRADES.length]);
+    }
+    
+    private static void add(long[] counts, int grade, long delta) {
+        if (counts != null) {
+            counts[grade] += delta;
+        }
+    }
+    
+    private static String departmentKey(Course course) {
+        return course.getDepartment() != null ? fold(course.getDepartment()) : null;
+    }
+    
+    private static String fold(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+    
+    private static Map<Grade, Long> toDistribution(long[] counts) {
+        Map<Grade, Long> distribution = new EnumMap<>(Grade.class);
+        if (counts != null) {
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    distribution.put(GRADES[i], counts[i]);
+                }
+            }
+        }
+        return distribution;
+    }
+}
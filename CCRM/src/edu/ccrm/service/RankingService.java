@@ -0,0 +1,172 @@
+package ccrm.service;
+
+import ccrm.domain.Course;
+import ccrm.domain.Enrollment;
+import ccrm.domain.Grade;
+import ccrm.domain.Semester;
+import ccrm.domain.Student;
+import ccrm.util.ValidationUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+/**
+ * Top-N student rankings by GPA. Each candidate's GPA is computed once into a
+ * {@link RankedStudent}, and only the best N are kept in a bounded min-heap, so a
+ * ranking costs O(candidates log N). Large candidate sets are split across
+ * threads, each with its own heap, and the heaps are merged.
+ * <p>
+ * Scoped rankings (department, semester, course) use the GPA over the student's
+ * graded enrollments in that scope, and only visit the rosters of the matching
+ * courses. Inactive students and students with no GPA are left out, as in the
+ * CLI report.
+ */
+public class RankingService {
+    // Below this many candidates a single heap is faster than forking
+    private static final int PARALLEL_THRESHOLD = 10_000;
+    
+    // Best first: higher GPA, then lower ID so ties rank the same on every run
+    private static final Comparator<RankedStudent> BEST_FIRST =
+        Comparator.comparingDouble(RankedStudent::getGpa).reversed()
+            .thenComparing(r -> r.getStudent().getId());
+    
+    private final StudentService studentService;
+    private final CourseService courseService;
+    
+    public RankingService(StudentService studentService, CourseService courseService) {
+        ValidationUtils.validateNotNull(studentService, "Student service cannot be null");
+        ValidationUtils.validateNotNull(courseService, "Course service cannot be null");
+        this.studentService = studentService;
+        this.courseService = courseService;
+    }
+    
+    public static class RankedStudent {
+        private final Student student;
+        private final double gpa;
+        
+        RankedStudent(Student student, double gpa) {
+            this.student = student;
+            this.gpa = gpa;
+        }
+        
+        public Student getStudent() { return student; }
+        public double getGpa() { return gpa; }
+        
+        @Override
+        public String toString() {
+            return String.format("%s - GPA: %.2f", student.getFullName(), gpa);
+        }
+    }
+    
+    /** Top {@code n} active students by overall GPA, best first. */
+    public List<RankedStudent> topByGpa(int n) {
+        validateLimit(n);
+        List<Student> students = studentService.findAll();
+        return top(stream(students)
+            .filter(Student::isActive)
+            .map(s -> new RankedStudent(s, s.calculateGPA())), n);
+    }
+    
+    /** Top {@code n} students by GPA over their courses in the department (case-insensitive). */
+    public List<RankedStudent> topByDepartment(String department, int n) {
+        ValidationUtils.validateNotNull(department, "Department cannot be null");
+        validateLimit(n);
+        return topByScope(courseService.findByDepartment(department), n);
+    }
+    
+    /** Top {@code n} students by GPA over their courses offered in the semester. */
+    public List<RankedStudent> topBySemester(Semester semester, int n) {
+        ValidationUtils.validateNotNull(semester, "Semester cannot be null");
+        validateLimit(n);
+        return topByScope(courseService.findBySemester(semester), n);
+    }
+    
+    /** Top {@code n} students by their grade in the course. */
+    public List<RankedStudent> topByCourse(String courseCode, int n) {
+        ValidationUtils.validateNotNull(courseCode, "Course code cannot be null");
+        validateLimit(n);
+        Course course = courseService.findById(courseCode)
+            .orElseThrow(() -> new IllegalArgumentException("Course with code " + courseCode + " not found"));
+        return topByScope(List.of(course), n);
+    }
+    
+    // Accumulates credit-weighted points per student over the scope's rosters, then ranks
+    private List<RankedStudent> topByScope(Collection<Course> scope, int n) {
+        Map<Student, double[]> totals = new HashMap<>();
+        for (Course course : scope) {
+            int credits = course.getCredits();
+            for (Enrollment enrollment : course.getRoster()) {
+                Grade grade = enrollment.getGrade();
+                if (grade != null && enrollment.getStudent().isActive()) {
+                    double[] total = totals.computeIfAbsent(enrollment.getStudent(), s -> new double[2]);
+                    total[0] += grade.getPoints() * credits;
+                    total[1] += credits;
+                }
+            }
+        }
+        List<RankedStudent> candidates = new ArrayList<>(totals.size());
+        totals.forEach((student, total) -> {
+            if (total[1] > 0) {
+                candidates.add(new RankedStudent(student, total[0] / total[1]));
+            }
+        });
+        return top(stream(candidates), n);
+    }
+    
+    private static <T> Stream<T> stream(List<T> candidates) {
+        return candidates.size() >= PARALLEL_THRESHOLD ? candidates.parallelStream() : candidates.stream();
+    }
+    
+    private static List<RankedStudent> top(Stream<RankedStudent> candidates, int n) {
+        if (n == 0) {
+            return new ArrayList<>();
+        }
+        return candidates
+            .filter(r -> r.getGpa() > 0)
+            .collect(Collector.of(() -> new BoundedHeap(n), BoundedHeap::offer, BoundedHeap::merge, BoundedHeap::toList));
+    }
+    
+    private static void validateLimit(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative");
+        }
+    }
+    
+    /** Keeps the best {@code limit} entries seen; the worst kept entry sits at the head. */
+    private static final class BoundedHeap {
+        private final int limit;
+        private final PriorityQueue<RankedStudent> heap;
+        
+        BoundedHeap(int limit) {
+            this.limit = limit;
+            this.heap = new PriorityQueue<>(Math.min(limit, 1024) + 1, BEST_FIRST.reversed());
+        }
+        
+        void offer(RankedStudent candidate) {
+            if (heap.size() < limit) {
+                heap.add(candidate);
+            } else if (BEST_FIRST.compare(candidate, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(candidate);
+            }
+        }
+        
+        BoundedHeap merge(BoundedHeap other) {
+            other.heap.forEach(this::offer);
+            return this;
+        }
+        
+        List<RankedStudent> toList() {
+            List<RankedStudent> result = new ArrayList<>(heap);
+            result.sort(BEST_FIRST);
+            return result;
+        }
+    }
+}
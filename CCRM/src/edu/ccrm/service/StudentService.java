@@ -4,129 +4,453 @@ import ccrm.domain.Student;
 import ccrm.domain.Enrollment;
 import ccrm.domain.Course;
 import ccrm.domain.Grade;
+import ccrm.metrics.MetricsRegistry;
+import ccrm.metrics.Timer;
 import ccrm.util.ValidationUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class StudentService implements Searchable<Student> {
     private List<Student> students;
-    private static final int MAX_CREDITS_PER_SEMESTER = 18;
+    // Hash indexes kept next to the list so lookups and duplicate checks are O(1)
+    private Map<String, Student> studentsById;
+    private Map<String, Student> studentsByRegNo;
+    // Striped locks make each student's check-then-act enrollment steps atomic
+    private final Object[] studentLocks;
+    private final boolean concurrent;
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    public static final int MAX_CREDITS_PER_SEMESTER = 18;
+    // Process-wide operation metrics, shared by every instance
+    private static final Timer ADD_TIMER = MetricsRegistry.getInstance().timer("students.add");
+    private static final Timer UPDATE_TIMER = MetricsRegistry.getInstance().timer("students.update");
+    private static final Timer DEACTIVATE_TIMER = MetricsRegistry.getInstance().timer("students.deactivate");
+    private static final Timer ENROLL_TIMER = MetricsRegistry.getInstance().timer("students.enroll");
+    private static final Timer ENROLL_ALL_TIMER = MetricsRegistry.getInstance().timer("students.enrollAll");
+    private static final Timer UNENROLL_TIMER = MetricsRegistry.getInstance().timer("students.unenroll");
+    private static final Timer RECORD_GRADE_TIMER = MetricsRegistry.getInstance().timer("students.recordGrade");
+    private static final Timer TRANSCRIPT_TIMER = MetricsRegistry.getInstance().timer("students.transcript");
+    private static final Timer SEARCH_TIMER = MetricsRegistry.getInstance().timer("students.search");
+    private static final Timer FIND_BY_ID_TIMER = MetricsRegistry.getInstance().timer("students.findById");
     
     public StudentService() {
-        this.students = new ArrayList<>();
+        this(false);
+    }
+    
+    /**
+     * @param concurrent when true, the service is safe to call from many threads:
+     *                   indexes are concurrent maps, so students can be added
+     *                   while others are read. Either way each student is guarded
+     *                   by one of a fixed set of lock stripes, so enrollments for
+     *                   different students proceed in parallel.
+     */
+    public StudentService(boolean concurrent) {
+        this.concurrent = concurrent;
+        if (concurrent) {
+            this.students = Collections.synchronizedList(new ArrayList<>());
+            this.studentsById = new ConcurrentHashMap<>();
+            this.studentsByRegNo = new ConcurrentHashMap<>();
+        } else {
+            this.students = new ArrayList<>();
+            this.studentsById = new HashMap<>();
+            this.studentsByRegNo = new HashMap<>();
+        }
+        // Also striped when not concurrent, so parallel work over the students does not serialize
+        this.studentLocks = new Object[stripeCount()];
+        for (int i = 0; i < studentLocks.length; i++) {
+            studentLocks[i] = new Object();
+        }
+    }
+    
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+    
+    public void addChangeListener(ChangeListener listener) {
+        ValidationUtils.validateNotNull(listener, "Listener cannot be null");
+        listeners.add(listener);
+    }
+    
+    public void removeChangeListener(ChangeListener listener) {
+        listeners.remove(listener);
     }
     
     public void addStudent(Student student) {
+        ADD_TIMER.time(() -> doAddStudent(student));
+    }
+    
+    private void doAddStudent(Student student) {
         ValidationUtils.validateNotNull(student, "Student cannot be null");
         
-        // Check if student with same ID already exists
-        if (findById(student.getId()).isPresent()) {
-            throw new IllegalArgumentException("Student with ID " + student.getId() + " already exists");
+        // Publish and notify under the student's stripe: every other change to the student
+        // takes the stripe too, so none can reach the listeners (the journal) before the add
+        synchronized (lockFor(student.getId())) {
+            // Claim the ID and registration number atomically so concurrent adds can't both succeed
+            if (studentsById.putIfAbsent(student.getId(), student) != null) {
+                throw new IllegalArgumentException("Student with ID " + student.getId() + " already exists");
+            }
+            if (studentsByRegNo.putIfAbsent(student.getRegNo(), student) != null) {
+                studentsById.remove(student.getId());
+                throw new IllegalArgumentException("Student with registration number " + student.getRegNo() + " already exists");
+            }
+            students.add(student);
+            listeners.forEach(l -> l.studentAdded(student));
         }
-        
-        students.add(student);
+    }
+    
+    public void addStudents(Collection<Student> newStudents) {
+        ValidationUtils.validateNotNull(newStudents, "Students cannot be null");
+        newStudents.forEach(this::addStudent);
     }
     
     public void updateStudent(String id, String fullName, String email) {
+        UPDATE_TIMER.time(() -> doUpdateStudent(id, fullName, email));
+    }
+    
+    private void doUpdateStudent(String id, String fullName, String email) {
         ValidationUtils.validateNotNull(id, "Student ID cannot be null");
         
-        Student student = findById(id)
+        Student student = byId(id)
             .orElseThrow(() -> new IllegalArgumentException("Student with ID " + id + " not found"));
         
-        if (fullName != null && !fullName.trim().isEmpty()) {
-            student.setFullName(fullName);
+        if (email != null && !email.trim().isEmpty() && !ValidationUtils.isValidEmail(email)) {
+            throw new IllegalArgumentException("Invalid email format");
         }
         
-        if (email != null && !email.trim().isEmpty()) {
-            if (ValidationUtils.isValidEmail(email)) {
+        synchronized (lockFor(id)) {
+            if (fullName != null && !fullName.trim().isEmpty()) {
+                student.setFullName(fullName);
+            }
+            
+            if (email != null && !email.trim().isEmpty()) {
                 student.setEmail(email);
-            } else {
-                throw new IllegalArgumentException("Invalid email format");
             }
+            listeners.forEach(l -> l.studentUpdated(student));
+        }
+    }
+    
+    public void changeRegNo(String id, String newRegNo) {
+        ValidationUtils.validateNotNull(id, "Student ID cannot be null");
+        ValidationUtils.validateNotNull(newRegNo, "Registration number cannot be null");
+        
+        Student student = byId(id)
+            .orElseThrow(() -> new IllegalArgumentException("Student with ID " + id + " not found"));
+        
+        if (newRegNo.equals(student.getRegNo())) {
+            return;
+        }
+        
+        synchronized (lockFor(id)) {
+            if (studentsByRegNo.putIfAbsent(newRegNo, student) != null) {
+                throw new IllegalArgumentException("Student with registration number " + newRegNo + " already exists");
+            }
+            
+            // Re-key the registration index along with the student
+            studentsByRegNo.remove(student.getRegNo(), student);
+            student.setRegNo(newRegNo);
+            listeners.forEach(l -> l.studentUpdated(student));
         }
     }
     
     public void deactivateStudent(String id) {
-        Student student = findById(id)
+        DEACTIVATE_TIMER.time(() -> doDeactivateStudent(id));
+    }
+    
+    private void doDeactivateStudent(String id) {
+        Student student = byId(id)
             .orElseThrow(() -> new IllegalArgumentException("Student with ID " + id + " not found"));
-        student.setActive(false);
+        synchronized (lockFor(id)) {
+            student.setActive(false);
+            listeners.forEach(l -> l.studentUpdated(student));
+        }
     }
     
     public void enrollInCourse(String studentId, Course course) {
+        long start = System.nanoTime();
+        try {
+            doEnrollInCourse(studentId, course);
+        } catch (Throwable e) {
+            ENROLL_TIMER.recordError();
+            throw e;
+        } finally {
+            ENROLL_TIMER.stop(start);
+        }
+    }
+    
+    private void doEnrollInCourse(String studentId, Course course) {
         ValidationUtils.validateNotNull(studentId, "Student ID cannot be null");
         ValidationUtils.validateNotNull(course, "Course cannot be null");
         
-        Student student = findById(studentId)
+        Student student = byId(studentId)
             .orElseThrow(() -> new IllegalArgumentException("Student with ID " + studentId + " not found"));
         
-        // Check if student is already enrolled in this course
-        boolean alreadyEnrolled = student.getEnrollments().stream()
-            .anyMatch(e -> e.getCourse().equals(course));
+        // The duplicate check, credit check and insert must happen as one step per student
+        synchronized (lockFor(studentId)) {
+            // Check if student is already enrolled in this course
+            if (isEnrolled(student, course)) {
+                throw new IllegalStateException("Student is already enrolled in this course");
+            }
+            
+            // Check credit limit
+            if (enrolledCredits(student) + course.getCredits() > MAX_CREDITS_PER_SEMESTER) {
+                throw new IllegalStateException("Credit limit exceeded. Maximum allowed: " + MAX_CREDITS_PER_SEMESTER);
+            }
+            
+            Enrollment enrollment = new Enrollment(student, course);
+            student.addEnrollment(enrollment);
+            listeners.forEach(l -> l.enrollmentAdded(enrollment));
+        }
+    }
+    
+    /**
+     * Re-attaches a persisted enrollment, grade included, without the duplicate
+     * and credit-limit checks, which the enrollment already passed when it was made.
+     */
+    public void restoreEnrollment(Enrollment enrollment) {
+        ValidationUtils.validateNotNull(enrollment, "Enrollment cannot be null");
+        Student student = enrollment.getStudent();
+        if (studentsById.get(student.getId()) != student) {
+            throw new IllegalArgumentException("Student with ID " + student.getId() + " not found");
+        }
+        
+        synchronized (lockFor(student.getId())) {
+            student.addEnrollment(enrollment);
+            listeners.forEach(l -> l.enrollmentAdded(enrollment));
+        }
+    }
+    
+    /**
+     * Enrolls a batch of (studentId, courseCode) rows in one call.
+     * <p>
+     * Rows are grouped by student and each group is validated in parallel against
+     * the student's existing enrollments and the group's earlier rows, using the same
+     * duplicate and credit-limit rules as {@link #enrollInCourse}. Only after every
+     * group has been validated are the accepted rows applied, each student's rows
+     * under that student's lock stripe. Returns one result per row, in input order,
+     * numbered by the row's source line when the request carries one.
+     */
+    public BulkEnrollment.Report enrollAll(Stream<BulkEnrollment.Request> requests,
+                                           Function<String, Optional<Course>> courseLookup) {
+        return ENROLL_ALL_TIMER.time(() -> doEnrollAll(requests, courseLookup));
+    }
+    
+    private BulkEnrollment.Report doEnrollAll(Stream<BulkEnrollment.Request> requests,
+                                              Function<String, Optional<Course>> courseLookup) {
+        ValidationUtils.validateNotNull(requests, "Requests cannot be null");
+        ValidationUtils.validateNotNull(courseLookup, "Course lookup cannot be null");
+        
+        List<BulkEnrollment.Request> rows = requests.collect(Collectors.toList());
+        BulkEnrollment.RowResult[] results = new BulkEnrollment.RowResult[rows.size()];
+        
+        // Resolve each distinct course once and group row indexes by student, keeping input order
+        Map<String, Course> courses = new HashMap<>();
+        Map<String, List<Integer>> rowsByStudent = new LinkedHashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            BulkEnrollment.Request request = rows.get(i);
+            if (request.getStudentId() == null || request.getCourseCode() == null) {
+                results[i] = new BulkEnrollment.RowResult(i + 1, request, BulkEnrollment.Status.INVALID,
+                    "Student ID and course code are required");
+                continue;
+            }
+            if (!courses.containsKey(request.getCourseCode())) {
+                courses.put(request.getCourseCode(), courseLookup.apply(request.getCourseCode()).orElse(null));
+            }
+            rowsByStudent.computeIfAbsent(request.getStudentId(), k -> new ArrayList<>()).add(i);
+        }
+        
+        // Phase 1: validate every student's rows in parallel; nothing is modified yet
+        Map<String, List<Integer>> accepted = new ConcurrentHashMap<>();
+        rowsByStudent.entrySet().parallelStream().forEach(group -> {
+            List<Integer> plan = validateGroup(group.getKey(), group.getValue(), rows, courses, results);
+            if (!plan.isEmpty()) {
+                accepted.put(group.getKey(), plan);
+            }
+        });
+        
+        // Phase 2: apply all accepted rows, re-checking in case another thread enrolled meanwhile
+        accepted.entrySet().parallelStream().forEach(group -> {
+            Student student = studentsById.get(group.getKey());
+            synchronized (lockFor(group.getKey())) {
+                for (int i : group.getValue()) {
+                    BulkEnrollment.Request request = rows.get(i);
+                    Course course = courses.get(request.getCourseCode());
+                    if (isEnrolled(student, course)) {
+                        results[i] = new BulkEnrollment.RowResult(i + 1, request,
+                            BulkEnrollment.Status.ALREADY_ENROLLED, "Enrolled concurrently during the batch");
+                    } else if (enrolledCredits(student) + course.getCredits() > MAX_CREDITS_PER_SEMESTER) {
+                        results[i] = new BulkEnrollment.RowResult(i + 1, request,
+                            BulkEnrollment.Status.CREDIT_LIMIT_EXCEEDED, "Credits changed concurrently during the batch");
+                    } else {
+                        Enrollment enrollment = new Enrollment(student, course);
+                        student.addEnrollment(enrollment);
+                        listeners.forEach(l -> l.enrollmentAdded(enrollment));
+                        results[i] = new BulkEnrollment.RowResult(i + 1, request, BulkEnrollment.Status.ENROLLED, null);
+                    }
+                }
+            }
+        });
         
-        if (alreadyEnrolled) {
-            throw new IllegalStateException("Student is already enrolled in this course");
+        return new BulkEnrollment.Report(Arrays.asList(results));
+    }
+    
+    private List<Integer> validateGroup(String studentId, List<Integer> rowIndexes,
+                                        List<BulkEnrollment.Request> rows, Map<String, Course> courses,
+                                        BulkEnrollment.RowResult[] results) {
+        List<Integer> plan = new ArrayList<>();
+        Student student = studentsById.get(studentId);
+        if (student == null) {
+            for (int i : rowIndexes) {
+                results[i] = new BulkEnrollment.RowResult(i + 1, rows.get(i), BulkEnrollment.Status.STUDENT_NOT_FOUND,
+                    "Student with ID " + studentId + " not found");
+            }
+            return plan;
         }
         
-        // Check credit limit
-        int currentCredits = student.getEnrollments().stream()
+        synchronized (lockFor(studentId)) {
+            Set<Course> planned = new HashSet<>();
+            int credits = enrolledCredits(student);
+            for (int i : rowIndexes) {
+                BulkEnrollment.Request request = rows.get(i);
+                Course course = courses.get(request.getCourseCode());
+                if (course == null) {
+                    results[i] = new BulkEnrollment.RowResult(i + 1, request, BulkEnrollment.Status.COURSE_NOT_FOUND,
+                        "Course with code " + request.getCourseCode() + " not found");
+                } else if (planned.contains(course) || isEnrolled(student, course)) {
+                    results[i] = new BulkEnrollment.RowResult(i + 1, request, BulkEnrollment.Status.ALREADY_ENROLLED,
+                        "Student is already enrolled in this course");
+                } else if (credits + course.getCredits() > MAX_CREDITS_PER_SEMESTER) {
+                    results[i] = new BulkEnrollment.RowResult(i + 1, request, BulkEnrollment.Status.CREDIT_LIMIT_EXCEEDED,
+                        "Credit limit exceeded. Maximum allowed: " + MAX_CREDITS_PER_SEMESTER);
+                } else {
+                    planned.add(course);
+                    credits += course.getCredits();
+                    plan.add(i);
+                }
+            }
+        }
+        return plan;
+    }
+    
+    private static boolean isEnrolled(Student student, Course course) {
+        return student.getEnrollments().stream()
+            .anyMatch(e -> e.getCourse().equals(course));
+    }
+    
+    private static int enrolledCredits(Student student) {
+        return student.getEnrollments().stream()
             .mapToInt(e -> e.getCourse().getCredits())
             .sum();
+    }
+    
+    public boolean unenrollFromCourse(String studentId, String courseCode) {
+        return UNENROLL_TIMER.time(() -> doUnenrollFromCourse(studentId, courseCode));
+    }
+    
+    private boolean doUnenrollFromCourse(String studentId, String courseCode) {
+        ValidationUtils.validateNotNull(studentId, "Student ID cannot be null");
+        ValidationUtils.validateNotNull(courseCode, "Course code cannot be null");
         
-        if (currentCredits + course.getCredits() > MAX_CREDITS_PER_SEMESTER) {
-            throw new IllegalStateException("Credit limit exceeded. Maximum allowed: " + MAX_CREDITS_PER_SEMESTER);
-        }
+        Student student = byId(studentId)
+            .orElseThrow(() -> new IllegalArgumentException("Student with ID " + studentId + " not found"));
         
-        Enrollment enrollment = new Enrollment(student, course);
-        student.addEnrollment(enrollment);
+        synchronized (lockFor(studentId)) {
+            Optional<Enrollment> enrollment = student.getEnrollments().stream()
+                .filter(e -> e.getCourse().getCode().equals(courseCode))
+                .findFirst();
+            
+            enrollment.ifPresent(e -> {
+                student.removeEnrollment(e);
+                listeners.forEach(l -> l.enrollmentRemoved(e));
+            });
+            return enrollment.isPresent();
+        }
     }
     
     public void recordGrade(String studentId, String courseCode, Grade grade) {
+        long start = System.nanoTime();
+        try {
+            doRecordGrade(studentId, courseCode, grade);
+        } catch (Throwable e) {
+            RECORD_GRADE_TIMER.recordError();
+            throw e;
+        } finally {
+            RECORD_GRADE_TIMER.stop(start);
+        }
+    }
+    
+    private void doRecordGrade(String studentId, String courseCode, Grade grade) {
         ValidationUtils.validateNotNull(studentId, "Student ID cannot be null");
         ValidationUtils.validateNotNull(courseCode, "Course code cannot be null");
         ValidationUtils.validateNotNull(grade, "Grade cannot be null");
         
-        Student student = findById(studentId)
+        Student student = byId(studentId)
             .orElseThrow(() -> new IllegalArgumentException("Student with ID " + studentId + " not found"));
         
-        Optional<Enrollment> enrollment = student.getEnrollments().stream()
-            .filter(e -> e.getCourse().getCode().equals(courseCode))
-            .findFirst();
-        
-        if (enrollment.isPresent()) {
-            enrollment.get().setGrade(grade);
-        } else {
-            throw new IllegalArgumentException("Student is not enrolled in course " + courseCode);
+        synchronized (lockFor(studentId)) {
+            Optional<Enrollment> enrollment = student.getEnrollments().stream()
+                .filter(e -> e.getCourse().getCode().equals(courseCode))
+                .findFirst();
+            
+            if (enrollment.isPresent()) {
+                Grade previous = enrollment.get().getGrade();
+                enrollment.get().setGrade(grade);
+                listeners.forEach(l -> l.gradeRecorded(enrollment.get(), previous));
+            } else {
+                throw new IllegalArgumentException("Student is not enrolled in course " + courseCode);
+            }
         }
     }
     
     public String generateTranscript(String studentId) {
-        Student student = findById(studentId)
+        return TRANSCRIPT_TIMER.time(() -> doGenerateTranscript(studentId));
+    }
+    
+    private String doGenerateTranscript(String studentId) {
+        Student student = byId(studentId)
             .orElseThrow(() -> new IllegalArgumentException("Student with ID " + studentId + " not found"));
         
         StringBuilder transcript = new StringBuilder();
-        transcript.append("Transcript for: ").append(student.getFullName()).append("\n");
-        transcript.append("Registration No: ").append(student.getRegNo()).append("\n");
-        transcript.append("GPA: ").append(String.format("%.2f", student.calculateGPA())).append("\n\n");
-        transcript.append("Courses:\n");
-        
-        student.getEnrollments().forEach(enrollment -> {
-            transcript.append(String.format("- %s: %s (%d credits) - %s\n",
-                enrollment.getCourse().getCode(),
-                enrollment.getCourse().getTitle(),
-                enrollment.getCourse().getCredits(),
-                enrollment.getGrade() != null ? enrollment.getGrade() : "Not graded"));
-        });
+        synchronized (lockFor(studentId)) {
+            transcript.append("Transcript for: ").append(student.getFullName()).append("\n");
+            transcript.append("Registration No: ").append(student.getRegNo()).append("\n");
+            transcript.append("GPA: ").append(String.format("%.2f", student.calculateGPA())).append("\n\n");
+            transcript.append("Courses:\n");
+            
+            student.getEnrollments().forEach(enrollment -> {
+                transcript.append(String.format("- %s: %s (%d credits) - %s\n",
+                    enrollment.getCourse().getCode(),
+                    enrollment.getCourse().getTitle(),
+                    enrollment.getCourse().getCredits(),
+                    enrollment.getGrade() != null ? enrollment.getGrade() : "Not graded"));
+            });
+        }
         
         return transcript.toString();
     }
     
     @Override
     public List<Student> search(Predicate<Student> predicate) {
-        return students.stream()
+        return SEARCH_TIMER.time(() -> doSearch(predicate));
+    }
+    
+    private List<Student> doSearch(Predicate<Student> predicate) {
+        // Filter a snapshot so a concurrent add can't break the stream
+        return findAll().stream()
             .filter(predicate)
             .collect(Collectors.toList());
     }
@@ -136,16 +460,65 @@ public class StudentService implements Searchable<Student> {
         return new ArrayList<>(students);
     }
     
+    public int count() {
+        return students.size();
+    }
+    
+    /**
+     * Returns up to {@code limit} students starting at {@code offset}, in the
+     * order they were added, copying only that slice.
+     */
+    public List<Student> findPage(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit cannot be negative");
+        }
+        // The synchronized list guards itself; subList views need the lock held
+        synchronized (students) {
+            int from = Math.min(offset, students.size());
+            int to = (int) Math.min((long) from + limit, students.size());
+            return new ArrayList<>(students.subList(from, to));
+        }
+    }
+    
     @Override
     public Optional<Student> findById(String id) {
-        return students.stream()
-            .filter(s -> s.getId().equals(id))
-            .findFirst();
+        // Hot path: timed inline so no lambda is captured per call
+        long start = System.nanoTime();
+        try {
+            return byId(id);
+        } catch (Throwable e) {
+            FIND_BY_ID_TIMER.recordError();
+            throw e;
+        } finally {
+            FIND_BY_ID_TIMER.stop(start);
+        }
+    }
+    
+    // Untimed, for operations that are timed as a whole
+    private Optional<Student> byId(String id) {
+        return Optional.ofNullable(studentsById.get(id));
     }
     
     public Optional<Student> findByRegNo(String regNo) {
-        return students.stream()
-            .filter(s -> s.getRegNo().equals(regNo))
-            .findFirst();
+        return Optional.ofNullable(studentsByRegNo.get(regNo));
+    }
+    
+    /**
+     * Returns the lock guarding the given student's enrollments. Callers that
+     * read or modify a student's enrollments outside this service should hold it.
+     */
+    public Object lockFor(String studentId) {
+        int h = studentId.hashCode();
+        return studentLocks[(h ^ (h >>> 16)) & (studentLocks.length - 1)];
+    }
+    
+    private static int stripeCount() {
+        // Power of two, comfortably more stripes than threads so unrelated students rarely collide
+        int target = Runtime.getRuntime().availableProcessors() * 16;
+        int stripes = 1;
+        while (stripes < target) {
+            stripes <<= 1;
+        }
+        return stripes;
     }
 }
\ No newline at end of file
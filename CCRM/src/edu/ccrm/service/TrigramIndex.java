@@ -0,0 +1,268 @@
+package ccrm.service;
+
+import ccrm.util.ValidationUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Inverted trigram index for typo-tolerant text search.
+ * <p>
+ * Every field of an item is split into words, each word padded as in
+ * PostgreSQL's pg_trgm ("  word ") and cut into three-character grams. A
+ * query matches a field by the share of the query's trigrams the field
+ * contains, so misspelled or partial words still match on the trigrams they
+ * keep. Ties go to the field with the fewest extra trigrams, i.e. the closest
+ * overall. Only the posting lists of the query's own trigrams are read.
+ * <p>
+ * Replaced and removed fields leave dead postings behind, which are skipped
+ * and compacted away once they outnumber the live ones. All methods are
+ * synchronized.
+ */
+public class TrigramIndex<T> {
+    /** Share of the query's trigrams a field must contain to match. */
+    public static final double DEFAULT_MIN_SCORE = 0.3;
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int[] NO_DOCUMENTS = new int[0];
+    
+    // One document per indexed field; a null item marks a dead document
+    private Object[] documentItems = new Object[INITIAL_CAPACITY];
+    private int[] documentSizes = new int[INITIAL_CAPACITY];
+    private int documentCount;
+    private int deadCount;
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final Map<T, int[]> documentsByItem = new IdentityHashMap<>();
+    // Per-query hit counters, reused between queries and cleared through the touched list
+    private int[] hits = new int[INITIAL_CAPACITY];
+    
+    private static class Postings {
+        int[] documents = new int[4];
+        int size;
+        
+        void add(int document) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+            }
+            documents[size++] = document;
+        }
+    }
+    
+    public static class Match<T> {
+        private final T item;
+        private final double score;
+        
+        Match(T item, double score) {
+            this.item = item;
+            this.score = score;
+        }
+        
+        public T getItem() { return item; }
+        /** Share of the query's trigrams found in the best matching field, from 0 to 1. */
+        public double getScore() { return score; }
+        
+        @Override
+        public String toString() {
+            return String.format("%s (%.0f%%)", item, score * 100);
+        }
+    }
+    
+    /** Indexes the item's fields, replacing whatever was indexed for it before. Null fields are skipped. */
+    public synchronized void put(T item, String... fields) {
+        ValidationUtils.validateNotNull(item, "Item cannot be null");
+        remove(item);
+        int[] documents = new int[fields.length];
+        int added = 0;
+        for (String field : fields) {
+            long[] trigrams = field == null ? new long[0] : trigrams(field);
+            if (trigrams.length == 0) {
+                continue;
+            }
+            int document = newDocument(item, trigrams.length);
+            for (long trigram : trigrams) {
+                postings.computeIfAbsent(trigram, t -> new Postings()).add(document);
+            }
+            documents[added++] = document;
+        }
+        if (added > 0) {
+            documentsByItem.put(item, Arrays.copyOf(documents, added));
+        }
+    }
+    
+    public synchronized void remove(T item) {
+        int[] documents = documentsByItem.remove(item);
+        if (documents == null) {
+            return;
+        }
+        for (int document : documents) {
+            documentItems[document] = null;
+        }
+        deadCount += documents.length;
+        if (deadCount > INITIAL_CAPACITY && deadCount > documentCount - deadCount) {
+            compact();
+        }
+    }
+    
+    public synchronized int size() {
+        return documentsByItem.size();
+    }
+    
+    public List<Match<T>> search(String query, int limit) {
+        return search(query, limit, DEFAULT_MIN_SCORE);
+    }
+    
+    /** Best matches first, at most {@code limit} of them, each scoring at least {@code minScore}. */
+    @SuppressWarnings("unchecked")
+    public synchronized List<Match<T>> search(String query, int limit, double minScore) {
+        ValidationUtils.validateNotNull(query, "Query cannot be null");
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative");
+        }
+        long[] queryTrigrams = trigrams(query);
+        if (queryTrigrams.length == 0 || limit == 0) {
+            return new ArrayList<>();
+        }
+        
+        if (hits.length < documentCount) {
+            hits = new int[documentItems.length];
+        }
+        int[] touched = new int[64];
+        int touchedCount = 0;
+        for (long trigram : queryTrigrams) {
+            Postings list = postings.get(trigram);
+            int[] documents = list == null ? NO_DOCUMENTS : list.documents;
+            int size = list == null ? 0 : list.size;
+            for (int i = 0; i < size; i++) {
+                int document = documents[i];
+                if (hits[document]++ == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = document;
+                }
+            }
+        }
+        
+        // Keep each item's best field, then rank by coverage, closeness and indexing order
+        Map<T, double[]> best = new IdentityHashMap<>();
+        int needed = (int) Math.ceil(minScore * queryTrigrams.length);
+        for (int i = 0; i < touchedCount; i++) {
+            int document = touched[i];
+            int shared = hits[document];
+            hits[document] = 0;
+            T item = (T) documentItems[document];
+            if (item == null || shared < needed) {
+                continue;
+            }
+            double coverage = (double) shared / queryTrigrams.length;
+            double closeness = (double) shared / (queryTrigrams.length + documentSizes[document] - shared);
+            // {coverage, closeness, first document}
+            double[] score = best.computeIfAbsent(item, k -> new double[] {-1, -1, document});
+            if (coverage > score[0] || (coverage == score[0] && closeness > score[1])) {
+                score[0] = coverage;
+                score[1] = closeness;
+            }
+            score[2] = Math.min(score[2], document);
+        }
+        
+        List<Map.Entry<T, double[]>> ranked = new ArrayList<>(best.entrySet());
+        ranked.sort((a, b) -> {
+            int byCoverage = Double.compare(b.getValue()[0], a.getValue()[0]);
+            if (byCoverage != 0) {
+                return byCoverage;
+            }
+            int byCloseness = Double.compare(b.getValue()[1], a.getValue()[1]);
+            return byCloseness != 0 ? byCloseness : Double.compare(a.getValue()[2], b.getValue()[2]);
+        });
+        List<Match<T>> result = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            result.add(new Match<>(ranked.get(i).getKey(), ranked.get(i).getValue()[0]));
+        }
+        return result;
+    }
+    
+    private int newDocument(T item, int size) {
+        if (documentCount == documentItems.length) {
+            int capacity = documentCount * 2;
+            documentItems = Arrays.copyOf(documentItems, capacity);
+            documentSizes = Arrays.copyOf(documentSizes, capacity);
+        }
+        documentItems[documentCount] = item;
+        documentSizes[documentCount] = size;
+        return documentCount++;
+    }
+    
+    // Renumbers live documents densely and drops dead ones from every posting list
+    private void compact() {
+        int[] renumbered = new int[documentCount];
+        int live = 0;
+        for (int document = 0; document < documentCount; document++) {
+            if (documentItems[document] != null) {
+                renumbered[document] = live;
+                documentItems[live] = documentItems[document];
+                documentSizes[live] = documentSizes[document];
+                live++;
+            } else {
+                renumbered[document] = -1;
+            }
+        }
+        Arrays.fill(documentItems, live, documentCount, null);
+        documentCount = live;
+        deadCount = 0;
+        
+        postings.values().removeIf(list -> {
+            int kept = 0;
+            for (int i = 0; i < list.size; i++) {
+                int document = renumbered[list.documents[i]];
+                if (document >= 0) {
+                    list.documents[kept++] = document;
+                }
+            }
+            list.size = kept;
+            return kept == 0;
+        });
+        for (int[] documents : documentsByItem.values()) {
+            for (int i = 0; i < documents.length; i++) {
+                documents[i] = renumbered[documents[i]];
+            }
+        }
+    }
+    
+    /** Distinct trigrams of the text's words, packed three chars to a long. */
+    static long[] trigrams(String text) {
+        String folded = text.toLowerCase(Locale.ROOT);
+        long[] grams = new long[folded.length() * 3 + 3];
+        int count = 0;
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                // Pad as "  word " so word starts weigh more than middles and short words still index
+                char previous2 = ' ';
+                char previous1 = ' ';
+                for (int j = start; j <= i; j++) {
+                    char c = j < i ? folded.charAt(j) : ' ';
+                    grams[count++] = ((long) previous2 << 32) | ((long) previous1 << 16) | c;
+                    previous2 = previous1;
+                    previous1 = c;
+                }
+                start = -1;
+            }
+        }
+        long[] distinct = Arrays.copyOf(grams, count);
+        Arrays.sort(distinct);
+        int unique = 0;
+        for (int i = 0; i < distinct.length; i++) {
+            if (unique == 0 || distinct[i] != distinct[unique - 1]) {
+                distinct[unique++] = distinct[i];
+            }
+        }
+        return Arrays.copyOf(distinct, unique);
+    }
+}
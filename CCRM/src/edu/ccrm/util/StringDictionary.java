@@ -0,0 +1,56 @@
+package ccrm.util;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Canonicalizes strings that repeat across many records, such as course
+ * departments and instructors, so every equal value shares one instance.
+ * Canonical values can then be compared by reference before falling back to
+ * {@link String#equals}. Entries are weak: a value stays in the dictionary only
+ * while some record still holds it, so values that arrive through imports, the
+ * batch runner or the HTTP API and are later replaced do not accumulate.
+ */
+public class StringDictionary {
+    private static final StringDictionary SHARED = new StringDictionary();
+    
+    // The canonical instance is both the weak key and the referent of its weak value
+    private final Map<String, WeakReference<String>> values = new WeakHashMap<>();
+    
+    public static StringDictionary shared() {
+        return SHARED;
+    }
+    
+    public synchronized String canonical(String value) {
+        if (value == null) {
+            return null;
+        }
+        WeakReference<String> ref = values.get(value);
+        String existing = ref != null ? ref.get() : null;
+        if (existing != null) {
+            return existing;
+        }
+        values.put(value, new WeakReference<>(value));
+        return value;
+    }
+    
+    /**
+     * Returns the canonical instance equal to {@code value}, or {@code value} itself
+     * if there is none. Unlike {@link #canonical(String)} it never adds an entry, so
+     * it suits one-off values such as search queries.
+     */
+    public synchronized String find(String value) {
+        if (value == null) {
+            return null;
+        }
+        WeakReference<String> ref = values.get(value);
+        String existing = ref != null ? ref.get() : null;
+        return existing != null ? existing : value;
+    }
+    
+    /** Number of values currently held; collected values may still be counted until the map is next used. */
+    public synchronized int size() {
+        return values.size();
+    }
+}
@@ -2,11 +2,87 @@ package ccrm.util;
 
 import ccrm.domain.Student;
 import ccrm.domain.Course;
+import ccrm.domain.Enrollment;
+import ccrm.domain.Grade;
 import ccrm.domain.Semester;
+import ccrm.io.CsvWriter;
+import ccrm.io.ImportExportService;
 import ccrm.service.StudentService;
 import ccrm.service.CourseService;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Sample data for the CLI, plus a seeded generator for load tests and
+ * benchmarks.
+ * <p>
+ * The generator builds a course catalog across departments (mostly 3-credit
+ * courses, intro levels the most popular) and students who each major in a
+ * department, take three to six courses within the credit limit, mostly in
+ * their major, and earn grades from a per-student ability, so GPAs spread
+ * realistically. Every student is derived from the seed and their index alone,
+ * so students are generated in parallel chunks and the output is identical
+ * for a given seed whatever the thread count.
+ */
 public class TestDataGenerator {
+    private static final int CHUNK_SIZE = 10_000;
+    private static final LocalDate TERM_START = LocalDate.of(2024, 8, 26);
+    
+    private static final String[] DEPARTMENTS = {
+        "Computer Science", "Mathematics", "Physics", "Chemistry", "Biology", "English",
+        "History", "Economics", "Psychology", "Mechanical Engineering", "Electrical Engineering", "Philosophy"
+    };
+    private static final String[] PREFIXES = {"CS", "MATH", "PHYS", "CHEM", "BIO", "ENG", "HIST", "ECON", "PSY", "ME", "EE", "PHIL"};
+    private static final String[][] TOPICS = {
+        {"Programming", "Data Structures", "Algorithms", "Operating Systems", "Databases", "Computer Networks", "Machine Learning", "Software Engineering"},
+        {"Calculus", "Linear Algebra", "Discrete Mathematics", "Probability", "Statistics", "Real Analysis", "Number Theory", "Differential Equations"},
+        {"Mechanics", "Electromagnetism", "Thermodynamics", "Optics", "Quantum Physics", "Astrophysics", "Relativity", "Solid State Physics"},
+        {"General Chemistry", "Organic Chemistry", "Physical Chemistry", "Biochemistry", "Analytical Chemistry", "Inorganic Chemistry", "Polymer Science", "Spectroscopy"},
+        {"Cell Biology", "Genetics", "Ecology", "Microbiology", "Evolution", "Physiology", "Neuroscience", "Molecular Biology"},
+        {"English Composition", "Creative Writing", "British Literature", "American Literature", "Poetry", "Rhetoric", "Shakespeare", "Literary Theory"},
+        {"World History", "Ancient Civilizations", "Medieval Europe", "Modern Asia", "American History", "Economic History", "Historiography", "Colonialism"},
+        {"Microeconomics", "Macroeconomics", "Econometrics", "Public Finance", "Game Theory", "Development Economics", "Labor Economics", "International Trade"},
+        {"General Psychology", "Cognitive Psychology", "Social Psychology", "Developmental Psychology", "Abnormal Psychology", "Research Methods", "Personality", "Learning and Memory"},
+        {"Statics", "Dynamics", "Fluid Mechanics", "Heat Transfer", "Machine Design", "Materials Science", "Control Systems", "Manufacturing"},
+        {"Circuit Analysis", "Digital Logic", "Signals and Systems", "Electronics", "Electromagnetics", "Power Systems", "Embedded Systems", "Communications"},
+        {"Logic", "Ethics", "Metaphysics", "Epistemology", "Philosophy of Mind", "Political Philosophy", "Aesthetics", "Philosophy of Science"}
+    };
+    private static final String[] LEVELS = {"Introduction to %s", "%s", "Intermediate %s", "Advanced %s"};
+    // Relative popularity of 100-, 200-, 300- and 400-level courses
+    private static final int[] LEVEL_WEIGHTS = {8, 5, 3, 2};
+    private static final String[] FIRST_NAMES = {
+        "James", "Mary", "Robert", "Patricia", "John", "Jennifer", "Michael", "Linda", "David", "Elizabeth",
+        "William", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah", "Charles", "Karen",
+        "Aarav", "Priya", "Wei", "Mei", "Hiroshi", "Yuki", "Mohammed", "Fatima", "Ahmed", "Aisha",
+        "Carlos", "Sofia", "Mateo", "Valentina", "Luca", "Giulia", "Olga", "Dmitri", "Chinedu", "Amara",
+        "Liam", "Emma", "Noah", "Olivia", "Lucas", "Mia", "Ethan", "Chloe", "Arjun", "Ananya"
+    };
+    private static final String[] LAST_NAMES = {
+        "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez", "Martinez",
+        "Hernandez", "Lopez", "Wilson", "Anderson", "Thomas", "Taylor", "Moore", "Jackson", "Martin", "Lee",
+        "Patel", "Sharma", "Singh", "Wang", "Li", "Zhang", "Chen", "Kim", "Nguyen", "Tanaka",
+        "Khan", "Ali", "Hassan", "Okafor", "Mensah", "Rossi", "Bianchi", "Muller", "Schmidt", "Ivanov",
+        "O'Brien", "Murphy", "Kowalski", "Novak", "Silva", "Santos", "Dubois", "Laurent", "Cohen", "Haddad"
+    };
+    
     public static void generateTestData(StudentService studentService, CourseService courseService) {
         // Add some test students
         studentService.addStudent(new Student("S001", "2023001", "John Doe", "john.doe@university.edu"));
@@ -20,14 +96,14 @@ public class TestDataGenerator {
             .semester(Semester.FALL)
             .department("Computer Science")
             .build());
-            
+        
         courseService.addCourse(new Course.Builder("MATH201", "Calculus I")
             .credits(4)
             .instructor("Prof. Charlie Davis")
             .semester(Semester.FALL)
             .department("Mathematics")
             .build());
-            
+        
         courseService.addCourse(new Course.Builder("ENG101", "English Composition")
             .credits(3)
             .instructor("Dr. Eva Wilson")
@@ -35,4 +111,318 @@ public class TestDataGenerator {
             .department("English")
             .build());
     }
-}
\ No newline at end of file
+    
+    /**
+     * Adds a generated catalog of {@code courses} courses and {@code students}
+     * students with their enrollments and grades to the services. Students are
+     * generated in parallel; a concurrent student service is also filled in
+     * parallel, otherwise students are added in order.
+     */
+    public static void generateTestData(StudentService studentService, CourseService courseService,
+                                        long seed, int students, int courses) {
+        ValidationUtils.validateNotNull(studentService, "Student service cannot be null");
+        ValidationUtils.validateNotNull(courseService, "Course service cannot be null");
+        Catalog catalog = new Catalog(seed, courses);
+        catalog.courses.forEach(courseService::addCourse);
+        
+        forEachChunk(students, chunk -> generateChunk(seed, catalog, chunk, students), wave -> {
+            for (List<GeneratedStudent> generated : wave) {
+                (studentService.isConcurrent() ? generated.parallelStream() : generated.stream()).forEach(student -> {
+                    studentService.addStudent(student.student);
+                    student.enrollments.forEach(studentService::restoreEnrollment);
+                });
+            }
+        });
+    }
+    
+    /**
+     * Writes a generated dataset as {@code students.csv}, {@code courses.csv}
+     * and {@code enrollments.csv} in the {@link ImportExportService} export
+     * layouts. Rows are generated and formatted in parallel chunks and written
+     * in order, so memory use does not grow with the student count.
+     */
+    public static void writeCSV(Path directory, long seed, int students, int courses) throws IOException {
+        ValidationUtils.validateNotNull(directory, "Directory cannot be null");
+        Files.createDirectories(directory);
+        Catalog catalog = new Catalog(seed, courses);
+        try (CsvWriter writer = CsvWriter.create(directory.resolve("courses.csv"))) {
+            writer.record(ImportExportService.courseHeader());
+            for (Course course : catalog.courses) {
+                ImportExportService.writeCourse(writer, course);
+            }
+        }
+        
+        try (Writer studentsOut = newWriter(directory.resolve("students.csv"));
+             Writer enrollmentsOut = newWriter(directory.resolve("enrollments.csv"))) {
+            new CsvWriter(studentsOut).record(ImportExportService.studentHeader());
+            new CsvWriter(enrollmentsOut).record(ImportExportService.enrollmentHeader());
+            forEachChunk(students, chunk -> formatChunk(generateChunk(seed, catalog, chunk, students)), rows -> {
+                try {
+                    for (String[] chunkRows : rows) {
+                        studentsOut.write(chunkRows[0]);
+                        enrollmentsOut.write(chunkRows[1]);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    /**
+     * Usage: {@code java ccrm.util.TestDataGenerator <directory> [students] [courses] [seed]}
+     * (defaults 1,000,000 students, 2,000 courses, seed 42).
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: TestDataGenerator <directory> [students] [courses] [seed]");
+            return;
+        }
+        Path directory = Paths.get(args[0]);
+        int students = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int courses = args.length > 2 ? Integer.parseInt(args[2]) : 2_000;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42L;
+        
+        long start = System.nanoTime();
+        writeCSV(directory, seed, students, courses);
+        System.out.printf("Wrote %,d students and %,d courses to %s in %.1f s%n",
+                          students, courses, directory.toAbsolutePath(), (System.nanoTime() - start) / 1e9);
+    }
+    
+    private static class GeneratedStudent {
+        final Student student;
+        final List<Enrollment> enrollments;
+        
+        GeneratedStudent(Student student, List<Enrollment> enrollments) {
+            this.student = student;
+            this.enrollments = enrollments;
+        }
+    }
+    
+    /** Courses by department, with cumulative popularity weights for sampling. */
+    private static class Catalog {
+        final List<Course> courses = new ArrayList<>();
+        final List<List<Course>> byDepartment = new ArrayList<>();
+        final List<int[]> cumulativeWeights = new ArrayList<>();
+        final int[] allWeights;
+        // Larger departments attract more majors
+        final int[] majorWeights = new int[DEPARTMENTS.length];
+        
+        Catalog(long seed, int count) {
+            if (count < 1) {
+                throw new IllegalArgumentException("At least one course is required");
+            }
+            SplittableRandom random = new SplittableRandom(seed);
+            for (int d = 0; d < DEPARTMENTS.length; d++) {
+                byDepartment.add(new ArrayList<>());
+            }
+            String[][] instructors = new String[DEPARTMENTS.length][];
+            for (int d = 0; d < DEPARTMENTS.length; d++) {
+                int perDepartment = (count + DEPARTMENTS.length - 1 - d) / DEPARTMENTS.length;
+                instructors[d] = new String[Math.max(2, perDepartment / 4)];
+                for (int i = 0; i < instructors[d].length; i++) {
+                    instructors[d][i] = (random.nextInt(3) == 0 ? "Prof. " : "Dr. ")
+                        + FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+                }
+            }
+            
+            Semester[] semesters = Semester.values();
+            for (int c = 0; c < count; c++) {
+                int department = c % DEPARTMENTS.length;
+                int sequence = c / DEPARTMENTS.length;
+                int level = sequence % LEVELS.length;
+                // 101, 201, 301, 401, 102, ...; past x99 a letter suffix keeps codes unique
+                int number = 100 * (level + 1) + 1 + (sequence / LEVELS.length) % 99;
+                int round = sequence / (LEVELS.length * 99);
+                String code = PREFIXES[department] + number + (round > 0 ? String.valueOf((char) ('A' + (round - 1) % 26)) : "");
+                if (round > 26) {
+                    code += round / 26;
+                }
+                String topic = TOPICS[department][(sequence / LEVELS.length) % TOPICS[department].length];
+                String title = String.format(LEVELS[level], topic)
+                    + (sequence >= LEVELS.length * TOPICS[department].length ? " " + roman(sequence / (LEVELS.length * TOPICS[department].length) + 1) : "");
+                int creditRoll = random.nextInt(100);
+                int credits = creditRoll < 5 ? 1 : creditRoll < 15 ? 2 : creditRoll < 75 ? 3 : 4;
+                Course course = new Course.Builder(code, title)
+                    .credits(credits)
+                    .instructor(instructors[department][random.nextInt(instructors[department].length)])
+                    .semester(semesters[random.nextInt(semesters.length)])
+                    .department(DEPARTMENTS[department])
+                    .build();
+                courses.add(course);
+                byDepartment.get(department).add(course);
+            }
+            
+            for (List<Course> departmentCourses : byDepartment) {
+                cumulativeWeights.add(cumulative(departmentCourses));
+            }
+            allWeights = cumulative(courses);
+            for (int d = 0; d < DEPARTMENTS.length; d++) {
+                majorWeights[d] = (d == 0 ? 0 : majorWeights[d - 1]) + (byDepartment.get(d).isEmpty() ? 0 : 1 + (DEPARTMENTS.length - d) / 3);
+            }
+        }
+        
+        private static int[] cumulative(List<Course> pool) {
+            int[] weights = new int[pool.size()];
+            int total = 0;
+            for (int i = 0; i < pool.size(); i++) {
+                total += LEVEL_WEIGHTS[levelOf(pool.get(i))];
+                weights[i] = total;
+            }
+            return weights;
+        }
+        
+        private static int levelOf(Course course) {
+            String code = course.getCode();
+            for (int i = 0; i < code.length(); i++) {
+                if (Character.isDigit(code.charAt(i))) {
+                    return code.charAt(i) - '1';
+                }
+            }
+            return 0;
+        }
+        
+        Course pick(SplittableRandom random, int department) {
+            List<Course> pool = department >= 0 ? byDepartment.get(department) : courses;
+            int[] weights = department >= 0 ? cumulativeWeights.get(department) : allWeights;
+            return pool.get(pickWeighted(random, weights));
+        }
+        
+        int pickMajor(SplittableRandom random) {
+            return pickWeighted(random, majorWeights);
+        }
+    }
+    
+    private static int pickWeighted(SplittableRandom random, int[] cumulativeWeights) {
+        int roll = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = Arrays.binarySearch(cumulativeWeights, roll + 1);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        // Skip zero-weight entries that share the same cumulative total
+        while (index > 0 && cumulativeWeights[index - 1] == cumulativeWeights[index]) {
+            index--;
+        }
+        return index;
+    }
+    
+    private static List<GeneratedStudent> generateChunk(long seed, Catalog catalog, int chunk, int students) {
+        int from = chunk * CHUNK_SIZE;
+        int to = Math.min(students, from + CHUNK_SIZE);
+        List<GeneratedStudent> generated = new ArrayList<>(to - from);
+        for (int index = from; index < to; index++) {
+            generated.add(generateStudent(seed, catalog, index));
+        }
+        return generated;
+    }
+    
+    private static GeneratedStudent generateStudent(long seed, Catalog catalog, int index) {
+        // Seeded by (seed, index) alone, so chunking and thread count never change the data
+        SplittableRandom random = new SplittableRandom(mix(seed ^ mix(index + 1L)));
+        String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        int year = 2021 + random.nextInt(4);
+        // Year then the index padded to seven digits; larger indexes only add digits, so numbers stay unique
+        String regNo = index < 10_000_000 ? Long.toString(year * 10_000_000L + index) : year + Integer.toString(index);
+        Student student = new Student("S" + (index + 1), regNo,
+                                      first + " " + last, emailName(first) + "." + emailName(last) + (index + 1) + "@university.edu");
+        
+        int major = catalog.pickMajor(random);
+        int wanted = 3 + random.nextInt(4);
+        double ability = random.nextGaussian();
+        List<Enrollment> enrollments = new ArrayList<>(wanted);
+        List<Course> taken = new ArrayList<>(wanted);
+        int credits = 0;
+        for (int attempt = 0; attempt < wanted * 3 && taken.size() < wanted; attempt++) {
+            Course course = catalog.pick(random, random.nextInt(100) < 65 ? major : -1);
+            if (taken.contains(course) || credits + course.getCredits() > StudentService.MAX_CREDITS_PER_SEMESTER) {
+                continue;
+            }
+            taken.add(course);
+            credits += course.getCredits();
+            Enrollment enrollment = new Enrollment(student, course, enrollmentDate(course.getSemester(), random));
+            // About one in eight enrollments is still in progress
+            if (random.nextInt(8) != 0) {
+                enrollment.setGrade(grade(ability * 0.8 + random.nextGaussian() * 0.6 - 0.1 * Catalog.levelOf(course)));
+            }
+            enrollments.add(enrollment);
+        }
+        return new GeneratedStudent(student, enrollments);
+    }
+    
+    private static Grade grade(double score) {
+        if (score > 1.5) return Grade.S;
+        if (score > 0.8) return Grade.A;
+        if (score > 0.2) return Grade.B;
+        if (score > -0.4) return Grade.C;
+        if (score > -1.0) return Grade.D;
+        if (score > -1.6) return Grade.E;
+        return Grade.F;
+    }
+    
+    private static LocalDate enrollmentDate(Semester semester, SplittableRandom random) {
+        int termOffset = semester == Semester.FALL ? 0 : semester == Semester.SPRING ? 140 : 260;
+        return TERM_START.plusDays(termOffset - 14 + random.nextInt(21));
+    }
+    
+    private static String[] formatChunk(List<GeneratedStudent> generated) {
+        StringWriter students = new StringWriter(generated.size() * 80);
+        StringWriter enrollments = new StringWriter(generated.size() * 200);
+        CsvWriter studentWriter = new CsvWriter(students);
+        CsvWriter enrollmentWriter = new CsvWriter(enrollments);
+        try {
+            for (GeneratedStudent student : generated) {
+                ImportExportService.writeStudent(studentWriter, student.student);
+                for (Enrollment enrollment : student.enrollments) {
+                    ImportExportService.writeEnrollment(enrollmentWriter, enrollment);
+                }
+            }
+        } catch (IOException e) {
+            // StringWriter does not throw
+            throw new UncheckedIOException(e);
+        }
+        return new String[] {students.toString(), enrollments.toString()};
+    }
+    
+    /**
+     * Generates chunks in parallel waves of a few per core and hands each wave,
+     * in chunk order, to {@code consumer} on the calling thread.
+     */
+    private static <T> void forEachChunk(int students, IntFunction<T> generator,
+                                         Consumer<List<T>> consumer) {
+        if (students < 0) {
+            throw new IllegalArgumentException("Student count cannot be negative");
+        }
+        int chunks = (students + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int wave = Math.max(1, Runtime.getRuntime().availableProcessors() * 2);
+        for (int first = 0; first < chunks; first += wave) {
+            List<T> generated = IntStream.range(first, Math.min(chunks, first + wave))
+                .parallel()
+                .mapToObj(generator)
+                .collect(Collectors.toList());
+            consumer.accept(generated);
+        }
+    }
+    
+    private static Writer newWriter(Path file) throws IOException {
+        return new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 16);
+    }
+    
+    private static String emailName(String name) {
+        return name.toLowerCase(Locale.ROOT).replaceAll("[^a-z]", "");
+    }
+    
+    private static String roman(int value) {
+        String[] numerals = {"I", "II", "III", "IV", "V", "VI", "VII", "VIII", "IX", "X"};
+        return value <= numerals.length ? numerals[value - 1] : Integer.toString(value);
+    }
+    
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}